@@ -21,6 +21,7 @@ import android.content.res.Resources;
 import android.media.AudioManager;
 import android.net.ConnectivityManager;
 import android.net.wifi.WifiManager;
+import android.os.PowerManager;
 import android.view.inputmethod.InputMethodManager;
 
 import dagger.Module;
@@ -50,6 +51,10 @@ import dagger.Provides;
     return (AudioManager) context.getSystemService(Context.AUDIO_SERVICE);
   }
 
+  @Provides PowerManager providePowerManager(Context context) {
+    return (PowerManager) context.getSystemService(Context.POWER_SERVICE);
+  }
+
   @Provides WifiManager provideWifiManager(Context context) {
     return (WifiManager) context.getApplicationContext().getSystemService(Context.WIFI_SERVICE);
   }
@@ -15,6 +15,10 @@
  */
 package com.awsomefox.sprocket;
 
+import com.awsomefox.sprocket.data.api.MediaService;
+import com.awsomefox.sprocket.data.download.PrefetchJobService;
+import com.awsomefox.sprocket.data.repository.MusicRepository;
+import com.awsomefox.sprocket.playback.AudioCache;
 import com.awsomefox.sprocket.playback.MusicService;
 import com.awsomefox.sprocket.ui.BrowserController;
 import com.awsomefox.sprocket.ui.DetailController;
@@ -23,6 +27,10 @@ import com.awsomefox.sprocket.ui.LoginController;
 import com.awsomefox.sprocket.ui.MiniPlayerController;
 import com.awsomefox.sprocket.ui.PlayerController;
 
+import javax.inject.Named;
+
+import okhttp3.OkHttpClient;
+
 public interface AppComponent {
   void inject(BrowserController controller);
   void inject(DetailController controller);
@@ -31,4 +39,13 @@ public interface AppComponent {
   void inject(PlayerController controller);
   void inject(SprocketActivity activity);
   void inject(MusicService service);
+  void inject(PrefetchJobService service);
+
+  @Named("default") OkHttpClient okHttpClient();
+
+  MediaService mediaService();
+
+  MusicRepository musicRepository();
+
+  AudioCache audioCache();
 }
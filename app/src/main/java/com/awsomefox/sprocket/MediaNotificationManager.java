@@ -43,7 +43,9 @@ import com.awsomefox.sprocket.playback.MediaController;
 import com.awsomefox.sprocket.playback.MusicService;
 import com.awsomefox.sprocket.playback.QueueManager;
 import com.awsomefox.sprocket.ui.SprocketActivity;
+import com.awsomefox.sprocket.util.ArtworkUrl;
 import com.awsomefox.sprocket.util.Rx;
+import com.awsomefox.sprocket.util.Urls;
 import com.bumptech.glide.Glide;
 import com.bumptech.glide.request.RequestOptions;
 import com.bumptech.glide.request.target.CustomTarget;
@@ -308,7 +310,8 @@ public class MediaNotificationManager extends BroadcastReceiver {
     private void loadImage(final String url, final NotificationCompat.Builder builder) {
         Glide.with(musicService)
                 .asBitmap()
-                .load(url)
+                .load(ArtworkUrl.of(currentTrack.libraryId(),
+                        Urls.getPhotoUrl(url, iconWidth, iconHeight, Urls.PhotoFormat.JPEG)))
                 .apply(RequestOptions.overrideOf(iconWidth, iconHeight))
                 .into(new CustomTarget<Bitmap>() {
                     @Override
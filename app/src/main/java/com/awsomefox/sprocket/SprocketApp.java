@@ -19,6 +19,7 @@ import android.app.Application;
 import android.content.Context;
 
 import com.awsomefox.sprocket.util.DebugTree;
+import com.awsomefox.sprocket.util.StartupTrace;
 
 import timber.log.Timber;
 
@@ -35,12 +36,15 @@ public class SprocketApp extends Application {
     if (BuildConfig.DEBUG) {
       Timber.plant(new DebugTree());
     }
+    StartupInitializer.start(this, appComponent);
   }
 
   private AppComponent createComponent() {
-    return DaggerSprocketComponent.builder()
-        .sprocketModule(new SprocketModule(this))
-        .build();
+    try (StartupTrace.Section ignored = StartupTrace.begin("component")) {
+      return DaggerSprocketComponent.builder()
+          .sprocketModule(new SprocketModule(this))
+          .build();
+    }
   }
 
   public AppComponent component() {
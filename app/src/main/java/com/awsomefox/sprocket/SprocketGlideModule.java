@@ -0,0 +1,68 @@
+/*
+ * Copyright (C) 2020 Simon Norberg
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.awsomefox.sprocket;
+
+import android.content.Context;
+
+import androidx.annotation.NonNull;
+
+import com.bumptech.glide.Glide;
+import com.bumptech.glide.GlideBuilder;
+import com.bumptech.glide.Registry;
+import com.bumptech.glide.annotation.GlideModule;
+import com.bumptech.glide.integration.okhttp3.OkHttpUrlLoader;
+import com.bumptech.glide.load.engine.bitmap_recycle.LruBitmapPool;
+import com.bumptech.glide.load.engine.cache.InternalCacheDiskCacheFactory;
+import com.bumptech.glide.load.engine.cache.LruResourceCache;
+import com.bumptech.glide.load.engine.cache.MemorySizeCalculator;
+import com.bumptech.glide.load.model.GlideUrl;
+import com.bumptech.glide.module.AppGlideModule;
+
+import java.io.InputStream;
+
+/**
+ * Artwork is requested at its display size from the server, so entries are small and a few
+ * screens worth of them fit in memory. Images are fetched with the app's client to share its
+ * connection pool and plex.direct resolution.
+ */
+@GlideModule
+public final class SprocketGlideModule extends AppGlideModule {
+
+  public static final String DISK_CACHE_NAME = "artwork";
+  private static final long DISK_CACHE_SIZE = 64 * 1024 * 1024;
+  private static final float MEMORY_CACHE_SCREENS = 3;
+  private static final float BITMAP_POOL_SCREENS = 2;
+
+  @Override public void applyOptions(@NonNull Context context, @NonNull GlideBuilder builder) {
+    MemorySizeCalculator calculator = new MemorySizeCalculator.Builder(context)
+        .setMemoryCacheScreens(MEMORY_CACHE_SCREENS)
+        .setBitmapPoolScreens(BITMAP_POOL_SCREENS)
+        .build();
+    builder.setMemoryCache(new LruResourceCache(calculator.getMemoryCacheSize()))
+        .setBitmapPool(new LruBitmapPool(calculator.getBitmapPoolSize()))
+        .setDiskCache(new InternalCacheDiskCacheFactory(context, DISK_CACHE_NAME, DISK_CACHE_SIZE));
+  }
+
+  @Override public void registerComponents(@NonNull Context context, @NonNull Glide glide,
+                                           @NonNull Registry registry) {
+    registry.replace(GlideUrl.class, InputStream.class,
+        new OkHttpUrlLoader.Factory(SprocketApp.get(context).component().okHttpClient()));
+  }
+
+  @Override public boolean isManifestParsingEnabled() {
+    return false;
+  }
+}
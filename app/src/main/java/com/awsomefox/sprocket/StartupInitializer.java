@@ -0,0 +1,53 @@
+/*
+ * Copyright (C) 2020 Simon Norberg
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.awsomefox.sprocket;
+
+import android.content.Context;
+
+import com.awsomefox.sprocket.util.Rx;
+import com.awsomefox.sprocket.util.StartupTrace;
+import com.bumptech.glide.Glide;
+
+import io.reactivex.Completable;
+import io.reactivex.schedulers.Schedulers;
+
+/**
+ * Builds the expensive parts of the object graph on a background thread while the first screen
+ * is created. Singletons are built once whichever thread asks first, so the main thread either
+ * finds them ready or waits for the build already under way.
+ */
+final class StartupInitializer {
+
+  private StartupInitializer() {
+  }
+
+  static void start(Context context, AppComponent component) {
+    Completable.fromAction(() -> {
+      warm("okhttp", component::okHttpClient);
+      warm("media service", component::mediaService);
+      warm("repository", component::musicRepository);
+      warm("audio cache", component::audioCache);
+      warm("glide", () -> Glide.get(context));
+    }).subscribeOn(Schedulers.io())
+        .subscribe(() -> { }, Rx::onError);
+  }
+
+  private static void warm(String component, Runnable init) {
+    try (StartupTrace.Section ignored = StartupTrace.begin(component)) {
+      init.run();
+    }
+  }
+}
@@ -35,10 +35,18 @@ import io.reactivex.disposables.CompositeDisposable;
 import io.reactivex.schedulers.Schedulers;
 import timber.log.Timber;
 
+import static com.awsomefox.sprocket.ui.PlayerController.BUNDLE_TRACK_ALBUM_TITLE;
+import static com.awsomefox.sprocket.ui.PlayerController.BUNDLE_TRACK_ARTIST_TITLE;
+import static com.awsomefox.sprocket.ui.PlayerController.BUNDLE_TRACK_DURATION;
 import static com.awsomefox.sprocket.ui.PlayerController.BUNDLE_TRACK_KEY;
 import static com.awsomefox.sprocket.ui.PlayerController.BUNDLE_TRACK_LIBRARY_ID;
 import static com.awsomefox.sprocket.ui.PlayerController.BUNDLE_TRACK_PARENT_KEY;
+import static com.awsomefox.sprocket.ui.PlayerController.BUNDLE_TRACK_RATING_KEY;
+import static com.awsomefox.sprocket.ui.PlayerController.BUNDLE_TRACK_SOURCE;
+import static com.awsomefox.sprocket.ui.PlayerController.BUNDLE_TRACK_THUMB;
+import static com.awsomefox.sprocket.ui.PlayerController.BUNDLE_TRACK_TITLE;
 import static com.awsomefox.sprocket.ui.PlayerController.BUNDLE_TRACK_URI;
+import static com.awsomefox.sprocket.ui.PlayerController.BUNDLE_TRACK_VIEW_OFFSET;
 import static com.awsomefox.sprocket.ui.PlayerController.SPEED;
 
 public class AutoMediaBrowserService extends MediaBrowserServiceCompat {
@@ -235,6 +243,7 @@ public class AutoMediaBrowserService extends MediaBrowserServiceCompat {
                 .uri(lib.uri())
                 .build();
         disposables.add(musicService.musicRepository.browseMediaType(type, 0, null)
+                .firstOrError()
                 .subscribeOn(Schedulers.io())
                 .subscribe(items -> addPlexItemsToBrowserResult(result, items)));
     }
@@ -252,6 +261,7 @@ public class AutoMediaBrowserService extends MediaBrowserServiceCompat {
                 .uri(lib.uri())
                 .build();
         disposables.add(musicService.musicRepository.browseMediaType(type, 0, null)
+                .firstOrError()
                 .subscribeOn(Schedulers.io())
                 .subscribe(items -> addPlexItemsToBrowserResult(result, items)));
     }
@@ -261,6 +271,7 @@ public class AutoMediaBrowserService extends MediaBrowserServiceCompat {
         result.detach();
         Library lib = currentLibraries.get(libraryId);
         disposables.add(musicService.musicRepository.chaptersInProgress(lib)
+                .firstOrError()
                 .subscribeOn(Schedulers.io())
                 .subscribe(items -> addPlexItemsToBrowserResult(result, items)));
     }
@@ -270,6 +281,7 @@ public class AutoMediaBrowserService extends MediaBrowserServiceCompat {
         result.detach();
         Library lib = currentLibraries.get(libraryId);
         disposables.add(musicService.musicRepository.booksInProgress(lib)
+                .firstOrError()
                 .subscribeOn(Schedulers.io())
                 .subscribe(items -> addPlexItemsToBrowserResult(result, items)));
     }
@@ -279,6 +291,7 @@ public class AutoMediaBrowserService extends MediaBrowserServiceCompat {
         result.detach();
         Book book = currentBooks.get(bookId);
         disposables.add(musicService.musicRepository.albumItems(book)
+                .firstOrError()
                 .subscribeOn(Schedulers.io())
                 .subscribe(items -> addPlexItemsToBrowserResult(result, items)));
     }
@@ -288,6 +301,7 @@ public class AutoMediaBrowserService extends MediaBrowserServiceCompat {
         result.detach();
         Author author = currentAuthors.get(authorId);
         disposables.add(musicService.musicRepository.artistItems(author)
+                .firstOrError()
                 .subscribeOn(Schedulers.io())
                 .subscribe(items -> addPlexItemsToBrowserResult(result, items)));
 
@@ -328,6 +342,14 @@ public class AutoMediaBrowserService extends MediaBrowserServiceCompat {
                 extras.putString(BUNDLE_TRACK_KEY, track.key());
                 extras.putString(BUNDLE_TRACK_PARENT_KEY, track.parentKey());
                 extras.putString(BUNDLE_TRACK_LIBRARY_ID, track.libraryId());
+                extras.putString(BUNDLE_TRACK_RATING_KEY, track.ratingKey());
+                extras.putString(BUNDLE_TRACK_SOURCE, track.source());
+                extras.putString(BUNDLE_TRACK_TITLE, track.title());
+                extras.putString(BUNDLE_TRACK_ALBUM_TITLE, track.albumTitle());
+                extras.putString(BUNDLE_TRACK_ARTIST_TITLE, track.artistTitle());
+                extras.putString(BUNDLE_TRACK_THUMB, track.thumb());
+                extras.putLong(BUNDLE_TRACK_DURATION, track.duration());
+                extras.putLong(BUNDLE_TRACK_VIEW_OFFSET, track.viewOffset());
                 extras.putFloat(SPEED,
                         musicService.queueManager.getSpeed());
                 MediaDescriptionCompat description = new MediaDescriptionCompat.Builder()
@@ -19,7 +19,11 @@ import android.content.Context;
 import android.content.SharedPreferences;
 
 import com.awsomefox.sprocket.data.api.ApiModule;
+import com.awsomefox.sprocket.data.download.DownloadModule;
+import com.awsomefox.sprocket.data.outbox.OutboxModule;
 import com.awsomefox.sprocket.data.repository.RepositoryModule;
+import com.awsomefox.sprocket.data.storage.StorageModule;
+import com.awsomefox.sprocket.data.store.StoreModule;
 
 import java.util.UUID;
 
@@ -31,7 +35,11 @@ import dagger.Provides;
 
 @Module(includes = {
     ApiModule.class,
-    RepositoryModule.class
+    DownloadModule.class,
+    OutboxModule.class,
+    RepositoryModule.class,
+    StorageModule.class,
+    StoreModule.class
 })
 public class DataModule {
 
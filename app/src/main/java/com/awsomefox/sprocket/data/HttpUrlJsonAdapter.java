@@ -0,0 +1,33 @@
+/*
+ * Copyright (C) 2020 Simon Norberg
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.awsomefox.sprocket.data;
+
+import com.squareup.moshi.FromJson;
+import com.squareup.moshi.ToJson;
+
+import okhttp3.HttpUrl;
+
+/** Writes urls as strings, the fields of {@link HttpUrl} are not stable across shrunk builds. */
+public class HttpUrlJsonAdapter {
+
+  @ToJson public String toJson(HttpUrl url) {
+    return url.toString();
+  }
+
+  @FromJson public HttpUrl fromJson(String url) {
+    return HttpUrl.get(url);
+  }
+}
@@ -15,8 +15,20 @@
  */
 package com.awsomefox.sprocket.data;
 
+import java.util.Set;
+
+import io.reactivex.Observable;
+
 public interface Prefs {
   void remove(String key);
+  /** Removes every key starting with {@code prefix}. */
+  void removeAll(String prefix);
+  /** Every key starting with {@code prefix}. */
+  Set<String> keys(String prefix);
   String getString(String key, String defaultValue);
   void putString(String key, String value);
+  boolean getBoolean(String key, boolean defaultValue);
+  void putBoolean(String key, boolean value);
+  /** Keys of the prefs that change while subscribed, emitted on the main thread. */
+  Observable<String> changes();
 }
@@ -15,75 +15,256 @@
  */
 package com.awsomefox.sprocket.data;
 
+import android.net.ConnectivityManager;
+import android.net.Network;
+import android.net.NetworkCapabilities;
+import android.net.NetworkInfo;
+import android.net.NetworkRequest;
+import android.net.wifi.WifiInfo;
+import android.net.wifi.WifiManager;
 import android.text.TextUtils;
 
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
 import com.jakewharton.rxrelay2.BehaviorRelay;
 import com.awsomefox.sprocket.data.api.MediaService;
 import com.awsomefox.sprocket.data.api.PlexService;
 import com.awsomefox.sprocket.data.api.model.Device;
 import com.awsomefox.sprocket.data.model.Library;
+import com.awsomefox.sprocket.data.model.PlexItem;
 import com.awsomefox.sprocket.data.model.Server;
+import com.awsomefox.sprocket.data.store.Freshness;
+import com.awsomefox.sprocket.data.store.MetadataStore;
 import com.awsomefox.sprocket.util.Rx;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
 
 import javax.inject.Inject;
 import javax.inject.Singleton;
 
 import io.reactivex.BackpressureStrategy;
 import io.reactivex.Flowable;
+import io.reactivex.Maybe;
 import io.reactivex.Observable;
 import io.reactivex.disposables.Disposable;
 import io.reactivex.functions.Function;
 import okhttp3.HttpUrl;
+import timber.log.Timber;
 
+@SuppressWarnings("deprecation")
 @Singleton
 public class ServerManager {
 
-  private final BehaviorRelay<List<Library>> libsRelay = BehaviorRelay.create();
+  private static final String LIBRARIES = "libraries/";
+  private static final String PREF_ENDPOINT = "pref_endpoint_";
+  private static final long REMEMBERED_TIMEOUT_MS = 1500;
+  private static final long RACE_TIMEOUT_MS = 5000;
+
+  private BehaviorRelay<List<Library>> libsRelay = BehaviorRelay.create();
   private final PlexService plex;
   private final MediaService media;
+  private final MetadataStore store;
+  private final ConnectivityManager connectivityManager;
+  private final WifiManager wifiManager;
+  private final Prefs prefs;
   private final Rx rx;
   private Disposable disposable;
+  private String network;
+  private boolean watchingNetwork;
 
-  @Inject ServerManager(PlexService plex, MediaService media, Rx rx) {
+  @Inject ServerManager(PlexService plex, MediaService media, MetadataStore store,
+                        ConnectivityManager connectivityManager, WifiManager wifiManager,
+                        Prefs prefs, Rx rx) {
     this.plex = plex;
     this.media = media;
+    this.store = store;
+    this.connectivityManager = connectivityManager;
+    this.wifiManager = wifiManager;
+    this.prefs = prefs;
     this.rx = rx;
   }
 
-  public Flowable<List<Library>> libs() {
+  public synchronized Flowable<List<Library>> libs() {
     return libsRelay.toFlowable(BackpressureStrategy.LATEST);
   }
 
-  public void refresh() {
+  /** Whether libraries have been loaded, from storage or from the server. */
+  public synchronized boolean hasLibs() {
+    return libsRelay.hasValue();
+  }
+
+  /** Current connection to the server holding the library {@code uuid}, if it is known yet. */
+  @Nullable public synchronized HttpUrl uri(String uuid) {
+    List<Library> libs = libsRelay.getValue();
+    if (libs != null) {
+      for (Library lib : libs) {
+        if (lib.uuid().equals(uuid)) {
+          return lib.uri();
+        }
+      }
+    }
+    return null;
+  }
+
+  public synchronized void refresh() {
+    watchNetwork();
     Rx.dispose(disposable);
-    disposable = plex.resources()
+    String network = currentNetwork();
+    this.network = network;
+    // Libraries carry the endpoint chosen for a network, so they are stored per network
+    String key = LIBRARIES + network;
+    Observable<List<Library>> fetch = plex.resources()
         .flatMap(container -> Observable.fromIterable(container.devices))
         .filter(device -> device.provides.contains("server"))
-        .map(this::createServer)
+        .flatMapMaybe(device -> createServer(device, network))
         .flatMap(createLibrary())
         .toList()
-        .compose(rx.singleSchedulers())
+        .doOnSuccess(libs -> store.put(key, new ArrayList<>(libs), System.currentTimeMillis()))
+        .toObservable();
+    // Show the stored libraries right away, the plex.tv round trip is only needed when stale
+    disposable = Maybe.fromCallable(() -> store.get(key))
+        .onErrorComplete()
+        .flatMapObservable(entry -> {
+          Observable<List<Library>> stored = Observable.just(toLibraries(entry.items));
+          return Freshness.LIBRARIES.isFresh(entry.fetchedAt, System.currentTimeMillis())
+              ? stored : stored.concatWith(fetch);
+        })
+        .switchIfEmpty(fetch)
+        .compose(rx.observableSchedulers())
         .subscribe(libsRelay, Rx::onError);
   }
 
-  private Server createServer(Device device) {
-    Server.Builder builder = Server.builder();
+  /**
+   * Forgets the libraries and the endpoints picked for the signed out account. Subscribers of
+   * {@link #libs()} have to subscribe again to see the next account's libraries.
+   */
+  public synchronized void forget() {
+    Rx.dispose(disposable);
+    libsRelay = BehaviorRelay.create();
+    prefs.removeAll(PREF_ENDPOINT);
+  }
 
+  private static List<Library> toLibraries(List<PlexItem> items) {
+    List<Library> libs = new ArrayList<>();
+    for (PlexItem item : items) {
+      if (item instanceof Library) {
+        libs.add((Library) item);
+      }
+    }
+    return libs;
+  }
+
+  /**
+   * Picks the endpoint of a server. The winner remembered for this network is used if it still
+   * answers, otherwise all advertised connections are probed in parallel and the first one to
+   * answer wins. Falls back to the first remote connection when none of them answer.
+   */
+  private Maybe<Server> createServer(Device device, String network) {
+    List<HttpUrl> uris = new ArrayList<>();
+    HttpUrl fallback = null;
     for (Device.Connection connection : device.connections) {
-      if (connection.local == 0) {
-        HttpUrl parsedUrl = HttpUrl.parse(connection.uri);
-        if (parsedUrl != null) {
-          builder.uri(parsedUrl.newBuilder()
-              .addQueryParameter("X-Plex-Token", device.accessToken)
-              .build());
-          break;
+      HttpUrl parsedUrl = HttpUrl.parse(connection.uri);
+      if (parsedUrl != null) {
+        HttpUrl uri = parsedUrl.newBuilder()
+            .addQueryParameter("X-Plex-Token", device.accessToken)
+            .build();
+        uris.add(uri);
+        if (fallback == null && connection.local == 0) {
+          fallback = uri;
         }
       }
     }
+    if (uris.isEmpty()) {
+      return Maybe.empty();
+    }
+    if (fallback == null) {
+      fallback = uris.get(0);
+    }
+
+    String pref = PREF_ENDPOINT + network + "_" + device.clientIdentifier;
+    HttpUrl remembered = find(uris, prefs.getString(pref, null));
+    Maybe<HttpUrl> race = Observable.fromIterable(uris)
+        .flatMapMaybe(uri -> probe(uri, RACE_TIMEOUT_MS))
+        .firstElement()
+        .doOnSuccess(uri -> prefs.putString(pref, uri.toString()));
+    Maybe<HttpUrl> winner = remembered == null
+        ? race : probe(remembered, REMEMBERED_TIMEOUT_MS).switchIfEmpty(race);
 
-    return builder.build();
+    return winner.defaultIfEmpty(fallback).map(uri -> Server.builder()
+        .uri(uri)
+        .build());
+  }
+
+  private Maybe<HttpUrl> probe(HttpUrl uri, long timeoutMs) {
+    return Maybe.defer(() -> {
+      long start = System.nanoTime();
+      return media.identity(uri)
+          .firstElement()
+          .timeout(timeoutMs, TimeUnit.MILLISECONDS)
+          .map(container -> {
+            Timber.d("%s answered in %d ms", uri.host(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            return uri;
+          })
+          .doOnError(e -> Timber.d("%s is unreachable: %s", uri.host(), e.getMessage()))
+          .onErrorComplete();
+    });
+  }
+
+  private static HttpUrl find(List<HttpUrl> uris, String uri) {
+    for (HttpUrl candidate : uris) {
+      if (candidate.toString().equals(uri)) {
+        return candidate;
+      }
+    }
+    return null;
+  }
+
+  /** Identifies the current network, Wi-Fi networks by SSID when it is available. */
+  private String currentNetwork() {
+    NetworkInfo info = connectivityManager.getActiveNetworkInfo();
+    if (info == null || !info.isConnected()) {
+      return "none";
+    }
+    if (info.getType() == ConnectivityManager.TYPE_WIFI) {
+      WifiInfo wifi = wifiManager.getConnectionInfo();
+      String ssid = wifi != null ? wifi.getSSID() : null;
+      return ssid == null || "<unknown ssid>".equals(ssid) ? "wifi" : "wifi:" + ssid;
+    }
+    return info.getTypeName().toLowerCase(Locale.US);
+  }
+
+  /** Re-evaluates the endpoints whenever the device moves to another network. */
+  private void watchNetwork() {
+    if (watchingNetwork) {
+      return;
+    }
+    watchingNetwork = true;
+    NetworkRequest request = new NetworkRequest.Builder()
+        .addCapability(NetworkCapabilities.NET_CAPABILITY_INTERNET)
+        .build();
+    connectivityManager.registerNetworkCallback(request,
+        new ConnectivityManager.NetworkCallback() {
+          @Override public void onAvailable(@NonNull Network network) {
+            onNetworkChanged();
+          }
+
+          @Override public void onLost(@NonNull Network network) {
+            onNetworkChanged();
+          }
+        });
+  }
+
+  private synchronized void onNetworkChanged() {
+    String current = currentNetwork();
+    if (network != null && !"none".equals(current) && !TextUtils.equals(network, current)) {
+      Timber.d("Network changed from %s to %s", network, current);
+      refresh();
+    }
   }
 
   private Function<Server, Observable<Library>> createLibrary() {
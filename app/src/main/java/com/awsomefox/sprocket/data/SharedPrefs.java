@@ -17,6 +17,11 @@ package com.awsomefox.sprocket.data;
 
 import android.content.SharedPreferences;
 
+import java.util.HashSet;
+import java.util.Set;
+
+import io.reactivex.Observable;
+
 class SharedPrefs implements Prefs {
 
   private final SharedPreferences prefs;
@@ -29,6 +34,26 @@ class SharedPrefs implements Prefs {
     prefs.edit().remove(key).apply();
   }
 
+  @Override public void removeAll(String prefix) {
+    SharedPreferences.Editor editor = prefs.edit();
+    for (String key : prefs.getAll().keySet()) {
+      if (key.startsWith(prefix)) {
+        editor.remove(key);
+      }
+    }
+    editor.apply();
+  }
+
+  @Override public Set<String> keys(String prefix) {
+    Set<String> keys = new HashSet<>();
+    for (String key : prefs.getAll().keySet()) {
+      if (key.startsWith(prefix)) {
+        keys.add(key);
+      }
+    }
+    return keys;
+  }
+
   @Override public String getString(String key, String defaultValue) {
     return prefs.getString(key, defaultValue);
   }
@@ -36,4 +61,22 @@ class SharedPrefs implements Prefs {
   @Override public void putString(String key, String value) {
     prefs.edit().putString(key, value).apply();
   }
+
+  @Override public boolean getBoolean(String key, boolean defaultValue) {
+    return prefs.getBoolean(key, defaultValue);
+  }
+
+  @Override public void putBoolean(String key, boolean value) {
+    prefs.edit().putBoolean(key, value).apply();
+  }
+
+  @Override public Observable<String> changes() {
+    return Observable.create(emitter -> {
+      // Only weakly held by the prefs, the subscription keeps it alive
+      SharedPreferences.OnSharedPreferenceChangeListener listener =
+          (sharedPreferences, key) -> emitter.onNext(key);
+      prefs.registerOnSharedPreferenceChangeListener(listener);
+      emitter.setCancellable(() -> prefs.unregisterOnSharedPreferenceChangeListener(listener));
+    });
+  }
 }
@@ -17,17 +17,22 @@ package com.awsomefox.sprocket.data.api;
 
 import android.content.res.Resources;
 
+import com.awsomefox.sprocket.AndroidClock;
 import com.awsomefox.sprocket.R;
+import com.awsomefox.sprocket.data.Prefs;
 
 import org.simpleframework.xml.core.Persister;
 import org.simpleframework.xml.stream.Format;
 import org.simpleframework.xml.stream.HyphenStyle;
+import org.xmlpull.v1.XmlPullParserException;
+import org.xmlpull.v1.XmlPullParserFactory;
 
 import javax.inject.Named;
 import javax.inject.Singleton;
 
 import dagger.Module;
 import dagger.Provides;
+import okhttp3.Dns;
 import okhttp3.OkHttpClient;
 import okhttp3.logging.HttpLoggingInterceptor;
 import retrofit2.Retrofit;
@@ -56,6 +61,22 @@ public class ApiModule {
     return SimpleXmlConverterFactory.create(new Persister(new Format(new HyphenStyle())));
   }
 
+  @Provides @Singleton PlexXmlConverterFactory providePlexXmlConverterFactory() {
+    try {
+      return PlexXmlConverterFactory.create(XmlPullParserFactory.newInstance());
+    } catch (XmlPullParserException e) {
+      throw new IllegalStateException("No XmlPullParser available", e);
+    }
+  }
+
+  @Provides @Singleton PlexJsonConverterFactory providePlexJsonConverterFactory() {
+    return PlexJsonConverterFactory.create();
+  }
+
+  @Provides @Singleton WireFormat provideWireFormat(Prefs prefs) {
+    return new WireFormat(prefs);
+  }
+
   @Provides @Singleton RxJava2CallAdapterFactory provideRxJava2CallAdapterFactory() {
     return RxJava2CallAdapterFactory.create();
   }
@@ -67,9 +88,15 @@ public class ApiModule {
     return logging;
   }
 
+  @Provides @Singleton PlexDns providePlexDns() {
+    return new PlexDns(Dns.SYSTEM, AndroidClock.DEFAULT);
+  }
+
   @Provides @Singleton @Named("default")
-  OkHttpClient provideOkHttpClient(HttpLoggingInterceptor logging, PlexHeaders plexHeaders) {
+  OkHttpClient provideOkHttpClient(HttpLoggingInterceptor logging, PlexHeaders plexHeaders,
+                                   PlexDns dns) {
     return new OkHttpClient().newBuilder()
+        .dns(dns)
         .connectTimeout(15, SECONDS)
         .readTimeout(15, SECONDS)
         .writeTimeout(15, SECONDS)
@@ -88,11 +115,13 @@ public class ApiModule {
 
   @Provides @Singleton @Named("plex")
   Retrofit providePlexRetrofit(@Named("plex") OkHttpClient client,
+                               PlexXmlConverterFactory plexXml,
                                SimpleXmlConverterFactory simpleXml,
                                RxJava2CallAdapterFactory rxJava) {
     return new Retrofit.Builder()
         .baseUrl(PLEX_URL)
         .callFactory(client)
+        .addConverterFactory(plexXml)
         .addConverterFactory(simpleXml)
         .addCallAdapterFactory(rxJava)
         .build();
@@ -104,11 +133,18 @@ public class ApiModule {
 
   @Provides @Singleton @Named("media")
   Retrofit provideMediaRetrofit(@Named("default") OkHttpClient client,
+                                WireFormat wireFormat,
+                                PlexJsonConverterFactory plexJson,
+                                PlexXmlConverterFactory plexXml,
                                 SimpleXmlConverterFactory simpleXml,
                                 RxJava2CallAdapterFactory rxJava) {
     return new Retrofit.Builder()
         .baseUrl(PLEX_URL) // never used
-        .callFactory(client)
+        .callFactory(client.newBuilder()
+            .addInterceptor(wireFormat)
+            .build())
+        .addConverterFactory(plexJson)
+        .addConverterFactory(plexXml)
         .addConverterFactory(simpleXml)
         .addCallAdapterFactory(rxJava)
         .build();
@@ -15,10 +15,18 @@
  */
 package com.awsomefox.sprocket.data.api;
 
+import androidx.annotation.NonNull;
+
+import com.awsomefox.sprocket.AndroidClock;
 import com.awsomefox.sprocket.data.api.model.MediaContainer;
 
-import java.util.Date;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 
 import io.reactivex.Completable;
 import io.reactivex.Observable;
@@ -31,21 +39,100 @@ import retrofit2.http.Url;
 public class MediaService {
 
   private static final String TOKEN = "X-Plex-Token";
+  private static final long CACHE_BYTES = 4 * 1024 * 1024;
+
+  /** Groups of requests that share a time to live in the response cache. */
+  public enum Endpoint {
+    IDENTITY(0),
+    SECTIONS(TimeUnit.HOURS.toMillis(1)),
+    FIRST_CHARACTER(TimeUnit.HOURS.toMillis(1)),
+    BROWSE(TimeUnit.MINUTES.toMillis(10)),
+    POPULAR(TimeUnit.MINUTES.toMillis(10)),
+    /** Books of an author and chapters of a book, these carry listen state. */
+    CHILDREN(TimeUnit.MINUTES.toMillis(5)),
+    IN_PROGRESS(TimeUnit.SECONDS.toMillis(30)),
+    /** Existing play queues, which carry listen state and are never cached. */
+    PLAY_QUEUE(0);
+
+    final long defaultTtl;
+
+    Endpoint(long defaultTtl) {
+      this.defaultTtl = defaultTtl;
+    }
+  }
+
+  /** Endpoints whose responses go stale once listen state changes on the server. */
+  private static final EnumSet<Endpoint> LISTEN_STATE =
+      EnumSet.of(Endpoint.CHILDREN, Endpoint.IN_PROGRESS, Endpoint.POPULAR);
 
   private final Api api;
+  private final AndroidClock clock;
+  private final ResponseCache cache;
+  private final Map<Endpoint, Long> ttls = new EnumMap<>(Endpoint.class);
+  private final Map<HttpUrl, Observable<MediaContainer>> inFlight = new HashMap<>();
+  private final AtomicLong coalesced = new AtomicLong();
+  private final AtomicLong requested = new AtomicLong();
+  private final AtomicLong cacheHits = new AtomicLong();
 
   MediaService(Api api) {
+    this(api, AndroidClock.DEFAULT, CACHE_BYTES);
+  }
+
+  MediaService(Api api, AndroidClock clock, long cacheBytes) {
     this.api = api;
+    this.clock = clock;
+    this.cache = new ResponseCache(cacheBytes);
+    for (Endpoint endpoint : Endpoint.values()) {
+      ttls.put(endpoint, endpoint.defaultTtl);
+    }
+  }
+
+  /** Sets how long responses of an endpoint are served from memory, zero disables caching. */
+  public void setTtl(@NonNull Endpoint endpoint, long ttl, @NonNull TimeUnit unit) {
+    synchronized (ttls) {
+      ttls.put(endpoint, unit.toMillis(ttl));
+    }
+  }
+
+  /** Drops cached responses of the given endpoints. */
+  public void invalidate(@NonNull Endpoint first, @NonNull Endpoint... rest) {
+    cache.invalidate(EnumSet.of(first, rest));
+  }
+
+  /** Drops every cached response. */
+  public void invalidateAll() {
+    cache.invalidate(EnumSet.allOf(Endpoint.class));
+  }
+
+  /** Number of GET requests answered from the response cache. */
+  public long cacheHitCount() {
+    return cacheHits.get();
+  }
+
+  /** Number of GET requests that joined an identical request already in flight. */
+  public long coalescedCount() {
+    return coalesced.get();
+  }
+
+  /** Number of GET requests that went to the network. */
+  public long requestCount() {
+    return requested.get();
   }
 
   public Observable<MediaContainer> sections(HttpUrl url) {
-    return api.get(url.newBuilder()
+    return get(Endpoint.SECTIONS, url.newBuilder()
         .addPathSegments("library/sections")
         .build());
   }
 
+  public Observable<MediaContainer> identity(HttpUrl url) {
+    return get(Endpoint.IDENTITY, url.newBuilder()
+        .addPathSegment("identity")
+        .build());
+  }
+
   public Observable<MediaContainer> albums(HttpUrl url, String artistKey) {
-    return api.get(url.newBuilder()
+    return get(Endpoint.CHILDREN, url.newBuilder()
         .addPathSegments("library/metadata")
         .addPathSegment(artistKey)
         .addPathSegment("children")
@@ -53,7 +140,7 @@ public class MediaService {
   }
 
   public Observable<MediaContainer> tracks(HttpUrl url, String albumKey) {
-    return api.get(url.newBuilder()
+    return get(Endpoint.CHILDREN, url.newBuilder()
         .addPathSegments("library/metadata")
         .addPathSegment(albumKey)
         .addPathSegment("children")
@@ -61,7 +148,7 @@ public class MediaService {
   }
 
   public Observable<MediaContainer> popularTracks(HttpUrl url, String libKey, String artistKey) {
-    return api.get(url.newBuilder()
+    return get(Endpoint.POPULAR, url.newBuilder()
         .addPathSegments("library/sections")
         .addPathSegment(libKey)
         .addPathSegment("all")
@@ -77,7 +164,7 @@ public class MediaService {
       if (pageSize != null) {
           query += "&X-Plex-Container-Size=" + pageSize;
       }
-    return api.get(url.newBuilder()
+    return get(Endpoint.BROWSE, url.newBuilder()
         .addPathSegments("library/sections")
         .addPathSegment(libKey)
         .addPathSegment("all")
@@ -88,30 +175,37 @@ public class MediaService {
         .build());
   }
 
-    public Observable<MediaContainer> chaptersInProgress(HttpUrl url, String libKey) {
-    return api.get(url.newBuilder()
+  /** The {@code size} chapters updated most recently, newest first. */
+  public Observable<MediaContainer> chaptersInProgress(HttpUrl url, String libKey, int size) {
+    return get(Endpoint.IN_PROGRESS, url.newBuilder()
         .addPathSegments("library/sections")
         .addPathSegment(libKey)
-            .addPathSegment("search")
-            .query("viewOffset>=10&type=10&sort=updatedAt:asc")
-            .addQueryParameter(TOKEN, url.queryParameter(TOKEN))
-            .build());
-    }
+        .addPathSegment("search")
+        .query("viewOffset>=10&type=10&sort=updatedAt:desc")
+        .addQueryParameter("X-Plex-Container-Start", "0")
+        .addQueryParameter("X-Plex-Container-Size", String.valueOf(size))
+        .addQueryParameter(TOKEN, url.queryParameter(TOKEN))
+        .build());
+  }
 
-    public Observable<MediaContainer> booksRecentlyListendTo(HttpUrl url, String libKey) {
-      long previousDate = new Date(System.currentTimeMillis()
-              - TimeUnit.DAYS.toMillis(14)).getTime() / 1000L;
-        return api.get(url.newBuilder()
-                .addPathSegments("library/sections")
-                .addPathSegment(libKey)
-                .addPathSegment("albums")
-                .query("viewedLeafCount!=0&lastViewedAt>=" + previousDate)
-                .addQueryParameter(TOKEN, url.queryParameter(TOKEN))
-                .build());
+  /** The {@code size} books listened to most recently in the last two weeks. */
+  public Observable<MediaContainer> booksRecentlyListendTo(HttpUrl url, String libKey, int size) {
+    // Whole minutes keep the url stable so concurrent and cached requests can be shared
+    long previousDate = TimeUnit.MILLISECONDS.toMinutes(System.currentTimeMillis()
+        - TimeUnit.DAYS.toMillis(14)) * 60L;
+    return get(Endpoint.IN_PROGRESS, url.newBuilder()
+        .addPathSegments("library/sections")
+        .addPathSegment(libKey)
+        .addPathSegment("albums")
+        .query("viewedLeafCount!=0&lastViewedAt>=" + previousDate + "&sort=lastViewedAt:desc")
+        .addQueryParameter("X-Plex-Container-Start", "0")
+        .addQueryParameter("X-Plex-Container-Size", String.valueOf(size))
+        .addQueryParameter(TOKEN, url.queryParameter(TOKEN))
+        .build());
   }
 
   public Observable<MediaContainer> firstCharacter(HttpUrl url, String libKey, String mediaKey) {
-    return api.get(url.newBuilder()
+    return get(Endpoint.FIRST_CHARACTER, url.newBuilder()
         .addPathSegments("library/sections")
         .addPathSegment(libKey)
         .addPathSegment("firstCharacter")
@@ -130,7 +224,8 @@ public class MediaService {
         .addQueryParameter("state", state)
         .addQueryParameter("duration", String.valueOf(duration))
         .addQueryParameter("time", String.valueOf(time))
-              .build());
+              .build())
+        .doOnComplete(this::onListenStateChanged);
   }
 
   public Single<MediaContainer> playQueue(HttpUrl url, String trackKey, String trackParentKey,
@@ -144,13 +239,25 @@ public class MediaService {
             .build());
   }
 
+  /** An existing play queue, fails once the server has dropped it. */
+  public Single<MediaContainer> playQueue(HttpUrl url, long playQueueId) {
+    return get(Endpoint.PLAY_QUEUE, url.newBuilder()
+        .addPathSegment("playQueues")
+        .addPathSegment(String.valueOf(playQueueId))
+        .query("own=1")
+        .addQueryParameter(TOKEN, url.queryParameter(TOKEN))
+        .build())
+        .firstOrError();
+  }
+
   public Completable scrobble(HttpUrl url, String ratingKey) {
       return api.getNoResponse(url.newBuilder()
             .addPathSegments(":/scrobble")
             .query("identifier=com.plexapp.plugins.library")
             .addQueryParameter("key", ratingKey)
             .addQueryParameter(TOKEN, url.queryParameter(TOKEN))
-              .build());
+              .build())
+        .doOnComplete(this::onListenStateChanged);
   }
 
   public Completable unScrobble(HttpUrl url, String ratingKey) {
@@ -159,7 +266,63 @@ public class MediaService {
             .query("identifier=com.plexapp.plugins.library")
             .addQueryParameter("key", ratingKey)
             .addQueryParameter(TOKEN, url.queryParameter(TOKEN))
-              .build());
+              .build())
+        .doOnComplete(this::onListenStateChanged);
+  }
+
+  private void onListenStateChanged() {
+    cache.invalidate(LISTEN_STATE);
+  }
+
+  private Observable<MediaContainer> get(Endpoint endpoint, HttpUrl url) {
+    Observable<MediaContainer> request = coalesce(url, api.get(url));
+    long ttl;
+    synchronized (ttls) {
+      ttl = ttls.get(endpoint);
+    }
+    if (ttl <= 0) {
+      return request;
+    }
+    return Observable.defer(() -> {
+      MediaContainer cached = cache.get(url, clock.elapsedRealTime());
+      if (cached != null) {
+        cacheHits.incrementAndGet();
+        return Observable.just(cached);
+      }
+      return request.doOnNext(container ->
+          cache.put(url, endpoint, container, clock.elapsedRealTime() + ttl));
+    });
+  }
+
+  /**
+   * Subscribers to the same url while a request is in flight share its response, the request is
+   * only cancelled once all of them have unsubscribed.
+   */
+  private Observable<MediaContainer> coalesce(HttpUrl url, Observable<MediaContainer> request) {
+    return Observable.defer(() -> {
+      synchronized (inFlight) {
+        Observable<MediaContainer> shared = inFlight.get(url);
+        if (shared != null) {
+          coalesced.incrementAndGet();
+          return shared;
+        }
+        requested.incrementAndGet();
+        AtomicReference<Observable<MediaContainer>> self = new AtomicReference<>();
+        shared = request
+            .doFinally(() -> {
+              synchronized (inFlight) {
+                if (inFlight.get(url) == self.get()) {
+                  inFlight.remove(url);
+                }
+              }
+            })
+            .replay(1)
+            .refCount();
+        self.set(shared);
+        inFlight.put(url, shared);
+        return shared;
+      }
+    });
   }
 
   interface Api {
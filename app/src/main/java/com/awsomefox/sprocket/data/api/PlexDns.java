@@ -0,0 +1,170 @@
+/*
+ * Copyright (C) 2020 Simon Norberg
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.awsomefox.sprocket.data.api;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.awsomefox.sprocket.AndroidClock;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.Dns;
+
+/**
+ * Resolves {@code *.plex.direct} names without a lookup, they embed the address of the server
+ * ({@code 192-168-1-5.<hash>.plex.direct}). Other hosts go to the system resolver through a
+ * small cache that also remembers failures for a short while.
+ */
+class PlexDns implements Dns {
+
+  private static final String PLEX_DIRECT = ".plex.direct";
+  private static final int MAX_ENTRIES = 64;
+  private static final long POSITIVE_TTL = TimeUnit.MINUTES.toMillis(5);
+  private static final long NEGATIVE_TTL = TimeUnit.SECONDS.toMillis(30);
+
+  private final Dns delegate;
+  private final AndroidClock clock;
+  private final Map<String, Entry> cache = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+    @Override protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+      return size() > MAX_ENTRIES;
+    }
+  };
+
+  PlexDns(Dns delegate, AndroidClock clock) {
+    this.delegate = delegate;
+    this.clock = clock;
+  }
+
+  @Override @NonNull public List<InetAddress> lookup(@NonNull String hostname)
+      throws UnknownHostException {
+    InetAddress plexDirect = decodePlexDirect(hostname);
+    if (plexDirect != null) {
+      return Collections.singletonList(plexDirect);
+    }
+
+    long now = clock.elapsedRealTime();
+    Entry entry;
+    synchronized (cache) {
+      entry = cache.get(hostname);
+    }
+    if (entry != null && now < entry.expiresAt) {
+      if (entry.addresses == null) {
+        throw new UnknownHostException(hostname + " (cached)");
+      }
+      return entry.addresses;
+    }
+
+    try {
+      List<InetAddress> addresses = delegate.lookup(hostname);
+      put(hostname, new Entry(addresses, now + POSITIVE_TTL));
+      return addresses;
+    } catch (UnknownHostException e) {
+      put(hostname, new Entry(null, now + NEGATIVE_TTL));
+      throw e;
+    }
+  }
+
+  private void put(String hostname, Entry entry) {
+    synchronized (cache) {
+      cache.put(hostname, entry);
+    }
+  }
+
+  /** Returns the address embedded in a plex.direct name, or null for any other host. */
+  @Nullable static InetAddress decodePlexDirect(String hostname) {
+    String host = hostname.toLowerCase(Locale.US);
+    if (!host.endsWith(PLEX_DIRECT)) {
+      return null;
+    }
+    int end = host.indexOf('.');
+    if (end <= 0) {
+      return null;
+    }
+    String label = host.substring(0, end);
+    try {
+      byte[] ipv4 = parseIpv4(label);
+      if (ipv4 != null) {
+        return InetAddress.getByAddress(hostname, ipv4);
+      }
+      String ipv6 = label.replace('-', ':');
+      if (isIpv6Literal(ipv6)) {
+        // A literal is parsed in place, no lookup is made
+        return InetAddress.getByAddress(hostname, InetAddress.getByName(ipv6).getAddress());
+      }
+    } catch (UnknownHostException e) {
+      return null;
+    }
+    return null;
+  }
+
+  @Nullable private static byte[] parseIpv4(String label) {
+    String[] parts = label.split("-", -1);
+    if (parts.length != 4) {
+      return null;
+    }
+    byte[] address = new byte[4];
+    for (int i = 0; i < 4; i++) {
+      String part = parts[i];
+      if (part.isEmpty() || part.length() > 3) {
+        return null;
+      }
+      int value = 0;
+      for (int j = 0; j < part.length(); j++) {
+        char c = part.charAt(j);
+        if (c < '0' || c > '9') {
+          return null;
+        }
+        value = value * 10 + (c - '0');
+      }
+      if (value > 255) {
+        return null;
+      }
+      address[i] = (byte) value;
+    }
+    return address;
+  }
+
+  private static boolean isIpv6Literal(String candidate) {
+    if (candidate.indexOf(':') < 0) {
+      return false;
+    }
+    for (int i = 0; i < candidate.length(); i++) {
+      char c = candidate.charAt(i);
+      if (c != ':' && (c < '0' || c > '9') && (c < 'a' || c > 'f')) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static final class Entry {
+    @Nullable final List<InetAddress> addresses;
+    final long expiresAt;
+
+    Entry(@Nullable List<InetAddress> addresses, long expiresAt) {
+      this.addresses = addresses;
+      this.expiresAt = expiresAt;
+    }
+  }
+}
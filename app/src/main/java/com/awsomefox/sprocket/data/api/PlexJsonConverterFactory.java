@@ -0,0 +1,71 @@
+/*
+ * Copyright (C) 2020 Simon Norberg
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.awsomefox.sprocket.data.api;
+
+import androidx.annotation.Nullable;
+
+import com.awsomefox.sprocket.data.api.model.MediaContainer;
+import com.squareup.moshi.JsonReader;
+
+import java.io.IOException;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.MediaType;
+import okhttp3.ResponseBody;
+import retrofit2.Converter;
+import retrofit2.Retrofit;
+import timber.log.Timber;
+
+/**
+ * Decodes JSON {@link MediaContainer} responses with {@link PlexJsonReader} and hands any other
+ * response to the next converter. Decode time and payload size are logged for both formats.
+ */
+final class PlexJsonConverterFactory extends Converter.Factory {
+
+  static PlexJsonConverterFactory create() {
+    return new PlexJsonConverterFactory();
+  }
+
+  private PlexJsonConverterFactory() {
+  }
+
+  @Nullable @Override
+  public Converter<ResponseBody, ?> responseBodyConverter(Type type, Annotation[] annotations,
+                                                          Retrofit retrofit) {
+    if (type != MediaContainer.class) {
+      return null;
+    }
+    Converter<ResponseBody, ?> next = retrofit.nextResponseBodyConverter(this, type, annotations);
+    return body -> {
+      long start = System.nanoTime();
+      long size = body.contentLength();
+      MediaType contentType = body.contentType();
+      boolean json = contentType != null && WireFormat.JSON.equals(contentType.subtype());
+      Object container = json ? readJson(body) : next.convert(body);
+      Timber.d("Decoded %s in %d ms (%d bytes)", json ? WireFormat.JSON : WireFormat.XML,
+          TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), size);
+      return container;
+    };
+  }
+
+  private static MediaContainer readJson(ResponseBody body) throws IOException {
+    try (ResponseBody ignored = body; JsonReader reader = JsonReader.of(body.source())) {
+      return PlexJsonReader.readMediaContainer(reader);
+    }
+  }
+}
@@ -0,0 +1,278 @@
+/*
+ * Copyright (C) 2020 Simon Norberg
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.awsomefox.sprocket.data.api;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.awsomefox.sprocket.data.api.model.Directory;
+import com.awsomefox.sprocket.data.api.model.MediaContainer;
+import com.awsomefox.sprocket.data.api.model.Song;
+import com.squareup.moshi.JsonReader;
+
+import java.io.IOException;
+import java.util.ArrayList;
+
+/**
+ * Streams a Plex JSON {@code MediaContainer} into the same models as the XML path. Library items
+ * are all listed under {@code Metadata} in JSON, tracks are told apart by their type.
+ */
+final class PlexJsonReader {
+
+  private static final JsonReader.Options ROOT = JsonReader.Options.of("MediaContainer");
+  private static final JsonReader.Options CONTAINER = JsonReader.Options.of(
+      "playQueueSelectedItemID", "Directory", "Metadata", "playQueueID");
+  private static final JsonReader.Options ITEM = JsonReader.Options.of(
+      "title", "key", "uuid", "parentTitle", "art", "ratingKey", "type", "thumb", "size",
+      "parentKey", "grandparentTitle", "playQueueItemID", "index", "duration", "viewOffset",
+      "viewCount", "Media");
+  private static final JsonReader.Options PART = JsonReader.Options.of("Part");
+  private static final JsonReader.Options PART_KEY = JsonReader.Options.of("key");
+
+  private PlexJsonReader() {
+    // no instances
+  }
+
+  @NonNull static MediaContainer readMediaContainer(@NonNull JsonReader reader)
+      throws IOException {
+    MediaContainer container = new MediaContainer();
+    reader.beginObject();
+    while (reader.hasNext()) {
+      if (reader.selectName(ROOT) == 0) {
+        readContainer(reader, container);
+      } else {
+        reader.skipName();
+        reader.skipValue();
+      }
+    }
+    reader.endObject();
+    return container;
+  }
+
+  private static void readContainer(JsonReader reader, MediaContainer container)
+      throws IOException {
+    reader.beginObject();
+    while (reader.hasNext()) {
+      switch (reader.selectName(CONTAINER)) {
+        case 0:
+          container.playQueueSelectedItemID = nextLong(reader);
+          break;
+        case 1:
+        case 2:
+          reader.beginArray();
+          while (reader.hasNext()) {
+            readItem(reader).addTo(container);
+          }
+          reader.endArray();
+          break;
+        case 3:
+          container.playQueueID = nextLong(reader);
+          break;
+        default:
+          reader.skipName();
+          reader.skipValue();
+      }
+    }
+    reader.endObject();
+  }
+
+  private static Item readItem(JsonReader reader) throws IOException {
+    Item item = new Item();
+    reader.beginObject();
+    while (reader.hasNext()) {
+      switch (reader.selectName(ITEM)) {
+        case 0:
+          item.title = nextString(reader);
+          break;
+        case 1:
+          item.key = nextString(reader);
+          break;
+        case 2:
+          item.uuid = nextString(reader);
+          break;
+        case 3:
+          item.parentTitle = nextString(reader);
+          break;
+        case 4:
+          item.art = nextString(reader);
+          break;
+        case 5:
+          item.ratingKey = nextString(reader);
+          break;
+        case 6:
+          item.type = nextString(reader);
+          break;
+        case 7:
+          item.thumb = nextString(reader);
+          break;
+        case 8:
+          item.size = (int) nextLong(reader, 0);
+          break;
+        case 9:
+          item.parentKey = nextString(reader);
+          break;
+        case 10:
+          item.grandparentTitle = nextString(reader);
+          break;
+        case 11:
+          item.playQueueItemID = nextLong(reader);
+          break;
+        case 12:
+          item.index = (int) nextLong(reader, 0);
+          break;
+        case 13:
+          item.duration = nextLong(reader, 0);
+          break;
+        case 14:
+          item.viewOffset = nextLong(reader, 0);
+          break;
+        case 15:
+          item.viewCount = nextLong(reader, 0);
+          break;
+        case 16:
+          item.partKey = readPartKey(reader);
+          break;
+        default:
+          reader.skipName();
+          reader.skipValue();
+      }
+    }
+    reader.endObject();
+    return item;
+  }
+
+  /** Returns the key of the first part of the first media, skipping any others. */
+  @Nullable private static String readPartKey(JsonReader reader) throws IOException {
+    String partKey = null;
+    reader.beginArray();
+    while (reader.hasNext()) {
+      reader.beginObject();
+      while (reader.hasNext()) {
+        if (reader.selectName(PART) == 0) {
+          reader.beginArray();
+          while (reader.hasNext()) {
+            reader.beginObject();
+            while (reader.hasNext()) {
+              if (partKey == null && reader.selectName(PART_KEY) == 0) {
+                partKey = nextString(reader);
+              } else {
+                reader.skipName();
+                reader.skipValue();
+              }
+            }
+            reader.endObject();
+          }
+          reader.endArray();
+        } else {
+          reader.skipName();
+          reader.skipValue();
+        }
+      }
+      reader.endObject();
+    }
+    reader.endArray();
+    return partKey;
+  }
+
+  @Nullable private static String nextString(JsonReader reader) throws IOException {
+    if (reader.peek() == JsonReader.Token.NULL) {
+      return reader.nextNull();
+    }
+    return reader.nextString();
+  }
+
+  @Nullable private static Long nextLong(JsonReader reader) throws IOException {
+    if (reader.peek() == JsonReader.Token.NULL) {
+      return reader.nextNull();
+    }
+    return reader.nextLong();
+  }
+
+  private static long nextLong(JsonReader reader, long defaultValue) throws IOException {
+    Long value = nextLong(reader);
+    return value != null ? value : defaultValue;
+  }
+
+  private static final class Item {
+    String title;
+    String key;
+    String uuid;
+    String parentTitle;
+    String art;
+    String ratingKey;
+    String type;
+    String thumb;
+    int size;
+    String parentKey;
+    String grandparentTitle;
+    Long playQueueItemID;
+    int index;
+    long duration;
+    long viewOffset;
+    long viewCount;
+    String partKey;
+
+    void addTo(MediaContainer container) {
+      if ("track".equals(type)) {
+        if (container.tracks == null) {
+          container.tracks = new ArrayList<>();
+        }
+        container.tracks.add(toSong());
+      } else {
+        if (container.directories == null) {
+          container.directories = new ArrayList<>();
+        }
+        container.directories.add(toDirectory());
+      }
+    }
+
+    private Song toSong() {
+      Song song = new Song();
+      song.key = key;
+      song.ratingKey = ratingKey;
+      song.parentKey = parentKey;
+      song.title = title;
+      song.parentTitle = parentTitle;
+      song.grandparentTitle = grandparentTitle;
+      song.playQueueItemID = playQueueItemID;
+      song.thumb = thumb;
+      song.index = index;
+      song.duration = duration;
+      song.viewOffset = viewOffset;
+      song.viewCount = viewCount;
+      song.media = new Song.Media();
+      if (partKey != null) {
+        song.media.part = new Song.Part();
+        song.media.part.key = partKey;
+      }
+      return song;
+    }
+
+    private Directory toDirectory() {
+      Directory dir = new Directory();
+      dir.title = title;
+      dir.key = key;
+      dir.uuid = uuid;
+      dir.parentTitle = parentTitle;
+      dir.art = art;
+      dir.ratingKey = ratingKey;
+      dir.type = type;
+      dir.thumb = thumb;
+      dir.size = size;
+      return dir;
+    }
+  }
+}
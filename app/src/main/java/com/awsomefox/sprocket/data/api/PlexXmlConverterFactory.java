@@ -0,0 +1,77 @@
+/*
+ * Copyright (C) 2020 Simon Norberg
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.awsomefox.sprocket.data.api;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.awsomefox.sprocket.data.api.model.MediaContainer;
+import com.awsomefox.sprocket.data.api.model.User;
+
+import org.xmlpull.v1.XmlPullParser;
+import org.xmlpull.v1.XmlPullParserException;
+import org.xmlpull.v1.XmlPullParserFactory;
+
+import java.io.IOException;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+
+import okhttp3.ResponseBody;
+import retrofit2.Converter;
+import retrofit2.Retrofit;
+
+/**
+ * Decodes {@link MediaContainer} and {@link User} responses with {@link PlexXmlParser}. Add it
+ * before a general purpose XML converter, any other type is left to the next factory.
+ */
+final class PlexXmlConverterFactory extends Converter.Factory {
+
+  private final XmlPullParserFactory parserFactory;
+
+  private PlexXmlConverterFactory(XmlPullParserFactory parserFactory) {
+    this.parserFactory = parserFactory;
+  }
+
+  static PlexXmlConverterFactory create(@NonNull XmlPullParserFactory parserFactory) {
+    return new PlexXmlConverterFactory(parserFactory);
+  }
+
+  @Nullable @Override
+  public Converter<ResponseBody, ?> responseBodyConverter(Type type, Annotation[] annotations,
+                                                          Retrofit retrofit) {
+    if (type == MediaContainer.class) {
+      return body -> parse(body, PlexXmlParser::parseMediaContainer);
+    }
+    if (type == User.class) {
+      return body -> parse(body, PlexXmlParser::parseUser);
+    }
+    return null;
+  }
+
+  private <T> T parse(ResponseBody body, Reader<T> reader) throws IOException {
+    try (ResponseBody ignored = body) {
+      XmlPullParser parser = parserFactory.newPullParser();
+      parser.setInput(body.charStream());
+      return reader.read(parser);
+    } catch (XmlPullParserException e) {
+      throw new IOException(e);
+    }
+  }
+
+  private interface Reader<T> {
+    T read(XmlPullParser parser) throws XmlPullParserException, IOException;
+  }
+}
@@ -0,0 +1,260 @@
+/*
+ * Copyright (C) 2020 Simon Norberg
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.awsomefox.sprocket.data.api;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.awsomefox.sprocket.data.api.model.Device;
+import com.awsomefox.sprocket.data.api.model.Directory;
+import com.awsomefox.sprocket.data.api.model.MediaContainer;
+import com.awsomefox.sprocket.data.api.model.Song;
+import com.awsomefox.sprocket.data.api.model.User;
+
+import org.xmlpull.v1.XmlPullParser;
+import org.xmlpull.v1.XmlPullParserException;
+
+import java.io.IOException;
+import java.util.ArrayList;
+
+import static org.xmlpull.v1.XmlPullParser.END_DOCUMENT;
+import static org.xmlpull.v1.XmlPullParser.END_TAG;
+import static org.xmlpull.v1.XmlPullParser.START_TAG;
+import static org.xmlpull.v1.XmlPullParser.TEXT;
+
+/**
+ * Decodes Plex XML responses in a single pass over the attributes, without the reflection and
+ * intermediate node tree that SimpleXML needs. Unknown elements are skipped.
+ */
+final class PlexXmlParser {
+
+  private PlexXmlParser() {
+    // no instances
+  }
+
+  @NonNull static MediaContainer parseMediaContainer(@NonNull XmlPullParser parser)
+      throws XmlPullParserException, IOException {
+    MediaContainer container = new MediaContainer();
+    moveToRoot(parser);
+    container.playQueueID = longAttribute(parser, "playQueueID");
+    container.playQueueSelectedItemID = longAttribute(parser, "playQueueSelectedItemID");
+
+    int depth = parser.getDepth();
+    while (nextChild(parser, depth)) {
+      switch (parser.getName()) {
+        case "Directory":
+          if (container.directories == null) {
+            container.directories = new ArrayList<>();
+          }
+          container.directories.add(readDirectory(parser));
+          break;
+        case "Track":
+          if (container.tracks == null) {
+            container.tracks = new ArrayList<>();
+          }
+          container.tracks.add(readSong(parser));
+          break;
+        case "Device":
+          if (container.devices == null) {
+            container.devices = new ArrayList<>();
+          }
+          container.devices.add(readDevice(parser));
+          break;
+        default:
+          skip(parser);
+      }
+    }
+    return container;
+  }
+
+  @NonNull static User parseUser(@NonNull XmlPullParser parser)
+      throws XmlPullParserException, IOException {
+    User user = new User();
+    moveToRoot(parser);
+    user.authenticationToken = parser.getAttributeValue(null, "authenticationToken");
+
+    int depth = parser.getDepth();
+    while (nextChild(parser, depth)) {
+      if ("authentication-token".equals(parser.getName())) {
+        user.authenticationToken = readText(parser);
+      } else {
+        skip(parser);
+      }
+    }
+    return user;
+  }
+
+  private static Directory readDirectory(XmlPullParser parser)
+      throws XmlPullParserException, IOException {
+    Directory dir = new Directory();
+    dir.title = parser.getAttributeValue(null, "title");
+    dir.key = parser.getAttributeValue(null, "key");
+    dir.uuid = parser.getAttributeValue(null, "uuid");
+    dir.parentTitle = parser.getAttributeValue(null, "parentTitle");
+    dir.art = parser.getAttributeValue(null, "art");
+    dir.ratingKey = parser.getAttributeValue(null, "ratingKey");
+    dir.type = parser.getAttributeValue(null, "type");
+    dir.thumb = parser.getAttributeValue(null, "thumb");
+    dir.size = intAttribute(parser, "size");
+    skip(parser);
+    return dir;
+  }
+
+  private static Song readSong(XmlPullParser parser) throws XmlPullParserException, IOException {
+    Song song = new Song();
+    song.key = parser.getAttributeValue(null, "key");
+    song.ratingKey = parser.getAttributeValue(null, "ratingKey");
+    song.parentKey = parser.getAttributeValue(null, "parentKey");
+    song.title = parser.getAttributeValue(null, "title");
+    song.parentTitle = parser.getAttributeValue(null, "parentTitle");
+    song.grandparentTitle = parser.getAttributeValue(null, "grandparentTitle");
+    song.playQueueItemID = longAttribute(parser, "playQueueItemID");
+    song.thumb = parser.getAttributeValue(null, "thumb");
+    song.index = intAttribute(parser, "index");
+    song.duration = longAttribute(parser, "duration", 0L);
+    song.viewOffset = longAttribute(parser, "viewOffset", 0L);
+    song.viewCount = longAttribute(parser, "viewCount", 0L);
+
+    int depth = parser.getDepth();
+    while (nextChild(parser, depth)) {
+      if (song.media == null && "Media".equals(parser.getName())) {
+        song.media = readMedia(parser);
+      } else {
+        skip(parser);
+      }
+    }
+    return song;
+  }
+
+  private static Song.Media readMedia(XmlPullParser parser)
+      throws XmlPullParserException, IOException {
+    Song.Media media = new Song.Media();
+    int depth = parser.getDepth();
+    while (nextChild(parser, depth)) {
+      if (media.part == null && "Part".equals(parser.getName())) {
+        media.part = new Song.Part();
+        media.part.key = parser.getAttributeValue(null, "key");
+      }
+      skip(parser);
+    }
+    return media;
+  }
+
+  private static Device readDevice(XmlPullParser parser)
+      throws XmlPullParserException, IOException {
+    Device device = new Device();
+    device.provides = parser.getAttributeValue(null, "provides");
+    device.accessToken = parser.getAttributeValue(null, "accessToken");
+    device.clientIdentifier = parser.getAttributeValue(null, "clientIdentifier");
+    device.connections = new ArrayList<>();
+
+    int depth = parser.getDepth();
+    while (nextChild(parser, depth)) {
+      if ("Connection".equals(parser.getName())) {
+        Device.Connection connection = new Device.Connection();
+        connection.uri = parser.getAttributeValue(null, "uri");
+        connection.local = intAttribute(parser, "local");
+        device.connections.add(connection);
+      }
+      skip(parser);
+    }
+    if (device.provides == null) {
+      device.provides = "";
+    }
+    return device;
+  }
+
+  private static void moveToRoot(XmlPullParser parser) throws XmlPullParserException, IOException {
+    int event = parser.getEventType();
+    while (event != START_TAG && event != END_DOCUMENT) {
+      event = parser.next();
+    }
+    if (event != START_TAG) {
+      throw new XmlPullParserException("Empty document", parser, null);
+    }
+  }
+
+  /**
+   * Advances to the next direct child of the element at {@code depth}. Returns false once the
+   * end tag of that element has been reached.
+   */
+  private static boolean nextChild(XmlPullParser parser, int depth)
+      throws XmlPullParserException, IOException {
+    while (true) {
+      int event = parser.next();
+      if (event == END_DOCUMENT || (event == END_TAG && parser.getDepth() == depth)) {
+        return false;
+      }
+      if (event == START_TAG && parser.getDepth() == depth + 1) {
+        return true;
+      }
+    }
+  }
+
+  /** Skips the current element and all of its children, leaving the parser on its end tag. */
+  private static void skip(XmlPullParser parser) throws XmlPullParserException, IOException {
+    int depth = parser.getDepth();
+    while (true) {
+      int event = parser.next();
+      if (event == END_DOCUMENT || (event == END_TAG && parser.getDepth() == depth)) {
+        return;
+      }
+    }
+  }
+
+  private static String readText(XmlPullParser parser)
+      throws XmlPullParserException, IOException {
+    StringBuilder text = new StringBuilder();
+    int depth = parser.getDepth();
+    while (true) {
+      int event = parser.next();
+      if (event == TEXT) {
+        text.append(parser.getText());
+      } else if (event == END_DOCUMENT || (event == END_TAG && parser.getDepth() == depth)) {
+        return text.toString().trim();
+      }
+    }
+  }
+
+  private static int intAttribute(XmlPullParser parser, String name) {
+    String value = parser.getAttributeValue(null, name);
+    if (value == null) {
+      return 0;
+    }
+    try {
+      return Integer.parseInt(value);
+    } catch (NumberFormatException e) {
+      return 0;
+    }
+  }
+
+  private static long longAttribute(XmlPullParser parser, String name, long defaultValue) {
+    Long value = longAttribute(parser, name);
+    return value != null ? value : defaultValue;
+  }
+
+  @Nullable private static Long longAttribute(XmlPullParser parser, String name) {
+    String value = parser.getAttributeValue(null, name);
+    if (value == null) {
+      return null;
+    }
+    try {
+      return Long.parseLong(value);
+    } catch (NumberFormatException e) {
+      return null;
+    }
+  }
+}
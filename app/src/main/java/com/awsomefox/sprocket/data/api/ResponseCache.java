@@ -0,0 +1,134 @@
+/*
+ * Copyright (C) 2020 Simon Norberg
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.awsomefox.sprocket.data.api;
+
+import androidx.annotation.Nullable;
+
+import com.awsomefox.sprocket.data.api.model.Directory;
+import com.awsomefox.sprocket.data.api.model.MediaContainer;
+import com.awsomefox.sprocket.data.api.model.Song;
+
+import java.util.EnumSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import okhttp3.HttpUrl;
+
+/**
+ * In-memory LRU of decoded responses, bounded by their estimated size in bytes rather than by
+ * the number of entries so one huge section listing can not pin the heap.
+ */
+final class ResponseCache {
+
+  private final Map<HttpUrl, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+  private final long maxBytes;
+  private long bytes;
+
+  ResponseCache(long maxBytes) {
+    this.maxBytes = maxBytes;
+  }
+
+  @Nullable synchronized MediaContainer get(HttpUrl url, long now) {
+    Entry entry = entries.get(url);
+    if (entry == null) {
+      return null;
+    }
+    if (now >= entry.expiresAt) {
+      remove(url);
+      return null;
+    }
+    return entry.container;
+  }
+
+  synchronized void put(HttpUrl url, MediaService.Endpoint endpoint, MediaContainer container,
+                        long expiresAt) {
+    long size = estimateSize(url, container);
+    remove(url);
+    if (size > maxBytes) {
+      return;
+    }
+    entries.put(url, new Entry(endpoint, container, size, expiresAt));
+    bytes += size;
+    Iterator<Entry> iterator = entries.values().iterator();
+    while (bytes > maxBytes && iterator.hasNext()) {
+      bytes -= iterator.next().size;
+      iterator.remove();
+    }
+  }
+
+  synchronized void invalidate(EnumSet<MediaService.Endpoint> endpoints) {
+    Iterator<Entry> iterator = entries.values().iterator();
+    while (iterator.hasNext()) {
+      Entry entry = iterator.next();
+      if (endpoints.contains(entry.endpoint)) {
+        bytes -= entry.size;
+        iterator.remove();
+      }
+    }
+  }
+
+  synchronized long size() {
+    return bytes;
+  }
+
+  private void remove(HttpUrl url) {
+    Entry removed = entries.remove(url);
+    if (removed != null) {
+      bytes -= removed.size;
+    }
+  }
+
+  /** Rough heap footprint, strings are counted at two bytes per char plus object overhead. */
+  static long estimateSize(HttpUrl url, MediaContainer container) {
+    long size = 64 + chars(url.toString());
+    if (container.directories != null) {
+      for (Directory dir : container.directories) {
+        size += 64 + chars(dir.title) + chars(dir.key) + chars(dir.uuid) + chars(dir.parentTitle)
+            + chars(dir.art) + chars(dir.ratingKey) + chars(dir.type) + chars(dir.thumb);
+      }
+    }
+    if (container.tracks != null) {
+      for (Song song : container.tracks) {
+        size += 128 + chars(song.key) + chars(song.ratingKey) + chars(song.parentKey)
+            + chars(song.title) + chars(song.parentTitle) + chars(song.grandparentTitle)
+            + chars(song.thumb);
+        if (song.media != null && song.media.part != null) {
+          size += chars(song.media.part.key);
+        }
+      }
+    }
+    return size;
+  }
+
+  private static long chars(@Nullable String value) {
+    return value == null ? 0 : 40 + 2L * value.length();
+  }
+
+  private static final class Entry {
+    final MediaService.Endpoint endpoint;
+    final MediaContainer container;
+    final long size;
+    final long expiresAt;
+
+    Entry(MediaService.Endpoint endpoint, MediaContainer container, long size, long expiresAt) {
+      this.endpoint = endpoint;
+      this.container = container;
+      this.size = size;
+      this.expiresAt = expiresAt;
+    }
+  }
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright (C) 2020 Simon Norberg
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.awsomefox.sprocket.data.api;
+
+import androidx.annotation.NonNull;
+
+import com.awsomefox.sprocket.data.Prefs;
+
+import java.io.IOException;
+
+import okhttp3.Interceptor;
+import okhttp3.Request;
+import okhttp3.Response;
+
+/**
+ * Selects whether media servers are asked for XML or JSON. The response converter follows the
+ * content type of each response, so the format can be switched at runtime.
+ */
+public final class WireFormat implements Interceptor {
+
+  public static final String XML = "xml";
+  public static final String JSON = "json";
+
+  private static final String PREF_WIRE_FORMAT = "pref_wire_format";
+
+  private final Prefs prefs;
+  private volatile boolean json;
+
+  WireFormat(Prefs prefs) {
+    this.prefs = prefs;
+    this.json = JSON.equals(prefs.getString(PREF_WIRE_FORMAT, XML));
+  }
+
+  @NonNull public String get() {
+    return json ? JSON : XML;
+  }
+
+  public void set(@NonNull String format) {
+    json = JSON.equals(format);
+    prefs.putString(PREF_WIRE_FORMAT, get());
+  }
+
+  @Override @NonNull public Response intercept(@NonNull Chain chain) throws IOException {
+    Request request = chain.request();
+    if (!json) {
+      return chain.proceed(request);
+    }
+    return chain.proceed(request.newBuilder()
+        .header("Accept", "application/json")
+        .build());
+  }
+}
@@ -25,6 +25,7 @@ import java.util.List;
 public final class Device {
   @Attribute public String provides;
   @Attribute(required = false) public String accessToken;
+  @Attribute(required = false) public String clientIdentifier;
   @ElementList(inline = true) public List<Connection> connections;
 
   @Root(strict = false)
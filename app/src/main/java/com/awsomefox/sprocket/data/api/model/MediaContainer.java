@@ -23,6 +23,7 @@ import java.util.List;
 
 @Root(strict = false)
 public final class MediaContainer {
+  @Attribute(required = false) public Long playQueueID;
   @Attribute(required = false) public Long playQueueSelectedItemID;
   @ElementList(inline = true, required = false) public List<Directory> directories;
   @ElementList(inline = true, required = false) public List<Song> tracks;
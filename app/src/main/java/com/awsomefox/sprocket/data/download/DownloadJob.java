@@ -0,0 +1,86 @@
+/*
+ * Copyright (C) 2020 Simon Norberg
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.awsomefox.sprocket.data.download;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.awsomefox.sprocket.util.Urls;
+
+import java.util.List;
+
+import okhttp3.HttpUrl;
+
+/** A single chapter part to download, as persisted in the {@link DownloadStore}. */
+public final class DownloadJob {
+  /** Token independent key of the part, see {@link com.awsomefox.sprocket.util.CacheKeys}. */
+  @NonNull public final String key;
+  /** Rating key of the book the part belongs to. */
+  @NonNull public final String bookKey;
+  /** Library of the book, which names the server the part is fetched from. */
+  @NonNull public final String libraryId;
+  /**
+   * Path of the part on the server. The url is built from the current connection when the part
+   * is fetched, since addresses and tokens change while jobs wait.
+   */
+  @NonNull public final String partKey;
+  @NonNull public final String fileName;
+  public final long downloadedBytes;
+  /** Size of the part, or -1 while unknown. */
+  public final long totalBytes;
+  public final boolean done;
+  /** Downloaded ahead of time rather than asked for, so it may be evicted once listened to. */
+  public final boolean auto;
+
+  public DownloadJob(@NonNull String key, @NonNull String bookKey, @NonNull String libraryId,
+                     @NonNull String partKey, @NonNull String fileName, long downloadedBytes,
+                     long totalBytes, boolean done, boolean auto) {
+    this.key = key;
+    this.bookKey = bookKey;
+    this.libraryId = libraryId;
+    this.partKey = partKey;
+    this.fileName = fileName;
+    this.downloadedBytes = downloadedBytes;
+    this.totalBytes = totalBytes;
+    this.done = done;
+    this.auto = auto;
+  }
+
+  /** Url of the part on the server behind {@code connection}. */
+  @NonNull HttpUrl url(@NonNull HttpUrl connection) {
+    return Urls.addPathToUrl(connection, partKey);
+  }
+
+  /** The part key that {@link Urls#addPathToUrl} added to {@code connection} for {@code source}. */
+  @Nullable static String partKey(@NonNull HttpUrl connection, @Nullable String source) {
+    HttpUrl url = source == null ? null : HttpUrl.parse(source);
+    if (url == null) {
+      return null;
+    }
+    List<String> segments = url.pathSegments();
+    int start = 0;
+    for (String segment : connection.pathSegments()) {
+      if (!segment.isEmpty()) {
+        start++;
+      }
+    }
+    StringBuilder partKey = new StringBuilder();
+    for (String segment : segments.subList(Math.min(start, segments.size()), segments.size())) {
+      partKey.append('/').append(segment);
+    }
+    return partKey.toString();
+  }
+}
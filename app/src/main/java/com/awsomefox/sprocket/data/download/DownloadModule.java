@@ -0,0 +1,63 @@
+/*
+ * Copyright (C) 2020 Simon Norberg
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.awsomefox.sprocket.data.download;
+
+import android.content.Context;
+
+import com.awsomefox.sprocket.AndroidClock;
+import com.awsomefox.sprocket.data.Prefs;
+import com.awsomefox.sprocket.data.ServerManager;
+import com.awsomefox.sprocket.data.repository.MusicRepository;
+import com.awsomefox.sprocket.data.storage.Evictable;
+import com.awsomefox.sprocket.data.storage.StorageBudget;
+
+import java.io.File;
+
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import dagger.Module;
+import dagger.Provides;
+import dagger.multibindings.IntoSet;
+import okhttp3.OkHttpClient;
+
+@Module
+public class DownloadModule {
+  @Provides @Singleton DownloadStore provideDownloadStore(Context context) {
+    return new SqliteDownloadStore(context);
+  }
+
+  @Provides @Singleton Downloader provideDownloader(Context context, DownloadStore store,
+                                                    MusicRepository repository,
+                                                    ServerManager serverManager,
+                                                    @Named("default") OkHttpClient client,
+                                                    Prefs prefs) {
+    return new Downloader(new File(context.getFilesDir(), "downloads"), store, repository,
+        serverManager, client, new Throttle(AndroidClock.DEFAULT, 0), prefs);
+  }
+
+  @Provides @IntoSet Evictable provideDownloadStorage(Downloader downloader) {
+    return downloader;
+  }
+
+  @Provides @Singleton Prefetcher providePrefetcher(Context context, ServerManager serverManager,
+                                                    MusicRepository repository,
+                                                    Downloader downloader,
+                                                    StorageBudget storageBudget, Prefs prefs) {
+    return new Prefetcher(context, serverManager, repository, downloader, storageBudget,
+        prefs);
+  }
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright (C) 2020 Simon Norberg
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.awsomefox.sprocket.data.download;
+
+import androidx.annotation.NonNull;
+
+import java.util.List;
+
+/** How far the download of a book has come, counted over the parts that are queued for it. */
+public final class DownloadProgress {
+
+  /** Parts of the book that are queued or downloaded. */
+  public final int parts;
+  /** Parts that were asked for rather than downloaded ahead of time. */
+  public final int pinned;
+  public final int downloaded;
+  /** Downloaded share of the queued parts, from 0 to 1. */
+  public final float fraction;
+
+  DownloadProgress(int parts, int pinned, int downloaded, float fraction) {
+    this.parts = parts;
+    this.pinned = pinned;
+    this.downloaded = downloaded;
+    this.fraction = fraction;
+  }
+
+  /** Sums up {@code jobs}, which all belong to the same book. */
+  @NonNull static DownloadProgress of(@NonNull List<DownloadJob> jobs) {
+    int pinned = 0;
+    int downloaded = 0;
+    float done = 0;
+    for (DownloadJob job : jobs) {
+      if (!job.auto) {
+        pinned++;
+      }
+      if (job.done) {
+        downloaded++;
+        done += 1;
+      } else if (job.totalBytes > 0) {
+        done += Math.min(1f, (float) job.downloadedBytes / job.totalBytes);
+      }
+    }
+    return new DownloadProgress(jobs.size(), pinned, downloaded,
+        jobs.isEmpty() ? 0 : done / jobs.size());
+  }
+
+  public boolean isComplete() {
+    return parts > 0 && downloaded == parts;
+  }
+}
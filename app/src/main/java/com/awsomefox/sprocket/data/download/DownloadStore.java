@@ -0,0 +1,44 @@
+/*
+ * Copyright (C) 2020 Simon Norberg
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.awsomefox.sprocket.data.download;
+
+import androidx.annotation.NonNull;
+
+import java.util.List;
+
+/**
+ * Persisted download queue. Jobs stay here until they are removed, so unfinished downloads can
+ * be picked up again after the process dies. All methods block and must be called off the main
+ * thread.
+ */
+public interface DownloadStore {
+
+  @NonNull List<DownloadJob> all();
+
+  /**
+   * Adds {@code job} unless a job with the same key is already queued or done. Adding a job that
+   * is not {@link DownloadJob#auto} keeps an existing automatic job from being evicted.
+   */
+  void add(@NonNull DownloadJob job);
+
+  void updateProgress(@NonNull String key, long downloadedBytes, long totalBytes);
+
+  void markDone(@NonNull String key, long totalBytes);
+
+  void remove(@NonNull String key);
+
+  void clear();
+}
@@ -0,0 +1,427 @@
+/*
+ * Copyright (C) 2020 Simon Norberg
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.awsomefox.sprocket.data.download;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.awsomefox.sprocket.data.Prefs;
+import com.awsomefox.sprocket.data.ServerManager;
+import com.awsomefox.sprocket.data.model.Book;
+import com.awsomefox.sprocket.data.model.PlexItem;
+import com.awsomefox.sprocket.data.model.Track;
+import com.awsomefox.sprocket.data.repository.MusicRepository;
+import com.awsomefox.sprocket.data.storage.Evictable;
+import com.awsomefox.sprocket.data.storage.StorageEntry;
+import com.awsomefox.sprocket.util.CacheKeys;
+import com.awsomefox.sprocket.util.Rx;
+import com.jakewharton.rxrelay2.PublishRelay;
+import com.jakewharton.rxrelay2.Relay;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import io.reactivex.BackpressureStrategy;
+import io.reactivex.Completable;
+import io.reactivex.Flowable;
+import io.reactivex.Observable;
+import io.reactivex.disposables.CompositeDisposable;
+import io.reactivex.schedulers.Schedulers;
+import okhttp3.HttpUrl;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import timber.log.Timber;
+
+/**
+ * Downloads every chapter part of a book for offline playback. Parts are fetched with range
+ * requests into a partial file, so an interrupted transfer continues where it stopped. The queue
+ * is persisted in the {@link DownloadStore} and resumed by {@link #start()}, a few parts are
+ * fetched in parallel per library and the combined rate is capped by a {@link Throttle}.
+ */
+public final class Downloader implements Evictable {
+
+  /** Bandwidth cap in kilobytes per second, {@code 0} for none. */
+  public static final String PREF_BANDWIDTH_KBPS = "pref_download_kbps";
+
+  private static final int PARALLEL_PER_LIBRARY = 2;
+  private static final int MAX_RETRIES = 3;
+  private static final int BUFFER_SIZE = 32 * 1024;
+  private static final long PROGRESS_INTERVAL = 1024 * 1024;
+  private static final long PROGRESS_UPDATE_MS = 500;
+  private static final int HTTP_PARTIAL_CONTENT = 206;
+  private static final int HTTP_RANGE_NOT_SATISFIABLE = 416;
+  private static final String PARTIAL_SUFFIX = ".part";
+
+  private final File directory;
+  private final DownloadStore store;
+  private final MusicRepository repository;
+  private final ServerManager serverManager;
+  private final OkHttpClient client;
+  private final Throttle throttle;
+  private final Prefs prefs;
+  private final Relay<DownloadJob> queue = PublishRelay.<DownloadJob>create().toSerialized();
+  // Keys of jobs that were transferred or given up on
+  private final Relay<String> finished = PublishRelay.<String>create().toSerialized();
+  // Keys of jobs that were queued, made progress, finished or were removed
+  private final Relay<String> changes = PublishRelay.<String>create().toSerialized();
+  private final Set<String> cancelled = Collections.newSetFromMap(new ConcurrentHashMap<>());
+  // Keys of jobs that are queued or transferring, so a part is never fetched twice at once
+  private final Set<String> queued = Collections.newSetFromMap(new ConcurrentHashMap<>());
+  // Keys of jobs removed while transferring, their files are deleted once the transfer lets go
+  private final Set<String> removed = new HashSet<>();
+  private final AtomicBoolean started = new AtomicBoolean();
+  // Holds on to the transfers and the pref listener for as long as the process lives
+  private final CompositeDisposable disposables = new CompositeDisposable();
+
+  Downloader(File directory, DownloadStore store, MusicRepository repository,
+             ServerManager serverManager, OkHttpClient client, Throttle throttle, Prefs prefs) {
+    this.directory = directory;
+    this.store = store;
+    this.repository = repository;
+    this.serverManager = serverManager;
+    this.client = client;
+    this.throttle = throttle;
+    this.prefs = prefs;
+  }
+
+  /**
+   * Starts transferring and resumes the downloads left unfinished by a previous process, once
+   * the libraries and so the connections to their servers are known.
+   */
+  public void start() {
+    if (!started.compareAndSet(false, true)) {
+      return;
+    }
+    throttle.setRate(bandwidth());
+    disposables.add(prefs.changes()
+        .filter(PREF_BANDWIDTH_KBPS::equals)
+        .subscribe(key -> throttle.setRate(bandwidth()), Rx::onError));
+
+    disposables.add(queue.toFlowable(BackpressureStrategy.BUFFER)
+        .groupBy(job -> job.libraryId)
+        .flatMap(library -> library.flatMapCompletable(job -> transfer(job)
+            .subscribeOn(Schedulers.io())
+            .retryWhen(errors -> errors
+                .zipWith(Flowable.range(1, MAX_RETRIES), (error, attempt) -> attempt)
+                .flatMap(attempt -> Flowable.timer(attempt * 5, TimeUnit.SECONDS)))
+            .doOnError(e -> Timber.w(e, "Download of %s failed", job.key))
+            .onErrorComplete()
+            .doOnComplete(() -> release(job)), false, PARALLEL_PER_LIBRARY)
+            .toFlowable())
+        .subscribe(ignored -> { }, Rx::onError));
+
+    disposables.add(serverManager.libs()
+        .firstElement()
+        .observeOn(Schedulers.io())
+        .subscribe(libs -> {
+          for (DownloadJob job : store.all()) {
+            // Automatic jobs are resumed by the next prefetch run, within its constraints
+            if (!job.done && !job.auto) {
+              accept(job);
+            }
+          }
+        }, Rx::onError));
+  }
+
+  /** Queues every chapter of {@code book}, parts that are already downloaded are skipped. */
+  @NonNull public Completable download(@NonNull Book book) {
+    start();
+    return repository.albumItems(book)
+        .lastOrError()
+        .flatMapCompletable(items -> Completable.fromAction(() ->
+            enqueue(jobs(book, tracks(items), false))));
+  }
+
+  /**
+   * Queues {@code tracks} as automatic downloads that are evicted again once listened to. Completes
+   * when all of them have been transferred or given up on, disposing cancels the transfers.
+   */
+  @NonNull public Completable prefetch(@NonNull Book book, @NonNull List<Track> tracks) {
+    start();
+    return Completable.defer(() -> {
+      List<DownloadJob> jobs = jobs(book, tracks, true);
+      Set<String> pending = Collections.newSetFromMap(new ConcurrentHashMap<>());
+      for (DownloadJob job : jobs) {
+        if (!isDownloaded(job.fileName)) {
+          pending.add(job.key);
+        }
+      }
+      if (pending.isEmpty()) {
+        return Completable.fromAction(() -> enqueue(jobs));
+      }
+      // Listen before queueing so no completion is missed
+      Completable done = finished.filter(pending::remove)
+          .takeUntil(key -> pending.isEmpty())
+          .ignoreElements()
+          .doOnDispose(() -> cancelled.addAll(pending));
+      return Completable.mergeArray(done, Completable.fromAction(() -> enqueue(jobs)));
+    });
+  }
+
+  /** Deletes the downloaded part of {@code track} if it was only downloaded ahead of time. */
+  @NonNull public Completable evict(@NonNull Track track) {
+    return Completable.fromAction(() -> {
+      String key = CacheKeys.forUrl(track.libraryId(), track.source());
+      for (DownloadJob job : store.all()) {
+        if (job.auto && job.key.equals(key)) {
+          drop(job);
+          Timber.d("Evicted %s", job.key);
+        }
+      }
+    });
+  }
+
+  /** Cancels any transfer of {@code book} and deletes its downloaded parts. */
+  @NonNull public Completable remove(@NonNull Book book) {
+    return Completable.fromAction(() -> {
+      for (DownloadJob job : store.all()) {
+        if (job.bookKey.equals(book.ratingKey())) {
+          drop(job);
+        }
+      }
+    });
+  }
+
+  /** Cancels every transfer and deletes every download of the signed out account. Blocks. */
+  public void clear() {
+    for (DownloadJob job : store.all()) {
+      drop(job);
+    }
+    store.clear();
+  }
+
+  /**
+   * The download state of {@code book}, emitted right away and again, at most twice a second, as
+   * its parts are queued, transferred or removed.
+   */
+  @NonNull public Observable<DownloadProgress> progress(@NonNull Book book) {
+    return changes.startWith("")
+        .throttleLatest(PROGRESS_UPDATE_MS, TimeUnit.MILLISECONDS, Schedulers.io(), true)
+        .map(ignored -> {
+          List<DownloadJob> jobs = new ArrayList<>();
+          for (DownloadJob job : store.all()) {
+            if (job.bookKey.equals(book.ratingKey())) {
+              jobs.add(job);
+            }
+          }
+          return DownloadProgress.of(jobs);
+        });
+  }
+
+  @NonNull @Override public List<StorageEntry> entries(@NonNull Set<String> currentKeys) {
+    List<StorageEntry> entries = new ArrayList<>();
+    for (DownloadJob job : store.all()) {
+      if (!job.done) {
+        continue;
+      }
+      StorageEntry.Tier tier;
+      if (!job.auto) {
+        tier = StorageEntry.Tier.PINNED;
+      } else if (currentKeys.contains(job.key)) {
+        tier = StorageEntry.Tier.CURRENT_AUDIO;
+      } else {
+        tier = StorageEntry.Tier.DOWNLOAD;
+      }
+      File file = new File(directory, job.fileName);
+      entries.add(new StorageEntry(tier, job.key, file.length(), file.lastModified(), this));
+    }
+    return entries;
+  }
+
+  @Override public void evict(@NonNull StorageEntry entry) {
+    for (DownloadJob job : store.all()) {
+      if (job.auto && job.key.equals(entry.key)) {
+        drop(job);
+      }
+    }
+  }
+
+  /**
+   * Returns the downloaded file of {@code track}, or {@code null} when it has to be streamed.
+   * Parts only get their final name once they are complete, so this needs no loaded state.
+   */
+  @Nullable public File localFile(@NonNull Track track) {
+    String key = CacheKeys.forUrl(track.libraryId(), track.source());
+    if (key == null) {
+      return null;
+    }
+    File file = new File(directory, fileName(key));
+    return file.exists() ? file : null;
+  }
+
+  private synchronized void enqueue(List<DownloadJob> jobs) {
+    directory.mkdirs();
+    for (DownloadJob job : jobs) {
+      store.add(job);
+      // Queued again before a removed transfer let go, its files are wanted after all
+      removed.remove(job.key);
+      if (!isDownloaded(job.fileName)) {
+        cancelled.remove(job.key);
+        accept(job);
+      }
+      changes.accept(job.key);
+    }
+  }
+
+  private void accept(DownloadJob job) {
+    if (queued.add(job.key)) {
+      queue.accept(job);
+    }
+  }
+
+  /**
+   * Forgets {@code job} and deletes its files. A transfer may still be writing them, then they
+   * are deleted once it has stopped.
+   */
+  private synchronized void drop(DownloadJob job) {
+    cancelled.add(job.key);
+    store.remove(job.key);
+    if (queued.contains(job.key)) {
+      removed.add(job.key);
+    } else {
+      deleteFiles(job);
+    }
+    changes.accept(job.key);
+  }
+
+  /** Called once a transfer of {@code job} has stopped, successful or not. */
+  private synchronized void release(DownloadJob job) {
+    queued.remove(job.key);
+    if (removed.remove(job.key)) {
+      deleteFiles(job);
+    }
+    finished.accept(job.key);
+    changes.accept(job.key);
+  }
+
+  private boolean isDownloaded(String fileName) {
+    return new File(directory, fileName).exists();
+  }
+
+  private long bandwidth() {
+    try {
+      return Long.parseLong(prefs.getString(PREF_BANDWIDTH_KBPS, "0")) * 1024;
+    } catch (NumberFormatException e) {
+      return 0;
+    }
+  }
+
+  private static List<DownloadJob> jobs(Book book, List<Track> tracks, boolean auto) {
+    List<DownloadJob> jobs = new ArrayList<>(tracks.size());
+    for (Track track : tracks) {
+      String key = CacheKeys.forUrl(track.libraryId(), track.source());
+      String partKey = DownloadJob.partKey(track.uri(), track.source());
+      if (key != null && partKey != null) {
+        jobs.add(new DownloadJob(key, book.ratingKey(), track.libraryId(), partKey,
+            fileName(key), 0, -1, false, auto));
+      }
+    }
+    return jobs;
+  }
+
+  static List<Track> tracks(List<PlexItem> items) {
+    List<Track> tracks = new ArrayList<>(items.size());
+    for (PlexItem item : items) {
+      if (item instanceof Track) {
+        tracks.add((Track) item);
+      }
+    }
+    return tracks;
+  }
+
+  private Completable transfer(DownloadJob job) {
+    return Completable.fromAction(() -> {
+      if (cancelled.contains(job.key) || isDownloaded(job.fileName)) {
+        return;
+      }
+      HttpUrl connection = serverManager.uri(job.libraryId);
+      if (connection == null) {
+        throw new IOException("No connection to library " + job.libraryId);
+      }
+      File partial = new File(directory, job.fileName + PARTIAL_SUFFIX);
+      long offset = partial.length();
+      Request.Builder request = new Request.Builder().url(job.url(connection));
+      if (offset > 0) {
+        request.header("Range", "bytes=" + offset + "-");
+      }
+      try (Response response = client.newCall(request.build()).execute()) {
+        if (response.code() != HTTP_RANGE_NOT_SATISFIABLE) {
+          if (!response.isSuccessful()) {
+            throw new IOException("Unexpected response " + response.code());
+          }
+          // The server may ignore the range and send everything again
+          boolean append = response.code() == HTTP_PARTIAL_CONTENT;
+          offset = copy(job, response.body(), partial, append ? offset : 0, append);
+        }
+      }
+      File file = new File(directory, job.fileName);
+      if (!partial.renameTo(file)) {
+        throw new IOException("Could not move " + partial);
+      }
+      store.markDone(job.key, offset);
+      Timber.d("Downloaded %s", job.key);
+    });
+  }
+
+  private long copy(DownloadJob job, ResponseBody body, File partial, long offset,
+                    boolean append) throws IOException {
+    long length = body.contentLength();
+    long total = length < 0 ? -1 : offset + length;
+    long reported = offset;
+    byte[] buffer = new byte[BUFFER_SIZE];
+    try (InputStream in = body.byteStream();
+         OutputStream out = new FileOutputStream(partial, append)) {
+      int read;
+      while ((read = in.read(buffer)) != -1) {
+        if (cancelled.contains(job.key)) {
+          throw new InterruptedIOException("Download of " + job.key + " was cancelled");
+        }
+        out.write(buffer, 0, read);
+        offset += read;
+        throttle.acquire(read);
+        if (offset - reported >= PROGRESS_INTERVAL) {
+          store.updateProgress(job.key, offset, total);
+          changes.accept(job.key);
+          reported = offset;
+        }
+      }
+    }
+    return offset;
+  }
+
+  private void deleteFiles(DownloadJob job) {
+    new File(directory, job.fileName).delete();
+    new File(directory, job.fileName + PARTIAL_SUFFIX).delete();
+  }
+
+  private static String fileName(String key) {
+    return key.replaceAll("[^A-Za-z0-9._-]", "_");
+  }
+}
@@ -0,0 +1,57 @@
+/*
+ * Copyright (C) 2020 Simon Norberg
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.awsomefox.sprocket.data.download;
+
+import android.app.job.JobParameters;
+import android.app.job.JobService;
+
+import com.awsomefox.sprocket.SprocketApp;
+import com.awsomefox.sprocket.util.Rx;
+
+import javax.inject.Inject;
+
+import io.reactivex.disposables.Disposable;
+import io.reactivex.schedulers.Schedulers;
+import timber.log.Timber;
+
+/** Runs the {@link Prefetcher} whenever its constraints are met. */
+public class PrefetchJobService extends JobService {
+
+  @Inject Prefetcher prefetcher;
+  private Disposable disposable;
+
+  @Override public void onCreate() {
+    super.onCreate();
+    SprocketApp.get(this).component().inject(this);
+  }
+
+  @Override public boolean onStartJob(JobParameters params) {
+    Rx.dispose(disposable);
+    disposable = prefetcher.run()
+        .subscribeOn(Schedulers.io())
+        .subscribe(() -> jobFinished(params, false), e -> {
+          Timber.w(e, "Prefetch failed");
+          jobFinished(params, true);
+        });
+    return true;
+  }
+
+  @Override public boolean onStopJob(JobParameters params) {
+    // Constraints no longer hold, the pending transfers are cancelled and resumed next time
+    Rx.dispose(disposable);
+    return true;
+  }
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright (C) 2020 Simon Norberg
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.awsomefox.sprocket.data.download;
+
+import androidx.annotation.NonNull;
+
+import com.awsomefox.sprocket.data.model.Track;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/** Decides which chapters of an in-progress book to keep downloaded ahead of the listener. */
+final class PrefetchPolicy {
+
+  private final int chapters;
+  private final long durationMs;
+
+  /**
+   * @param chapters   number of chapters to keep, used when {@code durationMs} is not positive
+   * @param durationMs listening time to keep, counted in whole chapters
+   */
+  PrefetchPolicy(int chapters, long durationMs) {
+    this.chapters = chapters;
+    this.durationMs = durationMs;
+  }
+
+  /**
+   * Returns the chapter being listened to and the ones following it, which is the first chapter
+   * that is partially played or not played yet.
+   */
+  @NonNull List<Track> select(@NonNull List<Track> book) {
+    int start = -1;
+    for (int i = 0; i < book.size(); i++) {
+      Track track = book.get(i);
+      if (track.viewOffset() > 0 || track.viewCount() == 0) {
+        start = i;
+        break;
+      }
+    }
+    if (start == -1) {
+      return Collections.emptyList();
+    }
+    List<Track> selected = new ArrayList<>();
+    long duration = 0;
+    for (int i = start; i < book.size(); i++) {
+      if (durationMs > 0 ? duration >= durationMs : selected.size() >= chapters) {
+        break;
+      }
+      Track track = book.get(i);
+      selected.add(track);
+      duration += track.duration() - track.viewOffset();
+    }
+    return selected;
+  }
+}
@@ -0,0 +1,165 @@
+/*
+ * Copyright (C) 2020 Simon Norberg
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.awsomefox.sprocket.data.download;
+
+import android.app.job.JobInfo;
+import android.app.job.JobScheduler;
+import android.content.ComponentName;
+import android.content.Context;
+
+import androidx.annotation.NonNull;
+
+import com.awsomefox.sprocket.data.Prefs;
+import com.awsomefox.sprocket.data.ServerManager;
+import com.awsomefox.sprocket.data.model.Book;
+import com.awsomefox.sprocket.data.model.Track;
+import com.awsomefox.sprocket.data.repository.MusicRepository;
+import com.awsomefox.sprocket.data.storage.StorageBudget;
+import com.awsomefox.sprocket.util.Rx;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import io.reactivex.Completable;
+import io.reactivex.Observable;
+import io.reactivex.disposables.Disposable;
+
+/**
+ * Keeps the upcoming chapters of every book in progress downloaded, so the next listening
+ * session doesn't need the network. Runs periodically as a {@link PrefetchJobService} under the
+ * network, charging and idle constraints chosen in the preferences.
+ */
+public final class Prefetcher {
+
+  public static final String PREF_CHAPTERS = "pref_prefetch_chapters";
+  /** Hours of listening to keep, takes precedence over the chapter count when set. */
+  public static final String PREF_HOURS = "pref_prefetch_hours";
+  public static final String PREF_UNMETERED = "pref_prefetch_unmetered";
+  public static final String PREF_CHARGING = "pref_prefetch_charging";
+  public static final String PREF_IDLE = "pref_prefetch_idle";
+
+  private static final int JOB_ID = 1;
+  private static final int DEFAULT_CHAPTERS = 3;
+  private static final long PERIOD = TimeUnit.HOURS.toMillis(6);
+  private static final long LIBRARIES_TIMEOUT_SECONDS = 30;
+
+  private final Context context;
+  private final ServerManager serverManager;
+  private final MusicRepository repository;
+  private final Downloader downloader;
+  private final StorageBudget storageBudget;
+  private final Prefs prefs;
+  private final AtomicBoolean started = new AtomicBoolean();
+  // Holds on to the pref listener for as long as the process lives
+  private Disposable disposable;
+
+  Prefetcher(Context context, ServerManager serverManager, MusicRepository repository,
+             Downloader downloader, StorageBudget storageBudget, Prefs prefs) {
+    this.context = context;
+    this.serverManager = serverManager;
+    this.repository = repository;
+    this.downloader = downloader;
+    this.storageBudget = storageBudget;
+    this.prefs = prefs;
+  }
+
+  /** Schedules the periodic job and reschedules it whenever its constraints are changed. */
+  public void start() {
+    if (!started.compareAndSet(false, true)) {
+      return;
+    }
+    schedule();
+    disposable = prefs.changes()
+        .filter(key -> key.equals(PREF_UNMETERED) || key.equals(PREF_CHARGING)
+            || key.equals(PREF_IDLE))
+        .subscribe(key -> schedule(), Rx::onError);
+  }
+
+  /** Schedules the periodic job, or reschedules it when the constraints have changed. */
+  private void schedule() {
+    JobScheduler scheduler =
+        (JobScheduler) context.getSystemService(Context.JOB_SCHEDULER_SERVICE);
+    if (scheduler == null) {
+      return;
+    }
+    int networkType = prefs.getBoolean(PREF_UNMETERED, true)
+        ? JobInfo.NETWORK_TYPE_UNMETERED : JobInfo.NETWORK_TYPE_ANY;
+    boolean charging = prefs.getBoolean(PREF_CHARGING, false);
+    boolean idle = prefs.getBoolean(PREF_IDLE, false);
+    for (JobInfo pending : scheduler.getAllPendingJobs()) {
+      if (pending.getId() == JOB_ID && pending.getNetworkType() == networkType
+          && pending.isRequireCharging() == charging && pending.isRequireDeviceIdle() == idle) {
+        return;
+      }
+    }
+    scheduler.schedule(new JobInfo.Builder(JOB_ID,
+        new ComponentName(context, PrefetchJobService.class))
+        .setRequiredNetworkType(networkType)
+        .setRequiresCharging(charging)
+        .setRequiresDeviceIdle(idle)
+        .setPeriodic(PERIOD)
+        .setPersisted(true)
+        .build());
+  }
+
+  /**
+   * Downloads the upcoming chapters of every book in progress, evicts finished ones and brings
+   * the stores back within the storage budget.
+   */
+  @NonNull Completable run() {
+    PrefetchPolicy policy = new PrefetchPolicy(getInt(PREF_CHAPTERS, DEFAULT_CHAPTERS),
+        TimeUnit.HOURS.toMillis(getInt(PREF_HOURS, 0)));
+    return Completable.fromAction(() -> {
+      if (!serverManager.hasLibs()) {
+        serverManager.refresh();
+      }
+    }).andThen(serverManager.libs().firstOrError())
+        .timeout(LIBRARIES_TIMEOUT_SECONDS, TimeUnit.SECONDS)
+        .flatMapObservable(Observable::fromIterable)
+        .concatMap(lib -> repository.booksInProgress(lib)
+            .lastOrError()
+            .flatMapObservable(Observable::fromIterable))
+        .ofType(Book.class)
+        .concatMapCompletable(book -> repository.albumItems(book)
+            .lastOrError()
+            .flatMapCompletable(items -> {
+              List<Track> chapters = Downloader.tracks(items);
+              return evictFinished(chapters)
+                  .andThen(downloader.prefetch(book, policy.select(chapters)));
+            }))
+        .andThen(storageBudget.enforce());
+  }
+
+  private Completable evictFinished(List<Track> chapters) {
+    List<Completable> evictions = new ArrayList<>();
+    for (Track track : chapters) {
+      if (track.viewCount() > 0 && track.viewOffset() == 0) {
+        evictions.add(downloader.evict(track));
+      }
+    }
+    return Completable.concat(evictions);
+  }
+
+  private int getInt(String key, int defaultValue) {
+    try {
+      return Integer.parseInt(prefs.getString(key, String.valueOf(defaultValue)));
+    } catch (NumberFormatException e) {
+      return defaultValue;
+    }
+  }
+}
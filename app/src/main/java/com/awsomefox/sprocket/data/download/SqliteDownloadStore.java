@@ -0,0 +1,154 @@
+/*
+ * Copyright (C) 2020 Simon Norberg
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.awsomefox.sprocket.data.download;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+
+import androidx.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import okhttp3.HttpUrl;
+
+/** {@link DownloadStore} backed by a single SQLite table. */
+class SqliteDownloadStore extends SQLiteOpenHelper implements DownloadStore {
+
+  private static final String NAME = "downloads.db";
+  private static final int VERSION = 3;
+
+  SqliteDownloadStore(Context context) {
+    super(context, NAME, null, VERSION);
+  }
+
+  @Override public void onConfigure(SQLiteDatabase db) {
+    db.enableWriteAheadLogging();
+  }
+
+  @Override public void onCreate(SQLiteDatabase db) {
+    db.execSQL("CREATE TABLE downloads ("
+        + "key TEXT PRIMARY KEY, "
+        + "book_key TEXT NOT NULL, "
+        + "library_id TEXT NOT NULL, "
+        + "part_key TEXT NOT NULL, "
+        + "file_name TEXT NOT NULL, "
+        + "downloaded INTEGER NOT NULL DEFAULT 0, "
+        + "total INTEGER NOT NULL DEFAULT -1, "
+        + "done INTEGER NOT NULL DEFAULT 0, "
+        + "auto INTEGER NOT NULL DEFAULT 0, "
+        + "created_at INTEGER NOT NULL)");
+  }
+
+  @Override public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+    // The queue refers to downloaded files, so it is migrated rather than dropped
+    if (oldVersion < 2) {
+      db.execSQL("ALTER TABLE downloads ADD COLUMN auto INTEGER NOT NULL DEFAULT 0");
+    }
+    if (oldVersion < 3) {
+      // Jobs kept the whole url, connection and token included, now only the part key is kept
+      db.execSQL("ALTER TABLE downloads RENAME TO downloads_v2");
+      onCreate(db);
+      try (Cursor cursor = db.rawQuery("SELECT key, book_key, url, file_name, downloaded, total, "
+          + "done, auto, created_at FROM downloads_v2", null)) {
+        while (cursor.moveToNext()) {
+          String key = cursor.getString(0);
+          HttpUrl url = HttpUrl.parse(cursor.getString(2));
+          int slash = key.indexOf('/');
+          if (url == null || slash < 0) {
+            continue;
+          }
+          ContentValues row = new ContentValues();
+          row.put("key", key);
+          row.put("book_key", cursor.getString(1));
+          row.put("library_id", key.substring(0, slash));
+          // Part urls were built on the root of the connection
+          row.put("part_key", DownloadJob.partKey(url.resolve("/"), url.toString()));
+          row.put("file_name", cursor.getString(3));
+          row.put("downloaded", cursor.getLong(4));
+          row.put("total", cursor.getLong(5));
+          row.put("done", cursor.getInt(6));
+          row.put("auto", cursor.getInt(7));
+          row.put("created_at", cursor.getLong(8));
+          db.insert("downloads", null, row);
+        }
+      }
+      db.execSQL("DROP TABLE downloads_v2");
+    }
+  }
+
+  @NonNull @Override public List<DownloadJob> all() {
+    List<DownloadJob> jobs = new ArrayList<>();
+    try (Cursor cursor = getReadableDatabase().rawQuery("SELECT key, book_key, library_id, "
+        + "part_key, file_name, downloaded, total, done, auto FROM downloads ORDER BY created_at",
+        null)) {
+      while (cursor.moveToNext()) {
+        jobs.add(new DownloadJob(cursor.getString(0), cursor.getString(1), cursor.getString(2),
+            cursor.getString(3), cursor.getString(4), cursor.getLong(5), cursor.getLong(6),
+            cursor.getInt(7) != 0, cursor.getInt(8) != 0));
+      }
+    }
+    return jobs;
+  }
+
+  @Override public void add(@NonNull DownloadJob job) {
+    ContentValues row = new ContentValues();
+    row.put("key", job.key);
+    row.put("book_key", job.bookKey);
+    row.put("library_id", job.libraryId);
+    row.put("part_key", job.partKey);
+    row.put("file_name", job.fileName);
+    row.put("downloaded", job.downloadedBytes);
+    row.put("total", job.totalBytes);
+    row.put("done", job.done ? 1 : 0);
+    row.put("auto", job.auto ? 1 : 0);
+    row.put("created_at", System.currentTimeMillis());
+    SQLiteDatabase db = getWritableDatabase();
+    if (db.insertWithOnConflict("downloads", null, row, SQLiteDatabase.CONFLICT_IGNORE) == -1
+        && !job.auto) {
+      ContentValues pin = new ContentValues();
+      pin.put("auto", 0);
+      db.update("downloads", pin, "key = ?", new String[]{job.key});
+    }
+  }
+
+  @Override public void updateProgress(@NonNull String key, long downloadedBytes,
+                                       long totalBytes) {
+    ContentValues row = new ContentValues();
+    row.put("downloaded", downloadedBytes);
+    row.put("total", totalBytes);
+    getWritableDatabase().update("downloads", row, "key = ?", new String[]{key});
+  }
+
+  @Override public void markDone(@NonNull String key, long totalBytes) {
+    ContentValues row = new ContentValues();
+    row.put("downloaded", totalBytes);
+    row.put("total", totalBytes);
+    row.put("done", 1);
+    getWritableDatabase().update("downloads", row, "key = ?", new String[]{key});
+  }
+
+  @Override public void remove(@NonNull String key) {
+    getWritableDatabase().delete("downloads", "key = ?", new String[]{key});
+  }
+
+  @Override public void clear() {
+    getWritableDatabase().delete("downloads", null, null);
+  }
+}
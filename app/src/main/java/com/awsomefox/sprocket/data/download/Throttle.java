@@ -0,0 +1,72 @@
+/*
+ * Copyright (C) 2020 Simon Norberg
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.awsomefox.sprocket.data.download;
+
+import com.awsomefox.sprocket.AndroidClock;
+
+import java.io.InterruptedIOException;
+
+/**
+ * Token bucket that caps the combined transfer rate of all downloads. At most one second worth
+ * of bytes can be saved up, after that callers are put to sleep until they are within the cap.
+ */
+final class Throttle {
+
+  private final AndroidClock clock;
+  private long bytesPerSecond;
+  private long available;
+  private long lastRefill;
+
+  Throttle(AndroidClock clock, long bytesPerSecond) {
+    this.clock = clock;
+    this.lastRefill = clock.elapsedRealTime();
+    setRate(bytesPerSecond);
+  }
+
+  /** Sets the cap, {@code 0} or less removes it. */
+  synchronized void setRate(long bytesPerSecond) {
+    this.bytesPerSecond = Math.max(0, bytesPerSecond);
+    this.available = this.bytesPerSecond;
+  }
+
+  /** Blocks until {@code bytes} more can be transferred without exceeding the cap. */
+  void acquire(int bytes) throws InterruptedIOException {
+    long wait = reserve(bytes);
+    if (wait > 0) {
+      try {
+        Thread.sleep(wait);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new InterruptedIOException();
+      }
+    }
+  }
+
+  /** Takes {@code bytes} from the bucket and returns how many milliseconds to wait for them. */
+  synchronized long reserve(int bytes) {
+    if (bytesPerSecond == 0) {
+      return 0;
+    }
+    long now = clock.elapsedRealTime();
+    long refill = (now - lastRefill) * bytesPerSecond / 1000;
+    if (refill > 0) {
+      available = Math.min(bytesPerSecond, available + refill);
+      lastRefill = now;
+    }
+    available -= bytes;
+    return available >= 0 ? 0 : -available * 1000 / bytesPerSecond;
+  }
+}
@@ -0,0 +1,234 @@
+/*
+ * Copyright (C) 2020 Simon Norberg
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.awsomefox.sprocket.data.outbox;
+
+import android.net.ConnectivityManager;
+import android.net.Network;
+import android.net.NetworkCapabilities;
+import android.net.NetworkInfo;
+import android.net.NetworkRequest;
+
+import androidx.annotation.NonNull;
+
+import com.awsomefox.sprocket.data.ServerManager;
+import com.awsomefox.sprocket.data.api.MediaService;
+import com.awsomefox.sprocket.data.model.Track;
+import com.awsomefox.sprocket.util.Rx;
+import com.jakewharton.rxrelay2.PublishRelay;
+import com.jakewharton.rxrelay2.Relay;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import io.reactivex.BackpressureStrategy;
+import io.reactivex.Completable;
+import io.reactivex.Observable;
+import io.reactivex.schedulers.Schedulers;
+import okhttp3.HttpUrl;
+import retrofit2.HttpException;
+import timber.log.Timber;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+/**
+ * Journals timeline updates and listen state changes before they are sent to the server. Writes
+ * are delivered in order, back to back, when something urgent is queued, when the network comes
+ * back or at the latest {@link #FLUSH_DELAY_MS} after a position update while playing. Failed
+ * deliveries are retried with exponential backoff, which only a network change cuts short, so no
+ * progress is lost while offline. A server that fails holds back only its own entries, and
+ * entries still failing after {@link #MAX_AGE_MS} are given up on.
+ */
+public final class Outbox {
+
+  static final long FLUSH_DELAY_MS = TimeUnit.SECONDS.toMillis(30);
+  static final long MIN_BACKOFF_MS = TimeUnit.SECONDS.toMillis(5);
+  static final long MAX_BACKOFF_MS = TimeUnit.MINUTES.toMillis(10);
+  static final long MAX_AGE_MS = TimeUnit.DAYS.toMillis(7);
+  private static final int BATCH_SIZE = 50;
+
+  private final OutboxStore store;
+  private final MediaService media;
+  private final ServerManager serverManager;
+  private final ConnectivityManager connectivityManager;
+  private final PublishRelay<Long> flushes = PublishRelay.create();
+  private final Relay<OutboxEntry> delivered = PublishRelay.<OutboxEntry>create().toSerialized();
+  private final AtomicBoolean flushScheduled = new AtomicBoolean();
+  private final AtomicBoolean started = new AtomicBoolean();
+  /** Deliveries failed in a row, only touched by the serialized flushes. */
+  private int failures;
+  /** {@link System#nanoTime()} before which flushes wait out the backoff. */
+  private volatile long nextAttemptAt;
+
+  Outbox(OutboxStore store, MediaService media, ServerManager serverManager,
+         ConnectivityManager connectivityManager) {
+    this.store = store;
+    this.media = media;
+    this.serverManager = serverManager;
+    this.connectivityManager = connectivityManager;
+    this.nextAttemptAt = System.nanoTime();
+  }
+
+  /** Starts delivering, including whatever was left in the outbox by an earlier process. */
+  public void start() {
+    if (!started.compareAndSet(false, true)) {
+      return;
+    }
+    flushes.flatMap(delay -> Observable.timer(delay, MILLISECONDS, Schedulers.io()))
+        .toFlowable(BackpressureStrategy.LATEST)
+        .concatMapCompletable(tick -> Completable.fromAction(this::flush), 1)
+        .subscribe(() -> { }, Rx::onError);
+    connectivityManager.registerNetworkCallback(new NetworkRequest.Builder()
+            .addCapability(NetworkCapabilities.NET_CAPABILITY_INTERNET)
+            .build(),
+        new ConnectivityManager.NetworkCallback() {
+          @Override public void onAvailable(@NonNull Network network) {
+            // A new network is worth trying right away, whatever failed before
+            nextAttemptAt = System.nanoTime();
+            flushes.accept(0L);
+          }
+        });
+    flushes.accept(0L);
+  }
+
+  /** Drops the undelivered writes of the signed out account. Blocks. */
+  public void clear() {
+    store.clear();
+  }
+
+  /** Queues the position of {@code track}, replacing the position queued before it. */
+  public Completable timeline(Track track, String state, long time) {
+    return enqueue(OutboxEntry.timeline(track.libraryId(), track.ratingKey(),
+        track.queueItemId(), track.key(), state, track.duration(), time),
+        !"playing".equals(state));
+  }
+
+  public Completable scrobble(Track track) {
+    return enqueue(OutboxEntry.scrobble(track.libraryId(), track.ratingKey(), true), true);
+  }
+
+  public Completable unscrobble(Track track) {
+    return enqueue(OutboxEntry.scrobble(track.libraryId(), track.ratingKey(), false), true);
+  }
+
+  /**
+   * Completes once a scrobble of {@code track} has reached the server, which never happens if it
+   * is superseded or given up on first.
+   */
+  public Completable scrobbleDelivered(Track track) {
+    return delivered.filter(entry -> entry.kind == OutboxEntry.Kind.SCROBBLE
+        && entry.ratingKey.equals(track.ratingKey()) && entry.libraryId.equals(track.libraryId()))
+        .firstElement()
+        .ignoreElement();
+  }
+
+  private Completable enqueue(OutboxEntry entry, boolean urgent) {
+    return Completable.fromAction(() -> {
+      start();
+      store.add(entry);
+      if (urgent) {
+        flushes.accept(0L);
+      } else if (flushScheduled.compareAndSet(false, true)) {
+        flushes.accept(FLUSH_DELAY_MS);
+      }
+    }).subscribeOn(Schedulers.io());
+  }
+
+  void flush() {
+    flushScheduled.set(false);
+    if (System.nanoTime() - nextAttemptAt < 0) {
+      return; // Backing off, the retry is already scheduled
+    }
+    NetworkInfo info = connectivityManager.getActiveNetworkInfo();
+    if (info == null || !info.isConnected()) {
+      return; // Flushed again once the network is back
+    }
+    // Entries of a server stay in order, so once one fails the rest of that server waits too
+    Set<String> failing = new HashSet<>();
+    Throwable lastError = null;
+    long afterId = 0;
+    List<OutboxEntry> entries;
+    do {
+      entries = store.pending(afterId, BATCH_SIZE);
+      for (OutboxEntry entry : entries) {
+        afterId = entry.id;
+        if (failing.contains(entry.libraryId)) {
+          continue;
+        }
+        Throwable error = deliver(entry).blockingGet();
+        if (error != null && !isRejected(error) && !isExpired(entry, System.currentTimeMillis())) {
+          failing.add(entry.libraryId);
+          lastError = error;
+          continue;
+        }
+        store.remove(entry.id);
+        if (error == null) {
+          delivered.accept(entry);
+        } else {
+          Timber.w(error, "Giving up on %s", entry);
+        }
+      }
+    } while (entries.size() == BATCH_SIZE);
+    if (failing.isEmpty()) {
+      failures = 0;
+      return;
+    }
+    failures++;
+    long delay = backoff(failures);
+    Timber.d(lastError, "Delivering to %d servers failed, retrying in %d ms", failing.size(),
+        delay);
+    nextAttemptAt = System.nanoTime() + MILLISECONDS.toNanos(delay);
+    flushes.accept(delay);
+  }
+
+  private Completable deliver(OutboxEntry entry) {
+    HttpUrl url = serverManager.uri(entry.libraryId);
+    if (url == null) {
+      return Completable.error(new IllegalStateException("No connection to library "
+          + entry.libraryId));
+    }
+    switch (entry.kind) {
+      case SCROBBLE:
+        return media.scrobble(url, entry.ratingKey);
+      case UNSCROBBLE:
+        return media.unScrobble(url, entry.ratingKey);
+      default:
+        return media.timeline(url, entry.queueItemId, entry.trackKey, entry.ratingKey,
+            entry.state, entry.duration, entry.time);
+    }
+  }
+
+  /** Entries failing for this long are dropped, so a gone server can't fill the outbox. */
+  static boolean isExpired(OutboxEntry entry, long now) {
+    return now - entry.queuedAt > MAX_AGE_MS;
+  }
+
+  /** Client errors won't go away by retrying, so the entry is dropped instead. */
+  static boolean isRejected(Throwable error) {
+    if (!(error instanceof HttpException)) {
+      return false;
+    }
+    int code = ((HttpException) error).code();
+    return code >= 400 && code < 500 && code != 408 && code != 429;
+  }
+
+  static long backoff(int failures) {
+    int exponent = Math.min(Math.max(failures - 1, 0), 20);
+    return Math.min(MIN_BACKOFF_MS << exponent, MAX_BACKOFF_MS);
+  }
+}
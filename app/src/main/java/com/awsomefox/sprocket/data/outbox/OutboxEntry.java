@@ -0,0 +1,92 @@
+/*
+ * Copyright (C) 2020 Simon Norberg
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.awsomefox.sprocket.data.outbox;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.Locale;
+
+/** A write to the server waiting in the {@link OutboxStore} until it has been delivered. */
+public final class OutboxEntry {
+
+  public enum Kind {
+    TIMELINE, SCROBBLE, UNSCROBBLE
+  }
+
+  /** Order of the entry in the outbox, 0 until it has been stored. */
+  public final long id;
+  @NonNull public final Kind kind;
+  /**
+   * Library the chapter belongs to. It names the server without a connection, which is looked up
+   * when the entry is delivered since addresses and tokens change while entries wait.
+   */
+  @NonNull public final String libraryId;
+  @NonNull public final String ratingKey;
+  /** Timeline fields, unused by scrobbles. */
+  public final long queueItemId;
+  @Nullable public final String trackKey;
+  @Nullable public final String state;
+  public final long duration;
+  public final long time;
+  /** Wall clock time the entry was queued at. */
+  public final long queuedAt;
+
+  public OutboxEntry(long id, @NonNull Kind kind, @NonNull String libraryId,
+                     @NonNull String ratingKey, long queueItemId, @Nullable String trackKey,
+                     @Nullable String state, long duration, long time, long queuedAt) {
+    this.id = id;
+    this.kind = kind;
+    this.libraryId = libraryId;
+    this.ratingKey = ratingKey;
+    this.queueItemId = queueItemId;
+    this.trackKey = trackKey;
+    this.state = state;
+    this.duration = duration;
+    this.time = time;
+    this.queuedAt = queuedAt;
+  }
+
+  static OutboxEntry timeline(String libraryId, String ratingKey, long queueItemId,
+                              String trackKey, String state, long duration, long time) {
+    return new OutboxEntry(0, Kind.TIMELINE, libraryId, ratingKey, queueItemId, trackKey, state,
+        duration, time, System.currentTimeMillis());
+  }
+
+  static OutboxEntry scrobble(String libraryId, String ratingKey, boolean listened) {
+    return new OutboxEntry(0, listened ? Kind.SCROBBLE : Kind.UNSCROBBLE, libraryId, ratingKey,
+        0, null, null, 0, 0, System.currentTimeMillis());
+  }
+
+  /**
+   * Whether this entry makes the pending {@code older} one pointless. Any write to a chapter
+   * replaces its pending timeline, and marking it listened or unlistened replaces a pending mark.
+   * A timeline never replaces a mark, the mark has to reach the server first.
+   */
+  boolean supersedes(OutboxEntry older) {
+    if (!ratingKey.equals(older.ratingKey) || !libraryId.equals(older.libraryId)) {
+      return false;
+    }
+    return older.kind == Kind.TIMELINE || kind != Kind.TIMELINE;
+  }
+
+  @NonNull @Override public String toString() {
+    if (kind != Kind.TIMELINE) {
+      return kind + " " + ratingKey;
+    }
+    return String.format(Locale.US, "%s %s %s at %d", kind, ratingKey, state, time);
+  }
+}
@@ -0,0 +1,40 @@
+/*
+ * Copyright (C) 2020 Simon Norberg
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.awsomefox.sprocket.data.outbox;
+
+import android.content.Context;
+import android.net.ConnectivityManager;
+
+import com.awsomefox.sprocket.data.ServerManager;
+import com.awsomefox.sprocket.data.api.MediaService;
+
+import javax.inject.Singleton;
+
+import dagger.Module;
+import dagger.Provides;
+
+@Module
+public class OutboxModule {
+  @Provides @Singleton OutboxStore provideOutboxStore(Context context) {
+    return new SqliteOutboxStore(context);
+  }
+
+  @Provides @Singleton Outbox provideOutbox(OutboxStore store, MediaService media,
+                                            ServerManager serverManager,
+                                            ConnectivityManager connectivityManager) {
+    return new Outbox(store, media, serverManager, connectivityManager);
+  }
+}
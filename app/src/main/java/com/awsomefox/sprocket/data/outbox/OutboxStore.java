@@ -0,0 +1,38 @@
+/*
+ * Copyright (C) 2020 Simon Norberg
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.awsomefox.sprocket.data.outbox;
+
+import androidx.annotation.NonNull;
+
+import java.util.List;
+
+/**
+ * Persisted journal of writes to the server. Entries stay here until they are delivered, so
+ * nothing is lost while offline or when the process dies. All methods block and must be called
+ * off the main thread.
+ */
+public interface OutboxStore {
+
+  /** The oldest {@code limit} entries added after the entry {@code afterId}, in order. */
+  @NonNull List<OutboxEntry> pending(long afterId, int limit);
+
+  /** Adds {@code entry}, dropping every pending entry it {@link OutboxEntry#supersedes}. */
+  void add(@NonNull OutboxEntry entry);
+
+  void remove(long id);
+
+  void clear();
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright (C) 2020 Simon Norberg
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.awsomefox.sprocket.data.outbox;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+
+import androidx.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/** {@link OutboxStore} backed by a single SQLite table. */
+class SqliteOutboxStore extends SQLiteOpenHelper implements OutboxStore {
+
+  private static final String NAME = "outbox.db";
+  private static final int VERSION = 2;
+  private static final String COLUMNS = "id, kind, library_id, rating_key, queue_item_id, "
+      + "track_key, state, duration, time, queued_at";
+
+  SqliteOutboxStore(Context context) {
+    super(context, NAME, null, VERSION);
+  }
+
+  @Override public void onConfigure(SQLiteDatabase db) {
+    db.enableWriteAheadLogging();
+  }
+
+  @Override public void onCreate(SQLiteDatabase db) {
+    db.execSQL("CREATE TABLE outbox ("
+        + "id INTEGER PRIMARY KEY AUTOINCREMENT, "
+        + "kind TEXT NOT NULL, "
+        + "library_id TEXT NOT NULL, "
+        + "rating_key TEXT NOT NULL, "
+        + "queue_item_id INTEGER NOT NULL DEFAULT 0, "
+        + "track_key TEXT, "
+        + "state TEXT, "
+        + "duration INTEGER NOT NULL DEFAULT 0, "
+        + "time INTEGER NOT NULL DEFAULT 0, "
+        + "queued_at INTEGER NOT NULL DEFAULT 0)");
+    db.execSQL("CREATE INDEX outbox_rating_key ON outbox (rating_key)");
+  }
+
+  @Override public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+    // Version 1 named servers by a connection uri, those entries can't be resolved any more
+    db.execSQL("DROP TABLE IF EXISTS outbox");
+    onCreate(db);
+  }
+
+  @NonNull @Override public List<OutboxEntry> pending(long afterId, int limit) {
+    try (Cursor cursor = getReadableDatabase().rawQuery("SELECT " + COLUMNS
+        + " FROM outbox WHERE id > ? ORDER BY id LIMIT " + limit,
+        new String[]{String.valueOf(afterId)})) {
+      return read(cursor);
+    }
+  }
+
+  @Override public void add(@NonNull OutboxEntry entry) {
+    SQLiteDatabase db = getWritableDatabase();
+    db.beginTransaction();
+    try {
+      List<OutboxEntry> older;
+      try (Cursor cursor = db.rawQuery("SELECT " + COLUMNS + " FROM outbox "
+          + "WHERE rating_key = ?", new String[]{entry.ratingKey})) {
+        older = read(cursor);
+      }
+      for (OutboxEntry pending : older) {
+        if (entry.supersedes(pending)) {
+          db.delete("outbox", "id = ?", new String[]{String.valueOf(pending.id)});
+        }
+      }
+      ContentValues row = new ContentValues();
+      row.put("kind", entry.kind.name());
+      row.put("library_id", entry.libraryId);
+      row.put("rating_key", entry.ratingKey);
+      row.put("queue_item_id", entry.queueItemId);
+      row.put("track_key", entry.trackKey);
+      row.put("state", entry.state);
+      row.put("duration", entry.duration);
+      row.put("time", entry.time);
+      row.put("queued_at", entry.queuedAt);
+      db.insert("outbox", null, row);
+      db.setTransactionSuccessful();
+    } finally {
+      db.endTransaction();
+    }
+  }
+
+  @Override public void remove(long id) {
+    getWritableDatabase().delete("outbox", "id = ?", new String[]{String.valueOf(id)});
+  }
+
+  @Override public void clear() {
+    getWritableDatabase().delete("outbox", null, null);
+  }
+
+  private static List<OutboxEntry> read(Cursor cursor) {
+    List<OutboxEntry> entries = new ArrayList<>();
+    while (cursor.moveToNext()) {
+      entries.add(new OutboxEntry(cursor.getLong(0),
+          OutboxEntry.Kind.valueOf(cursor.getString(1)), cursor.getString(2),
+          cursor.getString(3), cursor.getLong(4), cursor.getString(5), cursor.getString(6),
+          cursor.getLong(7), cursor.getLong(8), cursor.getLong(9)));
+    }
+    return entries;
+  }
+}
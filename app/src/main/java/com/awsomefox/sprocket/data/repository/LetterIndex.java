@@ -0,0 +1,117 @@
+/*
+ * Copyright (C) 2020 Simon Norberg
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.awsomefox.sprocket.data.repository;
+
+import androidx.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The {@code firstCharacter} index of a section. Maps between list positions, where every letter
+ * is preceded by a header, and item offsets on the server.
+ */
+public final class LetterIndex {
+
+  private final List<String> letters;
+  private final int[] offsets;
+  private final int itemCount;
+
+  /** Letters without any items are dropped. */
+  public LetterIndex(@NonNull List<String> titles, @NonNull int[] sizes) {
+    List<String> letters = new ArrayList<>();
+    int[] offsets = new int[titles.size()];
+    int offset = 0;
+    for (int i = 0; i < titles.size(); i++) {
+      if (sizes[i] > 0) {
+        offsets[letters.size()] = offset;
+        letters.add(titles.get(i));
+        offset += sizes[i];
+      }
+    }
+    this.letters = Collections.unmodifiableList(letters);
+    this.offsets = Arrays.copyOf(offsets, letters.size());
+    this.itemCount = offset;
+  }
+
+  @NonNull public List<String> letters() {
+    return letters;
+  }
+
+  public int itemCount() {
+    return itemCount;
+  }
+
+  /** Number of list positions, items and headers. */
+  public int size() {
+    return itemCount + letters.size();
+  }
+
+  /** Offset on the server of the first item of a letter. */
+  public int offsetOf(int letter) {
+    return offsets[letter];
+  }
+
+  public int headerPosition(int letter) {
+    return offsets[letter] + letter;
+  }
+
+  /** The letter a position belongs to, or -1 when the index has no letters. */
+  public int letterAt(int position) {
+    int low = 0;
+    int high = letters.size() - 1;
+    int letter = -1;
+    while (low <= high) {
+      int mid = (low + high) >>> 1;
+      if (headerPosition(mid) <= position) {
+        letter = mid;
+        low = mid + 1;
+      } else {
+        high = mid - 1;
+      }
+    }
+    return letter;
+  }
+
+  public boolean isHeader(int position) {
+    int letter = letterAt(position);
+    return letter >= 0 && headerPosition(letter) == position;
+  }
+
+  /** Server offset of the item at a position, which must not be a header. */
+  public int itemAt(int position) {
+    return position - (letterAt(position) + 1);
+  }
+
+  /** List position of the item at a server offset. */
+  public int positionOf(int item) {
+    int low = 0;
+    int high = letters.size() - 1;
+    int letter = -1;
+    while (low <= high) {
+      int mid = (low + high) >>> 1;
+      if (offsets[mid] <= item) {
+        letter = mid;
+        low = mid + 1;
+      } else {
+        high = mid - 1;
+      }
+    }
+    return item + letter + 1;
+  }
+}
@@ -26,25 +26,36 @@ import com.awsomefox.sprocket.util.Pair;
 import java.util.List;
 
 import io.reactivex.Completable;
+import io.reactivex.Observable;
 import io.reactivex.Single;
-import okhttp3.HttpUrl;
 
 public interface MusicRepository {
-    Single<List<PlexItem>> browseLibrary(Library lib);
+    Observable<List<PlexItem>> browseLibrary(Library lib);
 
-    Single<List<PlexItem>> browseMediaType(MediaType mediaType, int page, Integer pageSize);
+    Observable<List<PlexItem>> browseMediaType(MediaType mediaType, int page, Integer pageSize);
 
-    Single<List<PlexItem>> artistItems(Author artist);
+    Single<LetterIndex> letterIndex(MediaType mediaType);
 
-    Single<List<PlexItem>> albumItems(Book album);
+    /** Items of a media type from server offset {@code start}, without letter headers. */
+    Observable<List<PlexItem>> browsePage(MediaType mediaType, int start, int size);
 
-    Single<List<PlexItem>> chaptersInProgress(Library lib);
+    Observable<List<PlexItem>> artistItems(Author artist);
 
-    Single<List<PlexItem>> booksInProgress(Library lib);
+    Observable<List<PlexItem>> albumItems(Book album);
+
+    Observable<List<PlexItem>> chaptersInProgress(Library lib);
+
+    Observable<List<PlexItem>> booksInProgress(Library lib);
+
+    Completable invalidate(PlexItem item);
 
     Single<Pair<List<Track>, Long>> createPlayQueue(Track track);
 
-    Completable scrobble(HttpUrl url, String ratingKey);
+    /** Completes once the change is journaled, it reaches the server when it can. */
+    Completable scrobble(Track track);
+
+    Completable unscrobble(Track track);
 
-    Completable unscrobble(HttpUrl url, String ratingKey);
+    /** Forgets the play queues created for the signed out account. */
+    void forget();
 }
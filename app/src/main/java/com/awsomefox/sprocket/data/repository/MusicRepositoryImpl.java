@@ -16,8 +16,10 @@
 package com.awsomefox.sprocket.data.repository;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 import androidx.collection.SimpleArrayMap;
 
+import com.awsomefox.sprocket.data.Prefs;
 import com.awsomefox.sprocket.data.Type;
 import com.awsomefox.sprocket.data.api.MediaService;
 import com.awsomefox.sprocket.data.api.model.Directory;
@@ -30,19 +32,30 @@ import com.awsomefox.sprocket.data.model.Library;
 import com.awsomefox.sprocket.data.model.MediaType;
 import com.awsomefox.sprocket.data.model.PlexItem;
 import com.awsomefox.sprocket.data.model.Track;
+import com.awsomefox.sprocket.data.outbox.Outbox;
+import com.awsomefox.sprocket.data.store.Freshness;
+import com.awsomefox.sprocket.data.store.MetadataStore;
 import com.awsomefox.sprocket.util.Pair;
 import com.awsomefox.sprocket.util.Strings;
 import com.awsomefox.sprocket.util.Urls;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.TimeUnit;
 
 import io.reactivex.Completable;
+import io.reactivex.Maybe;
 import io.reactivex.Observable;
 import io.reactivex.Single;
 import io.reactivex.functions.Function;
+import io.reactivex.schedulers.Schedulers;
 import okhttp3.HttpUrl;
+import timber.log.Timber;
 
 class MusicRepositoryImpl implements MusicRepository {
 
@@ -60,19 +73,45 @@ class MusicRepositoryImpl implements MusicRepository {
     return Observable.fromIterable(container.tracks);
   };
 
+  /** Number of items requested for each of the in-progress sections. */
+  private static final int IN_PROGRESS_SIZE = 25;
+  /** Server play queue of a book, stored as {@code id:createdAt}. */
+  private static final String PREF_PLAY_QUEUE = "pref_play_queue_";
+  /** Older play queues are recreated rather than risk the server having dropped them. */
+  private static final long PLAY_QUEUE_MAX_AGE = TimeUnit.DAYS.toMillis(7);
+
   private final MediaService media;
+  private final MetadataStore store;
+  private final Prefs prefs;
+  private final Outbox outbox;
+  private final Map<String, LetterIndex> letterIndexes = new HashMap<>();
 
-  MusicRepositoryImpl(MediaService media) {
+  MusicRepositoryImpl(MediaService media, MetadataStore store, Prefs prefs, Outbox outbox) {
     this.media = media;
+    this.store = store;
+    this.prefs = prefs;
+    this.outbox = outbox;
   }
 
-  @Override public Single<List<PlexItem>> browseLibrary(Library lib) {
-    return Observable.concat(mediaTypes(lib), chaptersInProgressImpl(lib),
-            booksRecentlyListenedTo(lib)).toList();
+  /**
+   * The in-progress sections are requested concurrently and each one is shown as soon as it
+   * arrives, the browse entries are shown right away.
+   */
+  @Override public Observable<List<PlexItem>> browseLibrary(Library lib) {
+    List<PlexItem> pending = Collections.emptyList();
+    return Observable.combineLatest(
+        chaptersInProgress(lib).subscribeOn(Schedulers.io()).startWith(pending),
+        booksInProgress(lib).subscribeOn(Schedulers.io()).startWith(pending),
+        (chapters, books) -> {
+          List<PlexItem> items = new ArrayList<>(mediaTypes(lib));
+          items.addAll(chapters);
+          items.addAll(books);
+          return items;
+        });
   }
 
-  private Observable<PlexItem> mediaTypes(Library lib) {
-    return Observable.fromArray(Header.builder().title("Browse Library").build(),
+  private List<PlexItem> mediaTypes(Library lib) {
+    return Arrays.asList(Header.builder().title("Browse Library").build(),
             MediaType.builder()
                     .title("Authors")
                     .type(Type.ARTIST)
@@ -91,57 +130,80 @@ class MusicRepositoryImpl implements MusicRepository {
                     .build());
   }
 
-  private Observable<PlexItem> chaptersInProgressImpl(Library lib) {
-    return media.chaptersInProgress(lib.uri(), lib.key())
+  private Single<List<PlexItem>> chaptersInProgressImpl(Library lib) {
+    return media.chaptersInProgress(lib.uri(), lib.key(), IN_PROGRESS_SIZE)
             .flatMap(TRACKS)
-            .map(trackMapper(lib.key(), lib.uri(), true))
-            .startWith(Header.builder().title("Chapters In Progress").build());
-
+            .map(trackMapper(lib.uuid(), lib.uri(), true))
+            .toList()
+            .map(chapters -> {
+              // Fetched newest first so the limit keeps the latest, shown oldest first
+              List<PlexItem> items = new ArrayList<>(chapters.size() + 1);
+              items.add(Header.builder().title("Chapters In Progress").build());
+              for (int i = chapters.size() - 1; i >= 0; i--) {
+                items.add(chapters.get(i));
+              }
+              return items;
+            });
   }
 
   @Override
-  public Single<List<PlexItem>> chaptersInProgress(Library lib) {
-    return chaptersInProgressImpl(lib).toList();
-
+  public Observable<List<PlexItem>> chaptersInProgress(Library lib) {
+    return cached("chaptersInProgress/" + lib.uuid(), Freshness.IN_PROGRESS,
+        chaptersInProgressImpl(lib));
   }
 
   private Observable<PlexItem> booksRecentlyListenedTo(Library lib) {
-    return media.booksRecentlyListendTo(lib.uri(), lib.key())
+    return media.booksRecentlyListendTo(lib.uri(), lib.key(), IN_PROGRESS_SIZE)
             .flatMap(DIRS)
-            .map(albumMapper(lib.key(), lib.uri()))
+            .map(albumMapper(lib.uuid(), lib.uri()))
             .startWith(Header.builder().title("Books In Progress").build());
   }
 
   @Override
-  public Single<List<PlexItem>> booksInProgress(Library lib) {
-    return booksRecentlyListenedTo(lib).toList();
+  public Observable<List<PlexItem>> booksInProgress(Library lib) {
+    return cached("booksInProgress/" + lib.uuid(), Freshness.IN_PROGRESS,
+        booksRecentlyListenedTo(lib).toList());
   }
 
   @Override
-  public Single<List<PlexItem>> browseMediaType(MediaType mt, int page, Integer pageSize) {
-    Single<List<PlexItem>> browseItems;
+  public Observable<List<PlexItem>> browseMediaType(MediaType mt, int page, Integer pageSize) {
+    return cached(browseKey(mt) + page + "/" + pageSize, Freshness.CATALOG,
+        Single.zip(browseHeaders(mt), browseItems(mt, page, pageSize), (headers, items) -> {
+          List<PlexItem> plexItems = new ArrayList<>();
+
+          for (int i = 0; i < items.size(); ++i) {
+            // The headers need to be offset by the current offset!
+            if (headers.containsKey(i + page)) {
+              plexItems.add(headers.get(i + page));
+            }
+            plexItems.add(items.get(i));
+          }
+
+          return plexItems;
+        }));
+  }
+
+  @Override public Observable<List<PlexItem>> browsePage(MediaType mt, int start, int size) {
+    return cached(pageKey(mt) + start + "/" + size, Freshness.CATALOG,
+        browseItems(mt, start, size));
+  }
 
+  private static String browseKey(MediaType mt) {
+    return "browse/" + mt.libraryId() + "/" + mt.mediaKey() + "/";
+  }
+
+  private static String pageKey(MediaType mt) {
+    return "page/" + mt.libraryId() + "/" + mt.mediaKey() + "/";
+  }
+
+  private Single<List<PlexItem>> browseItems(MediaType mt, int offset, Integer pageSize) {
     if (mt.type() == Type.ARTIST) {
-      browseItems = browseAuthors(mt, page, pageSize);
+      return browseAuthors(mt, offset, pageSize);
     } else if (mt.type() == Type.ALBUM) {
-      browseItems = browseBooks(mt, page, pageSize);
+      return browseBooks(mt, offset, pageSize);
     } else {
-      browseItems = browseTracks(mt, page);
+      return browseTracks(mt, offset, pageSize != null ? pageSize : 50);
     }
-
-    return Single.zip(browseHeaders(mt), browseItems, (headers, items) -> {
-      List<PlexItem> plexItems = new ArrayList<>();
-
-      for (int i = 0; i < items.size(); ++i) {
-        // The headers need to be offset by the current offset!
-        if (headers.containsKey(i + page)) {
-          plexItems.add(headers.get(i + page));
-        }
-        plexItems.add(items.get(i));
-      }
-
-      return plexItems;
-    });
   }
 
   private Single<List<PlexItem>> browseAuthors(MediaType mt, int offset, Integer pageSize) {
@@ -158,33 +220,62 @@ class MusicRepositoryImpl implements MusicRepository {
         .toList();
   }
 
-  private Single<List<PlexItem>> browseTracks(MediaType mt, int offset) {
-    return media.browse(mt.uri(), mt.libraryKey(), mt.mediaKey(), offset, 50)
+  private Single<List<PlexItem>> browseTracks(MediaType mt, int offset, int pageSize) {
+    return media.browse(mt.uri(), mt.libraryKey(), mt.mediaKey(), offset, pageSize)
         .flatMap(TRACKS)
             .map(trackMapper(mt.libraryId(), mt.uri(), false))
         .toList();
   }
 
-  private Single<SimpleArrayMap<Integer, PlexItem>> browseHeaders(MediaType mt) {
-    return media.firstCharacter(mt.uri(), mt.libraryKey(), mt.mediaKey())
-        .flatMap(DIRS)
-        .toList()
-        .map(dirs -> {
-          SimpleArrayMap<Integer, PlexItem> headers = new SimpleArrayMap<>();
+  /** The index is fetched once per media type and kept until the media type is invalidated. */
+  @Override public Single<LetterIndex> letterIndex(MediaType mt) {
+    String key = indexKey(mt);
+    return Single.defer(() -> {
+      LetterIndex index;
+      synchronized (letterIndexes) {
+        index = letterIndexes.get(key);
+      }
+      if (index != null) {
+        return Single.just(index);
+      }
+      return media.firstCharacter(mt.uri(), mt.libraryKey(), mt.mediaKey())
+          .flatMap(DIRS)
+          .toList()
+          .map(dirs -> {
+            List<String> titles = new ArrayList<>(dirs.size());
+            int[] sizes = new int[dirs.size()];
+            for (int i = 0; i < dirs.size(); ++i) {
+              titles.add(dirs.get(i).title);
+              sizes[i] = dirs.get(i).size;
+            }
+            return new LetterIndex(titles, sizes);
+          })
+          .doOnSuccess(built -> {
+            synchronized (letterIndexes) {
+              letterIndexes.put(key, built);
+            }
+          });
+    });
+  }
 
-          int offset = 0;
-          for (int i = 0; i < dirs.size(); ++i) {
-            headers.put(offset, Header.builder().title(dirs.get(i).title).build());
-            offset += dirs.get(i).size;
-          }
+  private static String indexKey(MediaType mt) {
+    return mt.libraryId() + "/" + mt.mediaKey();
+  }
 
-          return headers;
-        });
+  private Single<SimpleArrayMap<Integer, PlexItem>> browseHeaders(MediaType mt) {
+    return letterIndex(mt).map(index -> {
+      SimpleArrayMap<Integer, PlexItem> headers = new SimpleArrayMap<>();
+      for (int i = 0; i < index.letters().size(); ++i) {
+        headers.put(index.offsetOf(i), Header.builder().title(index.letters().get(i)).build());
+      }
+      return headers;
+    });
   }
 
     @Override
-    public Single<List<PlexItem>> artistItems(Author artist) {
-    return Single.zip(popularTracks(artist), albums(artist), (tracks, albums) -> {
+    public Observable<List<PlexItem>> artistItems(Author artist) {
+    return cached(detailKey(artist), Freshness.DETAIL,
+        Single.zip(popularTracks(artist), albums(artist), (tracks, albums) -> {
       List<PlexItem> items = new ArrayList<>();
       if (!tracks.isEmpty()) {
         items.add(Header.builder().title("Popular").build());
@@ -195,7 +286,7 @@ class MusicRepositoryImpl implements MusicRepository {
         items.addAll(albums);
       }
       return items;
-    });
+    }));
   }
 
     private Single<List<PlexItem>> popularTracks(Author artist) {
@@ -213,31 +304,165 @@ class MusicRepositoryImpl implements MusicRepository {
   }
 
     @Override
-    public Single<List<PlexItem>> albumItems(Book album) {
-    return media.tracks(album.uri(), album.ratingKey())
+    public Observable<List<PlexItem>> albumItems(Book album) {
+    return cached(detailKey(album), Freshness.DETAIL, media.tracks(album.uri(), album.ratingKey())
         .flatMap(TRACKS)
             .map(trackMapper(album.libraryId(), album.uri(), false))
-        .toList();
+        .toList());
+  }
+
+  @Override public Completable invalidate(PlexItem item) {
+    if (item instanceof MediaType) {
+      MediaType mt = (MediaType) item;
+      return Completable.fromAction(() -> {
+        synchronized (letterIndexes) {
+          letterIndexes.remove(indexKey(mt));
+        }
+        store.removeAll(browseKey(mt));
+        store.removeAll(pageKey(mt));
+        media.invalidate(MediaService.Endpoint.FIRST_CHARACTER, MediaService.Endpoint.BROWSE);
+      });
+    }
+    String key = detailKey(item);
+    if (key == null) {
+      return Completable.complete();
+    }
+    return Completable.fromAction(() -> {
+      store.remove(key);
+      media.invalidate(MediaService.Endpoint.CHILDREN);
+    });
   }
 
+  @Nullable private static String detailKey(PlexItem item) {
+    if (item instanceof Author) {
+      return "author/" + ((Author) item).libraryId() + "/" + ((Author) item).ratingKey();
+    } else if (item instanceof Book) {
+      return "book/" + ((Book) item).libraryId() + "/" + ((Book) item).ratingKey();
+    }
+    return null;
+  }
+
+  /**
+   * Serves a stored result right away and revalidates it against the server once it is no
+   * longer fresh. Only goes to the network first when nothing has been stored for the key yet.
+   */
+  private Observable<List<PlexItem>> cached(String key, Freshness freshness,
+                                            Single<List<PlexItem>> network) {
+    Observable<List<PlexItem>> fetch = network
+        .doOnSuccess(items -> save(key, items))
+        .toObservable();
+    return Maybe.fromCallable(() -> store.get(key))
+        .onErrorComplete()
+        .flatMapObservable(entry -> {
+          if (freshness.isFresh(entry.fetchedAt, System.currentTimeMillis())) {
+            return Observable.just(entry.items);
+          }
+          return Observable.just(entry.items)
+              .concatWith(fetch
+                  .doOnError(error -> Timber.w(error, "Could not revalidate %s", key))
+                  .onErrorResumeNext(Observable.empty()));
+        })
+        .switchIfEmpty(fetch);
+  }
+
+  private void save(String key, List<PlexItem> items) {
+    try {
+      store.put(key, items, System.currentTimeMillis());
+    } catch (RuntimeException e) {
+      Timber.w(e, "Could not store %s", key);
+    }
+  }
+
+  /**
+   * Reuses the play queue last created for the book of {@code track}, selecting the track in it,
+   * and only creates a new one when there is none or the server no longer has it.
+   */
   @Override public Single<Pair<List<Track>, Long>> createPlayQueue(Track track) {
-    return media.playQueue(track.uri(), track.key(), track.parentKey(), track.libraryId())
-        .flatMap(container -> Observable.just(container)
-            .flatMap(TRACKS)
-                .map(trackMapper(track.libraryId(), track.uri(), false))
-            .map(plexItem -> (Track) plexItem)
-            .toList()
-            .map(tracks -> new Pair<>(tracks, container.playQueueSelectedItemID)));
+    String prefKey = PREF_PLAY_QUEUE + track.libraryId() + track.parentKey();
+    Single<Pair<List<Track>, Long>> created = Single.defer(() -> media.playQueue(track.uri(),
+        track.key(), track.parentKey(), track.libraryId()))
+        .doOnSuccess(container -> {
+          if (container.playQueueID != null) {
+            prefs.putString(prefKey, container.playQueueID + ":" + System.currentTimeMillis());
+            pruneExpiredPlayQueues();
+          }
+        })
+        .flatMap(container -> playQueue(track, container, container.playQueueSelectedItemID));
+
+    long playQueueId = storedPlayQueueId(prefKey);
+    if (playQueueId == 0) {
+      return created;
+    }
+    return media.playQueue(track.uri(), playQueueId)
+        .flatMap(container -> playQueue(track, container, null))
+        .onErrorResumeNext(error -> {
+          Timber.d(error, "Play queue %d is gone", playQueueId);
+          prefs.remove(prefKey);
+          return created;
+        });
+  }
+
+  private long storedPlayQueueId(String prefKey) {
+    String value = prefs.getString(prefKey, null);
+    if (value == null) {
+      return 0;
+    }
+    String[] parts = value.split(":");
+    try {
+      long createdAt = Long.parseLong(parts[1]);
+      if (System.currentTimeMillis() - createdAt < PLAY_QUEUE_MAX_AGE) {
+        return Long.parseLong(parts[0]);
+      }
+    } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+      Timber.w(e, "Invalid play queue %s", value);
+    }
+    prefs.remove(prefKey);
+    return 0;
+  }
+
+  /** A play queue is stored for every book played, the expired ones would pile up. */
+  private void pruneExpiredPlayQueues() {
+    for (String prefKey : prefs.keys(PREF_PLAY_QUEUE)) {
+      storedPlayQueueId(prefKey);
+    }
+  }
+
+  @Override public void forget() {
+    prefs.removeAll(PREF_PLAY_QUEUE);
+  }
+
+  /**
+   * Maps the tracks of a play queue, selecting {@code selectedItemId} or, when null, the item of
+   * {@code track}.
+   */
+  private Single<Pair<List<Track>, Long>> playQueue(Track track, MediaContainer container,
+                                                    @Nullable Long selectedItemId) {
+    return Observable.just(container)
+        .flatMap(TRACKS)
+        .map(trackMapper(track.libraryId(), track.uri(), false))
+        .map(plexItem -> (Track) plexItem)
+        .toList()
+        .map(tracks -> {
+          if (selectedItemId != null) {
+            return new Pair<>(tracks, selectedItemId);
+          }
+          for (Track item : tracks) {
+            if (item.key().equals(track.key())) {
+              return new Pair<>(tracks, item.queueItemId());
+            }
+          }
+          throw new NoSuchElementException("Play queue doesn't hold " + track.key());
+        });
   }
 
   @Override
-  public Completable scrobble(HttpUrl url, String ratingKey) {
-    return media.scrobble(url, ratingKey);
+  public Completable scrobble(Track track) {
+    return outbox.scrobble(track);
   }
 
   @Override
-  public Completable unscrobble(HttpUrl url, String ratingKey) {
-    return media.unScrobble(url, ratingKey);
+  public Completable unscrobble(Track track) {
+    return outbox.unscrobble(track);
   }
 
   @NonNull private Function<Directory, PlexItem> albumMapper(String libraryId, HttpUrl uri) {
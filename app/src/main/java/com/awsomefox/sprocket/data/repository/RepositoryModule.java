@@ -15,7 +15,10 @@
  */
 package com.awsomefox.sprocket.data.repository;
 
+import com.awsomefox.sprocket.data.Prefs;
 import com.awsomefox.sprocket.data.api.MediaService;
+import com.awsomefox.sprocket.data.outbox.Outbox;
+import com.awsomefox.sprocket.data.store.MetadataStore;
 
 import javax.inject.Singleton;
 
@@ -24,7 +27,9 @@ import dagger.Provides;
 
 @Module
 public class RepositoryModule {
-  @Provides @Singleton MusicRepository provideMusicRepository(MediaService media) {
-    return new MusicRepositoryImpl(media);
+  @Provides @Singleton MusicRepository provideMusicRepository(MediaService media,
+                                                              MetadataStore store,
+                                                              Prefs prefs, Outbox outbox) {
+    return new MusicRepositoryImpl(media, store, prefs, outbox);
   }
 }
@@ -0,0 +1,27 @@
+/*
+ * Copyright (C) 2020 Simon Norberg
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.awsomefox.sprocket.data.storage;
+
+import androidx.annotation.NonNull;
+
+import java.util.Set;
+
+/** Tells the {@link StorageBudget} which audio is in use, so it is evicted last. */
+public interface ActiveKeys {
+
+  /** {@link com.awsomefox.sprocket.util.CacheKeys} of the chapters in the queue. */
+  @NonNull Set<String> keys();
+}
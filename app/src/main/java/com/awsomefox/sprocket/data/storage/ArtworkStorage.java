@@ -0,0 +1,64 @@
+/*
+ * Copyright (C) 2020 Simon Norberg
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.awsomefox.sprocket.data.storage;
+
+import android.content.Context;
+
+import androidx.annotation.NonNull;
+
+import com.awsomefox.sprocket.SprocketGlideModule;
+import com.bumptech.glide.Glide;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Glide's disk cache of artwork. Glide keeps its own index of the files, so the cache is
+ * accounted for and cleared as a whole.
+ */
+final class ArtworkStorage implements Evictable {
+
+  private static final String KEY = "artwork";
+
+  private final Context context;
+  private final File directory;
+
+  ArtworkStorage(Context context) {
+    this.context = context;
+    this.directory = new File(context.getCacheDir(), SprocketGlideModule.DISK_CACHE_NAME);
+  }
+
+  @NonNull @Override public List<StorageEntry> entries(@NonNull Set<String> currentKeys) {
+    File[] files = directory.listFiles();
+    if (files == null || files.length == 0) {
+      return Collections.emptyList();
+    }
+    long bytes = 0;
+    long lastUsed = 0;
+    for (File file : files) {
+      bytes += file.length();
+      lastUsed = Math.max(lastUsed, file.lastModified());
+    }
+    return Collections.singletonList(
+        new StorageEntry(StorageEntry.Tier.ARTWORK, KEY, bytes, lastUsed, this));
+  }
+
+  @Override public void evict(@NonNull StorageEntry entry) {
+    Glide.get(context).clearDiskCache();
+  }
+}
@@ -0,0 +1,160 @@
+/*
+ * Copyright (C) 2020 Simon Norberg
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.awsomefox.sprocket.data.storage;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+
+import androidx.annotation.NonNull;
+
+import com.awsomefox.sprocket.data.storage.StorageEntry.Tier;
+import com.awsomefox.sprocket.util.Rx;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import io.reactivex.Completable;
+import io.reactivex.schedulers.Schedulers;
+import timber.log.Timber;
+
+/**
+ * One storage budget shared by every store the app keeps on disk. When the stores together
+ * exceed the budget, or would leave too little free space on the device, entries are evicted
+ * across all of them, least recently used first with the age weighed against the
+ * {@link Tier} cost of getting the entry back. Downloads the user asked for are never evicted.
+ */
+public final class StorageBudget {
+
+  public static final String PREF_BUDGET_MB = "pref_storage_budget_mb";
+  static final long DEFAULT_BUDGET_MB = 2048;
+  /** Space left free on the device whatever the budget. */
+  static final long MIN_FREE_BYTES = 512L * 1024 * 1024;
+
+  private final Context context;
+  private final Set<Evictable> stores;
+  private final ActiveKeys activeKeys;
+  private final long budgetBytes;
+  private final AtomicBoolean started = new AtomicBoolean();
+
+  private final BroadcastReceiver lowStorageReceiver = new BroadcastReceiver() {
+    @Override public void onReceive(Context context, Intent intent) {
+      Timber.d("Device storage low");
+      Completable.fromAction(() -> trim(true))
+          .subscribeOn(Schedulers.io())
+          .subscribe(() -> { }, Rx::onError);
+    }
+  };
+
+  StorageBudget(Context context, Set<Evictable> stores, ActiveKeys activeKeys,
+                long budgetBytes) {
+    this.context = context;
+    this.stores = stores;
+    this.activeKeys = activeKeys;
+    this.budgetBytes = budgetBytes;
+  }
+
+  /** Listens for low storage and brings the stores within the budget. */
+  public void start() {
+    if (!started.compareAndSet(false, true)) {
+      return;
+    }
+    context.registerReceiver(lowStorageReceiver,
+        new IntentFilter(Intent.ACTION_DEVICE_STORAGE_LOW));
+    enforce().subscribeOn(Schedulers.io()).subscribe(() -> { }, Rx::onError);
+  }
+
+  /** Evicts until the stores fit the budget and leave enough free space on the device. */
+  @NonNull public Completable enforce() {
+    return Completable.fromAction(() -> trim(false));
+  }
+
+  private synchronized void trim(boolean lowStorage) {
+    List<StorageEntry> entries = entries(activeKeys.keys());
+    long used = 0;
+    for (StorageEntry entry : entries) {
+      used += entry.bytes;
+    }
+    long limit = limit(budgetBytes, used, volume().getUsableSpace(), lowStorage);
+    long freed = 0;
+    for (StorageEntry entry : plan(entries, limit, System.currentTimeMillis())) {
+      try {
+        entry.owner.evict(entry);
+        freed += entry.bytes;
+      } catch (RuntimeException e) {
+        Timber.w(e, "Could not evict %s", entry.key);
+      }
+    }
+    Timber.d("Storage used %d of %d, limit %d, freed %d", used, budgetBytes, limit, freed);
+  }
+
+  /** How many bytes the stores may use. */
+  static long limit(long budgetBytes, long usedBytes, long usableBytes, boolean lowStorage) {
+    long limit = Math.min(budgetBytes, usedBytes + usableBytes - MIN_FREE_BYTES);
+    if (lowStorage) {
+      limit = Math.min(limit, usedBytes / 2);
+    }
+    return Math.max(0, limit);
+  }
+
+  /** Picks the entries to evict to get within {@code limit}, in eviction order. */
+  @NonNull static List<StorageEntry> plan(@NonNull List<StorageEntry> entries, long limit,
+                                          long now) {
+    long used = 0;
+    List<StorageEntry> candidates = new ArrayList<>(entries.size());
+    for (StorageEntry entry : entries) {
+      used += entry.bytes;
+      if (entry.tier != Tier.PINNED) {
+        candidates.add(entry);
+      }
+    }
+    Collections.sort(candidates, (a, b) -> {
+      int order = Double.compare(score(b, now), score(a, now));
+      return order != 0 ? order : Integer.compare(a.tier.cost, b.tier.cost);
+    });
+    List<StorageEntry> evictions = new ArrayList<>();
+    for (StorageEntry entry : candidates) {
+      if (used <= limit) {
+        break;
+      }
+      evictions.add(entry);
+      used -= entry.bytes;
+    }
+    return evictions;
+  }
+
+  /** Age of {@code entry} discounted by the cost of getting it back, the highest goes first. */
+  private static double score(StorageEntry entry, long now) {
+    return (double) Math.max(0, now - entry.lastUsed) / entry.tier.cost;
+  }
+
+  private List<StorageEntry> entries(Set<String> currentKeys) {
+    List<StorageEntry> entries = new ArrayList<>();
+    for (Evictable store : stores) {
+      entries.addAll(store.entries(currentKeys));
+    }
+    return entries;
+  }
+
+  private File volume() {
+    return context.getFilesDir();
+  }
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright (C) 2020 Simon Norberg
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.awsomefox.sprocket.data.storage;
+
+import androidx.annotation.NonNull;
+
+/** Something on disk that a {@link Evictable} store can delete to free space. */
+public final class StorageEntry {
+
+  /**
+   * What an entry holds. The cost of getting it back weighs against how long ago it was used,
+   * an entry of a tier costing twice as much is evicted as if it was used twice as recently.
+   */
+  public enum Tier {
+    /** Browse results, refetched in a single request. */
+    METADATA(1),
+    ARTWORK(2),
+    /** Streamed audio of books other than the one in the queue. */
+    AUDIO(4),
+    /** Chapters downloaded ahead of time for books other than the one in the queue. */
+    DOWNLOAD(8),
+    /** Audio, streamed or downloaded ahead of time, of the book in the queue. */
+    CURRENT_AUDIO(32),
+    /** Downloads the user asked for, never evicted. */
+    PINNED(0);
+
+    final int cost;
+
+    Tier(int cost) {
+      this.cost = cost;
+    }
+  }
+
+  @NonNull public final Tier tier;
+  @NonNull public final String key;
+  public final long bytes;
+  /** Wall clock time of the last use. */
+  public final long lastUsed;
+  @NonNull final Evictable owner;
+
+  public StorageEntry(@NonNull Tier tier, @NonNull String key, long bytes, long lastUsed,
+                      @NonNull Evictable owner) {
+    this.tier = tier;
+    this.key = key;
+    this.bytes = bytes;
+    this.lastUsed = lastUsed;
+    this.owner = owner;
+  }
+}
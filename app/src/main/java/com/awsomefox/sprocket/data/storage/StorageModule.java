@@ -0,0 +1,48 @@
+/*
+ * Copyright (C) 2020 Simon Norberg
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.awsomefox.sprocket.data.storage;
+
+import android.content.Context;
+
+import com.awsomefox.sprocket.data.Prefs;
+
+import java.util.Set;
+
+import javax.inject.Singleton;
+
+import dagger.Module;
+import dagger.Provides;
+import dagger.multibindings.IntoSet;
+
+@Module
+public class StorageModule {
+  @Provides @Singleton @IntoSet Evictable provideArtworkStorage(Context context) {
+    return new ArtworkStorage(context);
+  }
+
+  @Provides @Singleton StorageBudget provideStorageBudget(Context context, Prefs prefs,
+                                                          Set<Evictable> stores,
+                                                          ActiveKeys activeKeys) {
+    long budgetMb;
+    try {
+      budgetMb = Long.parseLong(prefs.getString(StorageBudget.PREF_BUDGET_MB,
+          String.valueOf(StorageBudget.DEFAULT_BUDGET_MB)));
+    } catch (NumberFormatException e) {
+      budgetMb = StorageBudget.DEFAULT_BUDGET_MB;
+    }
+    return new StorageBudget(context, stores, activeKeys, budgetMb * 1024 * 1024);
+  }
+}
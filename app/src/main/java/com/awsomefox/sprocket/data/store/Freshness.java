@@ -0,0 +1,43 @@
+/*
+ * Copyright (C) 2020 Simon Norberg
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.awsomefox.sprocket.data.store;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * How long a stored result may be served without asking the server again. Stale results are
+ * still served immediately, but are revalidated in the background.
+ */
+public enum Freshness {
+  /** Libraries and their server addresses. */
+  LIBRARIES(TimeUnit.HOURS.toMillis(1)),
+  /** Author and book listings, which rarely change. */
+  CATALOG(TimeUnit.HOURS.toMillis(12)),
+  /** Books of an author and chapters of a book, including listen state. */
+  DETAIL(TimeUnit.MINUTES.toMillis(30)),
+  /** Listen progress, always revalidated. */
+  IN_PROGRESS(0);
+
+  private final long maxAge;
+
+  Freshness(long maxAge) {
+    this.maxAge = maxAge;
+  }
+
+  public boolean isFresh(long fetchedAt, long now) {
+    return now >= fetchedAt && now - fetchedAt < maxAge;
+  }
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright (C) 2020 Simon Norberg
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.awsomefox.sprocket.data.store;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.awsomefox.sprocket.data.model.PlexItem;
+
+import java.util.List;
+
+/**
+ * Local catalog of previously fetched browse results. Every result is stored under a query key
+ * together with the time it was fetched so callers can decide how fresh it is. All methods block
+ * and must be called off the main thread.
+ */
+public interface MetadataStore {
+
+  @Nullable Entry get(@NonNull String queryKey);
+
+  void put(@NonNull String queryKey, @NonNull List<PlexItem> items, long fetchedAt);
+
+  void remove(@NonNull String queryKey);
+
+  /** Removes every query whose key starts with {@code prefix}. */
+  void removeAll(@NonNull String prefix);
+
+  void clear();
+
+  final class Entry {
+    @NonNull public final List<PlexItem> items;
+    public final long fetchedAt;
+
+    public Entry(@NonNull List<PlexItem> items, long fetchedAt) {
+      this.items = items;
+      this.fetchedAt = fetchedAt;
+    }
+  }
+}
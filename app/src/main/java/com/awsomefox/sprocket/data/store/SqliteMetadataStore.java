@@ -0,0 +1,461 @@
+/*
+ * Copyright (C) 2020 Simon Norberg
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.awsomefox.sprocket.data.store;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.awsomefox.sprocket.data.model.Author;
+import com.awsomefox.sprocket.data.model.Book;
+import com.awsomefox.sprocket.data.model.Header;
+import com.awsomefox.sprocket.data.model.Library;
+import com.awsomefox.sprocket.data.model.PlexItem;
+import com.awsomefox.sprocket.data.model.Track;
+import com.awsomefox.sprocket.data.storage.Evictable;
+import com.awsomefox.sprocket.data.storage.StorageEntry;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import okhttp3.HttpUrl;
+import timber.log.Timber;
+
+/**
+ * {@link MetadataStore} backed by a SQLite catalog of libraries, authors, books and chapters.
+ * A query result is stored as an ordered list of references into the catalog tables, so an item
+ * shared between several results is only stored once.
+ */
+class SqliteMetadataStore extends SQLiteOpenHelper implements MetadataStore, Evictable {
+
+  private static final String NAME = "metadata.db";
+  private static final int VERSION = 1;
+
+  private static final int KIND_HEADER = 0;
+  private static final int KIND_LIBRARY = 1;
+  private static final int KIND_AUTHOR = 2;
+  private static final int KIND_BOOK = 3;
+  private static final int KIND_CHAPTER = 4;
+
+  private static final int AUTO_VACUUM_INCREMENTAL = 2;
+
+  private static final String[] TABLES = {
+      "queries", "query_items", "libraries", "authors", "books", "chapters"
+  };
+
+  private final File file;
+
+  SqliteMetadataStore(Context context) {
+    super(context, NAME, null, VERSION);
+    file = context.getDatabasePath(NAME);
+  }
+
+  @Override public void onConfigure(SQLiteDatabase db) {
+    db.enableWriteAheadLogging();
+  }
+
+  @Override public void onOpen(SQLiteDatabase db) {
+    // Deleted rows only free pages, incremental vacuum gives them back to the device. Turning it
+    // on takes a full vacuum, once.
+    if (pragma(db, "auto_vacuum") != AUTO_VACUUM_INCREMENTAL) {
+      db.execSQL("PRAGMA auto_vacuum = INCREMENTAL");
+      db.execSQL("VACUUM");
+    }
+  }
+
+  @Override public void onCreate(SQLiteDatabase db) {
+    db.execSQL("CREATE TABLE queries ("
+        + "query_key TEXT PRIMARY KEY, "
+        + "fetched_at INTEGER NOT NULL)");
+    db.execSQL("CREATE TABLE query_items ("
+        + "query_key TEXT NOT NULL, "
+        + "position INTEGER NOT NULL, "
+        + "kind INTEGER NOT NULL, "
+        + "library_id TEXT, "
+        + "item_key TEXT NOT NULL, "
+        + "recent INTEGER NOT NULL DEFAULT 0, "
+        + "PRIMARY KEY (query_key, position))");
+    db.execSQL("CREATE TABLE libraries ("
+        + "uuid TEXT PRIMARY KEY, "
+        + "key TEXT NOT NULL, "
+        + "name TEXT NOT NULL, "
+        + "uri TEXT NOT NULL)");
+    db.execSQL("CREATE TABLE authors ("
+        + "library_id TEXT NOT NULL, "
+        + "rating_key TEXT NOT NULL, "
+        + "library_key TEXT NOT NULL, "
+        + "title TEXT NOT NULL, "
+        + "art TEXT, "
+        + "thumb TEXT, "
+        + "uri TEXT NOT NULL, "
+        + "PRIMARY KEY (library_id, rating_key))");
+    db.execSQL("CREATE TABLE books ("
+        + "library_id TEXT NOT NULL, "
+        + "rating_key TEXT NOT NULL, "
+        + "title TEXT NOT NULL, "
+        + "artist_title TEXT NOT NULL, "
+        + "thumb TEXT, "
+        + "uri TEXT NOT NULL, "
+        + "PRIMARY KEY (library_id, rating_key))");
+    db.execSQL("CREATE TABLE chapters ("
+        + "library_id TEXT NOT NULL, "
+        + "rating_key TEXT NOT NULL, "
+        + "key TEXT NOT NULL, "
+        + "parent_key TEXT NOT NULL, "
+        + "title TEXT NOT NULL, "
+        + "album_title TEXT NOT NULL, "
+        + "artist_title TEXT NOT NULL, "
+        + "source TEXT NOT NULL, "
+        + "idx INTEGER NOT NULL, "
+        + "duration INTEGER NOT NULL, "
+        + "view_offset INTEGER NOT NULL, "
+        + "view_count INTEGER NOT NULL, "
+        + "thumb TEXT, "
+        + "uri TEXT NOT NULL, "
+        + "PRIMARY KEY (library_id, rating_key))");
+  }
+
+  @Override public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+    // Everything in here can be fetched again, so just start over
+    for (String table : TABLES) {
+      db.execSQL("DROP TABLE IF EXISTS " + table);
+    }
+    onCreate(db);
+  }
+
+  @Nullable @Override public Entry get(@NonNull String queryKey) {
+    SQLiteDatabase db = getReadableDatabase();
+    long fetchedAt;
+    try (Cursor cursor = db.rawQuery("SELECT fetched_at FROM queries WHERE query_key = ?",
+        new String[]{queryKey})) {
+      if (!cursor.moveToFirst()) {
+        return null;
+      }
+      fetchedAt = cursor.getLong(0);
+    }
+
+    List<PlexItem> items = new ArrayList<>();
+    try (Cursor cursor = db.rawQuery("SELECT kind, library_id, item_key, recent FROM query_items "
+        + "WHERE query_key = ? ORDER BY position", new String[]{queryKey})) {
+      while (cursor.moveToNext()) {
+        PlexItem item = readItem(db, cursor.getInt(0), cursor.getString(1),
+            cursor.getString(2), cursor.getInt(3) != 0);
+        if (item == null) {
+          Timber.w("Incomplete metadata for %s", queryKey);
+          return null;
+        }
+        items.add(item);
+      }
+    }
+    return new Entry(items, fetchedAt);
+  }
+
+  @Override
+  public void put(@NonNull String queryKey, @NonNull List<PlexItem> items, long fetchedAt) {
+    SQLiteDatabase db = getWritableDatabase();
+    db.beginTransaction();
+    try {
+      db.delete("query_items", "query_key = ?", new String[]{queryKey});
+      for (int i = 0; i < items.size(); ++i) {
+        ContentValues values = writeItem(db, items.get(i));
+        if (values == null) {
+          continue;
+        }
+        values.put("query_key", queryKey);
+        values.put("position", i);
+        db.insertOrThrow("query_items", null, values);
+      }
+      ContentValues query = new ContentValues();
+      query.put("query_key", queryKey);
+      query.put("fetched_at", fetchedAt);
+      db.replaceOrThrow("queries", null, query);
+      db.setTransactionSuccessful();
+    } finally {
+      db.endTransaction();
+    }
+  }
+
+  @Override public void remove(@NonNull String queryKey) {
+    SQLiteDatabase db = getWritableDatabase();
+    db.beginTransaction();
+    try {
+      db.delete("query_items", "query_key = ?", new String[]{queryKey});
+      db.delete("queries", "query_key = ?", new String[]{queryKey});
+      db.setTransactionSuccessful();
+    } finally {
+      db.endTransaction();
+    }
+  }
+
+  @Override public void removeAll(@NonNull String prefix) {
+    // substr rather than LIKE, keys may contain the LIKE wildcards
+    String where = "substr(query_key, 1, " + prefix.length() + ") = ?";
+    SQLiteDatabase db = getWritableDatabase();
+    db.beginTransaction();
+    try {
+      db.delete("query_items", where, new String[]{prefix});
+      db.delete("queries", where, new String[]{prefix});
+      db.setTransactionSuccessful();
+    } finally {
+      db.endTransaction();
+    }
+  }
+
+  @Override public void clear() {
+    SQLiteDatabase db = getWritableDatabase();
+    db.beginTransaction();
+    try {
+      for (String table : TABLES) {
+        db.delete(table, null, null);
+      }
+      db.setTransactionSuccessful();
+    } finally {
+      db.endTransaction();
+    }
+    compact(db);
+  }
+
+  /**
+   * One entry per query, last used when it was fetched. Catalog rows are shared between queries,
+   * so the size of the database is split between them by their number of items.
+   */
+  @NonNull @Override public List<StorageEntry> entries(@NonNull Set<String> currentKeys) {
+    SQLiteDatabase db = getReadableDatabase();
+    List<String> keys = new ArrayList<>();
+    List<Long> fetchedAt = new ArrayList<>();
+    List<Long> weights = new ArrayList<>();
+    long totalWeight = 0;
+    try (Cursor cursor = db.rawQuery("SELECT q.query_key, q.fetched_at, COUNT(i.position) "
+        + "FROM queries q LEFT JOIN query_items i ON i.query_key = q.query_key "
+        + "GROUP BY q.query_key", null)) {
+      while (cursor.moveToNext()) {
+        keys.add(cursor.getString(0));
+        fetchedAt.add(cursor.getLong(1));
+        // An empty result still takes a row
+        long weight = cursor.getLong(2) + 1;
+        weights.add(weight);
+        totalWeight += weight;
+      }
+    }
+    File wal = new File(file.getPath() + "-wal");
+    long bytes = file.length() + wal.length();
+    List<StorageEntry> entries = new ArrayList<>(keys.size());
+    for (int i = 0; i < keys.size(); i++) {
+      entries.add(new StorageEntry(StorageEntry.Tier.METADATA, keys.get(i),
+          bytes * weights.get(i) / totalWeight, fetchedAt.get(i), this));
+    }
+    return entries;
+  }
+
+  @Override public void evict(@NonNull StorageEntry entry) {
+    remove(entry.key);
+    SQLiteDatabase db = getWritableDatabase();
+    db.beginTransaction();
+    try {
+      // Catalog rows no other query refers to
+      db.execSQL("DELETE FROM libraries WHERE uuid NOT IN "
+          + "(SELECT item_key FROM query_items WHERE kind = " + KIND_LIBRARY + ")");
+      deleteUnreferenced(db, "authors", KIND_AUTHOR);
+      deleteUnreferenced(db, "books", KIND_BOOK);
+      deleteUnreferenced(db, "chapters", KIND_CHAPTER);
+      db.setTransactionSuccessful();
+    } finally {
+      db.endTransaction();
+    }
+    compact(db);
+  }
+
+  private static void deleteUnreferenced(SQLiteDatabase db, String table, int kind) {
+    db.execSQL("DELETE FROM " + table + " WHERE NOT EXISTS (SELECT 1 FROM query_items i "
+        + "WHERE i.kind = " + kind + " AND i.library_id = " + table + ".library_id "
+        + "AND i.item_key = " + table + ".rating_key)");
+  }
+
+  /** Hands the pages freed by deleted rows back to the device. */
+  private static void compact(SQLiteDatabase db) {
+    pragma(db, "incremental_vacuum");
+  }
+
+  private static long pragma(SQLiteDatabase db, String pragma) {
+    try (Cursor cursor = db.rawQuery("PRAGMA " + pragma, null)) {
+      return cursor.moveToFirst() ? cursor.getLong(0) : 0;
+    }
+  }
+
+  /**
+   * Upserts the catalog row of an item and returns the reference to store in query_items, or
+   * null if the item type isn't cacheable.
+   */
+  @Nullable private static ContentValues writeItem(SQLiteDatabase db, PlexItem item) {
+    ContentValues ref = new ContentValues();
+    ContentValues row = new ContentValues();
+    String table;
+
+    if (item instanceof Header) {
+      ref.put("kind", KIND_HEADER);
+      ref.put("item_key", ((Header) item).title());
+      return ref;
+    } else if (item instanceof Library) {
+      Library lib = (Library) item;
+      table = "libraries";
+      row.put("uuid", lib.uuid());
+      row.put("key", lib.key());
+      row.put("name", lib.name());
+      row.put("uri", lib.uri().toString());
+      ref.put("kind", KIND_LIBRARY);
+      ref.put("item_key", lib.uuid());
+    } else if (item instanceof Author) {
+      Author author = (Author) item;
+      table = "authors";
+      row.put("library_id", author.libraryId());
+      row.put("rating_key", author.ratingKey());
+      row.put("library_key", author.libraryKey());
+      row.put("title", author.title());
+      row.put("art", author.art());
+      row.put("thumb", author.thumb());
+      row.put("uri", author.uri().toString());
+      ref.put("kind", KIND_AUTHOR);
+      ref.put("library_id", author.libraryId());
+      ref.put("item_key", author.ratingKey());
+    } else if (item instanceof Book) {
+      Book book = (Book) item;
+      table = "books";
+      row.put("library_id", book.libraryId());
+      row.put("rating_key", book.ratingKey());
+      row.put("title", book.title());
+      row.put("artist_title", book.artistTitle());
+      row.put("thumb", book.thumb());
+      row.put("uri", book.uri().toString());
+      ref.put("kind", KIND_BOOK);
+      ref.put("library_id", book.libraryId());
+      ref.put("item_key", book.ratingKey());
+    } else if (item instanceof Track) {
+      Track track = (Track) item;
+      table = "chapters";
+      row.put("library_id", track.libraryId());
+      row.put("rating_key", track.ratingKey());
+      row.put("key", track.key());
+      row.put("parent_key", track.parentKey());
+      row.put("title", track.title());
+      row.put("album_title", track.albumTitle());
+      row.put("artist_title", track.artistTitle());
+      row.put("source", track.source());
+      row.put("idx", track.index());
+      row.put("duration", track.duration());
+      row.put("view_offset", track.viewOffset());
+      row.put("view_count", track.viewCount());
+      row.put("thumb", track.thumb());
+      row.put("uri", track.uri().toString());
+      ref.put("kind", KIND_CHAPTER);
+      ref.put("library_id", track.libraryId());
+      ref.put("item_key", track.ratingKey());
+      ref.put("recent", track.recent() ? 1 : 0);
+    } else {
+      return null;
+    }
+
+    db.replaceOrThrow(table, null, row);
+    return ref;
+  }
+
+  @Nullable private static PlexItem readItem(SQLiteDatabase db, int kind,
+                                             @Nullable String libraryId, String itemKey,
+                                             boolean recent) {
+    switch (kind) {
+      case KIND_HEADER:
+        return Header.builder().title(itemKey).build();
+      case KIND_LIBRARY:
+        try (Cursor c = db.rawQuery("SELECT key, name, uri FROM libraries WHERE uuid = ?",
+            new String[]{itemKey})) {
+          if (!c.moveToFirst()) {
+            return null;
+          }
+          return Library.builder()
+              .uuid(itemKey)
+              .key(c.getString(0))
+              .name(c.getString(1))
+              .uri(HttpUrl.get(c.getString(2)))
+              .build();
+        }
+      case KIND_AUTHOR:
+        try (Cursor c = db.rawQuery("SELECT library_key, title, art, thumb, uri FROM authors "
+            + "WHERE library_id = ? AND rating_key = ?", new String[]{libraryId, itemKey})) {
+          if (!c.moveToFirst()) {
+            return null;
+          }
+          return Author.builder()
+              .libraryId(libraryId)
+              .ratingKey(itemKey)
+              .libraryKey(c.getString(0))
+              .title(c.getString(1))
+              .art(c.getString(2))
+              .thumb(c.getString(3))
+              .uri(HttpUrl.get(c.getString(4)))
+              .build();
+        }
+      case KIND_BOOK:
+        try (Cursor c = db.rawQuery("SELECT title, artist_title, thumb, uri FROM books "
+            + "WHERE library_id = ? AND rating_key = ?", new String[]{libraryId, itemKey})) {
+          if (!c.moveToFirst()) {
+            return null;
+          }
+          return Book.builder()
+              .libraryId(libraryId)
+              .ratingKey(itemKey)
+              .title(c.getString(0))
+              .artistTitle(c.getString(1))
+              .thumb(c.getString(2))
+              .uri(HttpUrl.get(c.getString(3)))
+              .build();
+        }
+      case KIND_CHAPTER:
+        try (Cursor c = db.rawQuery("SELECT key, parent_key, title, album_title, artist_title, "
+            + "source, idx, duration, view_offset, view_count, thumb, uri FROM chapters "
+            + "WHERE library_id = ? AND rating_key = ?", new String[]{libraryId, itemKey})) {
+          if (!c.moveToFirst()) {
+            return null;
+          }
+          return Track.builder()
+              .queueItemId(0)
+              .libraryId(libraryId)
+              .ratingKey(itemKey)
+              .key(c.getString(0))
+              .parentKey(c.getString(1))
+              .title(c.getString(2))
+              .albumTitle(c.getString(3))
+              .artistTitle(c.getString(4))
+              .source(c.getString(5))
+              .index(c.getInt(6))
+              .duration(c.getLong(7))
+              .viewOffset(c.getLong(8))
+              .viewCount(c.getLong(9))
+              .thumb(c.getString(10))
+              .uri(HttpUrl.get(c.getString(11)))
+              .recent(recent)
+              .build();
+        }
+      default:
+        return null;
+    }
+  }
+}
@@ -0,0 +1,41 @@
+/*
+ * Copyright (C) 2020 Simon Norberg
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.awsomefox.sprocket.data.store;
+
+import android.content.Context;
+
+import com.awsomefox.sprocket.data.storage.Evictable;
+
+import javax.inject.Singleton;
+
+import dagger.Module;
+import dagger.Provides;
+import dagger.multibindings.IntoSet;
+
+@Module
+public class StoreModule {
+  @Provides @Singleton SqliteMetadataStore provideSqliteMetadataStore(Context context) {
+    return new SqliteMetadataStore(context);
+  }
+
+  @Provides MetadataStore provideMetadataStore(SqliteMetadataStore store) {
+    return store;
+  }
+
+  @Provides @IntoSet Evictable provideMetadataStorage(SqliteMetadataStore store) {
+    return store;
+  }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright (C) 2020 Simon Norberg
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.awsomefox.sprocket.playback;
+
+import com.awsomefox.sprocket.data.ServerManager;
+import com.awsomefox.sprocket.data.api.MediaService;
+import com.awsomefox.sprocket.data.download.Downloader;
+import com.awsomefox.sprocket.data.outbox.Outbox;
+import com.awsomefox.sprocket.data.repository.MusicRepository;
+import com.awsomefox.sprocket.data.store.MetadataStore;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import io.reactivex.Completable;
+import io.reactivex.schedulers.Schedulers;
+
+/**
+ * Everything kept on behalf of the signed in account: libraries, endpoints, play queues,
+ * undelivered writes, downloads and the saved queue and position. None of it may outlive a sign
+ * out.
+ */
+@Singleton
+public final class AccountData {
+
+  private final ServerManager serverManager;
+  private final MediaService media;
+  private final MetadataStore store;
+  private final MusicRepository musicRepository;
+  private final Outbox outbox;
+  private final QueueStore queueStore;
+  private final PlaybackJournal journal;
+  private final Downloader downloader;
+
+  @Inject AccountData(ServerManager serverManager, MediaService media, MetadataStore store,
+                      MusicRepository musicRepository, Outbox outbox, QueueStore queueStore,
+                      PlaybackJournal journal, Downloader downloader) {
+    this.serverManager = serverManager;
+    this.media = media;
+    this.store = store;
+    this.musicRepository = musicRepository;
+    this.outbox = outbox;
+    this.queueStore = queueStore;
+    this.journal = journal;
+    this.downloader = downloader;
+  }
+
+  /** Forgets the account right away, the stores are emptied on io. */
+  public Completable clear() {
+    serverManager.forget();
+    musicRepository.forget();
+    media.invalidateAll();
+    return Completable.fromAction(() -> {
+      outbox.clear();
+      queueStore.clear();
+      journal.clear();
+      downloader.clear();
+      store.clear();
+    }).subscribeOn(Schedulers.io());
+  }
+}
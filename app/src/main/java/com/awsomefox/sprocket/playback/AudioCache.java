@@ -0,0 +1,185 @@
+/*
+ * Copyright (C) 2020 Simon Norberg
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.awsomefox.sprocket.playback;
+
+import android.content.Context;
+
+import androidx.annotation.NonNull;
+
+import com.awsomefox.sprocket.R;
+import com.awsomefox.sprocket.data.storage.Evictable;
+import com.awsomefox.sprocket.data.storage.StorageEntry;
+import com.google.android.exoplayer2.database.DatabaseProvider;
+import com.google.android.exoplayer2.ext.okhttp.OkHttpDataSourceFactory;
+import com.google.android.exoplayer2.upstream.DataSource;
+import com.google.android.exoplayer2.upstream.DataSpec;
+import com.google.android.exoplayer2.upstream.DefaultDataSourceFactory;
+import com.google.android.exoplayer2.upstream.FileDataSourceFactory;
+import com.google.android.exoplayer2.upstream.TransferListener;
+import com.google.android.exoplayer2.upstream.cache.Cache;
+import com.google.android.exoplayer2.upstream.cache.CacheDataSink;
+import com.google.android.exoplayer2.upstream.cache.CacheDataSinkFactory;
+import com.google.android.exoplayer2.upstream.cache.CacheDataSource;
+import com.google.android.exoplayer2.upstream.cache.CacheDataSourceFactory;
+import com.google.android.exoplayer2.upstream.cache.CacheSpan;
+import com.google.android.exoplayer2.upstream.cache.LeastRecentlyUsedCacheEvictor;
+import com.google.android.exoplayer2.upstream.cache.SimpleCache;
+import com.google.android.exoplayer2.util.Util;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import okhttp3.Call;
+import timber.log.Timber;
+
+/**
+ * Disk cache for streamed audio. Everything that is played is written through to disk and the
+ * least recently used ranges are evicted once the quota is exceeded, so rewinding or resuming a
+ * chapter is served without touching the network. There must only be one instance per process.
+ */
+public final class AudioCache
+    implements CacheDataSource.EventListener, TransferListener, Evictable {
+
+  /** Quota in megabytes, read when the cache is created. */
+  static final String PREF_QUOTA_MB = "pref_audio_cache_quota_mb";
+  static final long DEFAULT_QUOTA_MB = 512;
+
+  private final Cache cache;
+  private final long quotaBytes;
+  private final AtomicLong cachedBytesRead = new AtomicLong();
+  private final AtomicLong networkBytesRead = new AtomicLong();
+  private final AtomicLong cacheIgnoredCount = new AtomicLong();
+
+  AudioCache(@NonNull File directory, @NonNull DatabaseProvider databaseProvider,
+             long quotaBytes) {
+    this.quotaBytes = quotaBytes;
+    this.cache = new SimpleCache(directory, new LeastRecentlyUsedCacheEvictor(quotaBytes),
+        databaseProvider);
+  }
+
+  /** Audio from the server, read through the cache. */
+  @NonNull DataSource.Factory createDataSourceFactory(@NonNull Context context,
+                                                      @NonNull Call.Factory callFactory) {
+    String agent = Util.getUserAgent(context, context.getResources().getString(R.string.app_name));
+    return createDataSourceFactory(new DefaultDataSourceFactory(context, null,
+        new OkHttpDataSourceFactory(callFactory, agent)));
+  }
+
+  /** Wraps {@code upstream} so reads are served from, and written through to, the cache. */
+  @NonNull DataSource.Factory createDataSourceFactory(@NonNull DataSource.Factory upstream) {
+    DataSource.Factory counted = () -> {
+      DataSource dataSource = upstream.createDataSource();
+      dataSource.addTransferListener(this);
+      return dataSource;
+    };
+    return new CacheDataSourceFactory(cache, counted, new FileDataSourceFactory(),
+        new CacheDataSinkFactory(cache, CacheDataSink.DEFAULT_FRAGMENT_SIZE),
+        CacheDataSource.FLAG_IGNORE_CACHE_ON_ERROR, this);
+  }
+
+  @NonNull Cache cache() {
+    return cache;
+  }
+
+  public long quotaBytes() {
+    return quotaBytes;
+  }
+
+  public long usedBytes() {
+    return cache.getCacheSpace();
+  }
+
+  public long cachedBytesRead() {
+    return cachedBytesRead.get();
+  }
+
+  public long networkBytesRead() {
+    return networkBytesRead.get();
+  }
+
+  /** Requests that bypassed the cache, for example after a read error. */
+  public long cacheIgnoredCount() {
+    return cacheIgnoredCount.get();
+  }
+
+  /** Share of all audio bytes that were served from disk. */
+  public float hitRatio() {
+    long cached = cachedBytesRead.get();
+    long total = cached + networkBytesRead.get();
+    return total == 0 ? 0f : (float) cached / total;
+  }
+
+  @NonNull @Override public List<StorageEntry> entries(@NonNull Set<String> currentKeys) {
+    List<StorageEntry> entries = new ArrayList<>();
+    for (String key : cache.getKeys()) {
+      long bytes = 0;
+      long lastUsed = 0;
+      for (CacheSpan span : cache.getCachedSpans(key)) {
+        bytes += span.length;
+        lastUsed = Math.max(lastUsed, span.lastTouchTimestamp);
+      }
+      StorageEntry.Tier tier = currentKeys.contains(key)
+          ? StorageEntry.Tier.CURRENT_AUDIO : StorageEntry.Tier.AUDIO;
+      entries.add(new StorageEntry(tier, key, bytes, lastUsed, this));
+    }
+    return entries;
+  }
+
+  @Override public void evict(@NonNull StorageEntry entry) {
+    for (CacheSpan span : cache.getCachedSpans(entry.key)) {
+      try {
+        cache.removeSpan(span);
+      } catch (Cache.CacheException e) {
+        Timber.w(e, "Could not remove %s", span.file);
+      }
+    }
+  }
+
+  @Override public void onCachedBytesRead(long cacheSizeBytes, long cachedBytesRead) {
+    this.cachedBytesRead.addAndGet(cachedBytesRead);
+  }
+
+  @Override public void onCacheIgnored(int reason) {
+    cacheIgnoredCount.incrementAndGet();
+  }
+
+  @Override public void onTransferInitializing(DataSource source, DataSpec dataSpec,
+                                               boolean isNetwork) {
+  }
+
+  @Override public void onTransferStart(DataSource source, DataSpec dataSpec,
+                                        boolean isNetwork) {
+  }
+
+  @Override public void onBytesTransferred(DataSource source, DataSpec dataSpec,
+                                           boolean isNetwork, int bytesTransferred) {
+    if (isNetwork) {
+      networkBytesRead.addAndGet(bytesTransferred);
+    }
+  }
+
+  @Override public void onTransferEnd(DataSource source, DataSpec dataSpec, boolean isNetwork) {
+  }
+
+  @NonNull @Override public String toString() {
+    return String.format(Locale.US, "AudioCache{used=%d/%d, cached=%d, network=%d, hit=%.2f}",
+        usedBytes(), quotaBytes, cachedBytesRead(), networkBytesRead(), hitRatio());
+  }
+}
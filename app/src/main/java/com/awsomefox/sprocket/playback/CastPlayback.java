@@ -231,6 +231,11 @@ class CastPlayback implements Playback {
     this.currentTrack = track;
   }
 
+  @Override public void mergeQueue(Track track) {
+    // Only the current track is loaded on the receiver
+    this.currentTrack = track;
+  }
+
   @Override public void setCallback(Callback callback) {
     this.callback = callback;
   }
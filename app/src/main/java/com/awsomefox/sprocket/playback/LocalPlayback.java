@@ -26,21 +26,28 @@ import android.net.wifi.WifiManager;
 import android.support.v4.media.session.PlaybackStateCompat;
 import android.support.v4.media.session.PlaybackStateCompat.State;
 
-import com.awsomefox.sprocket.R;
+import com.awsomefox.sprocket.data.download.Downloader;
 import com.awsomefox.sprocket.data.model.Track;
+import com.awsomefox.sprocket.util.CacheKeys;
 import com.google.android.exoplayer2.ExoPlaybackException;
 import com.google.android.exoplayer2.ExoPlayerFactory;
 import com.google.android.exoplayer2.PlaybackParameters;
 import com.google.android.exoplayer2.Player;
 import com.google.android.exoplayer2.SimpleExoPlayer;
 import com.google.android.exoplayer2.audio.AudioAttributes;
-import com.google.android.exoplayer2.ext.okhttp.OkHttpDataSourceFactory;
+import com.google.android.exoplayer2.source.ConcatenatingMediaSource;
+import com.google.android.exoplayer2.source.MediaSource;
 import com.google.android.exoplayer2.source.ProgressiveMediaSource;
 import com.google.android.exoplayer2.source.TrackGroupArray;
 import com.google.android.exoplayer2.trackselection.DefaultTrackSelector;
 import com.google.android.exoplayer2.trackselection.TrackSelectionArray;
-import com.google.android.exoplayer2.upstream.DefaultDataSourceFactory;
-import com.google.android.exoplayer2.util.Util;
+import com.google.android.exoplayer2.upstream.DataSource;
+import com.google.android.exoplayer2.upstream.FileDataSourceFactory;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 
 import okhttp3.Call;
 import timber.log.Timber;
@@ -68,13 +75,19 @@ class LocalPlayback implements Playback, Player.EventListener,
   private final WifiManager.WifiLock wifiLock;
   private final AudioManager audioManager;
   private final MediaController mediaController;
-  private final ProgressiveMediaSource.Factory mediaSourceFactory;
+  private final QueueManager queueManager;
+  private final DataSource.Factory dataSourceFactory;
+  private final DataSource.Factory fileDataSourceFactory = new FileDataSourceFactory();
+  private final Downloader downloader;
   private SimpleExoPlayer exoPlayer;
   private Callback callback;
   private int audioFocus = AUDIO_NO_FOCUS_NO_DUCK;
   private boolean playOnFocusGain;
   private boolean audioNoisyReceiverRegistered;
   private Track currentTrack;
+  // Tracks of the prepared media source, one window each
+  private List<Track> playlist = Collections.emptyList();
+  private ConcatenatingMediaSource mediaSource;
   // Whether to return STATE_NONE or STATE_STOPPED when exoPlayer is null;
   private boolean exoPlayerNullIsStopped;
 
@@ -88,15 +101,16 @@ class LocalPlayback implements Playback, Player.EventListener,
     }
   };
 
-  LocalPlayback(Context context, MediaController mediaController, AudioManager audioManager,
-                WifiManager wifiManager, Call.Factory callFactory) {
+  LocalPlayback(Context context, MediaController mediaController, QueueManager queueManager,
+                AudioManager audioManager, WifiManager wifiManager, Call.Factory callFactory,
+                AudioCache audioCache, Downloader downloader) {
     this.context = context;
     this.mediaController = mediaController;
+    this.queueManager = queueManager;
+    this.downloader = downloader;
     this.audioManager = audioManager;
     this.wifiLock = wifiManager.createWifiLock(WifiManager.WIFI_MODE_FULL_HIGH_PERF, "sprocket");
-    String agent = Util.getUserAgent(context, context.getResources().getString(R.string.app_name));
-    this.mediaSourceFactory = new ProgressiveMediaSource.Factory(new DefaultDataSourceFactory(
-        context, null, new OkHttpDataSourceFactory(callFactory, agent)));
+    this.dataSourceFactory = audioCache.createDataSourceFactory(context, callFactory);
   }
 
   private static String getExoPlayerState(int state) {
@@ -183,16 +197,23 @@ class LocalPlayback implements Playback, Player.EventListener,
           .build();
       exoPlayer.setAudioAttributes(audioAttributes);
 
-      Uri uri = Uri.parse(track.source());
-      ProgressiveMediaSource source = mediaSourceFactory.createMediaSource(uri);
-      boolean hasPlexStart = track.viewOffset() != 0;
-
-      if (hasPlexStart) {
-        exoPlayer.seekTo(Math.min(Math.max(0, track.viewOffset()), track.duration()));
+      // The whole queue is played as one timeline so the next chapter is buffered before the
+      // current one ends. Moving within the same queue is only a seek.
+      List<Track> queue = queueManager.getQueue();
+      int window = indexOf(queue, track);
+      if (window == -1) {
+        queue = Collections.singletonList(track);
+        window = 0;
+      }
+      if (!isSamePlaylist(queue) || exoPlayer.getPlaybackState() == Player.STATE_IDLE) {
+        playlist = new ArrayList<>(queue);
+        mediaSource = new ConcatenatingMediaSource();
+        mediaSource.addMediaSources(createMediaSources(playlist));
+        exoPlayer.prepare(mediaSource);
       }
       PlaybackParameters param = new PlaybackParameters(speed);
       exoPlayer.setPlaybackParameters(param);
-      exoPlayer.prepare(source, !hasPlexStart, !hasPlexStart);
+      exoPlayer.seekTo(window, Math.min(Math.max(0, track.viewOffset()), track.duration()));
 
       // If we are streaming from the internet, we want to hold a Wifi lock, which prevents the
       // Wifi radio from going to sleep while the song is playing.
@@ -251,6 +272,26 @@ class LocalPlayback implements Playback, Player.EventListener,
     this.currentTrack = track;
   }
 
+  @Override public void mergeQueue(Track track) {
+    List<Track> queue = queueManager.getQueue();
+    int index = indexOf(queue, track);
+    int window = exoPlayer == null ? -1 : exoPlayer.getCurrentWindowIndex();
+    if (index == -1 || window < 0 || window >= playlist.size()
+        || !playlist.get(window).key().equals(track.key())) {
+      // Not playing it, the next play() prepares the new queue
+      return;
+    }
+    // Keep the playing window and rebuild the rest of the timeline around it
+    mediaSource.removeMediaSourceRange(window + 1, mediaSource.getSize());
+    mediaSource.removeMediaSourceRange(0, window);
+    mediaSource.addMediaSources(0, createMediaSources(queue.subList(0, index)));
+    mediaSource.addMediaSources(createMediaSources(queue.subList(index + 1, queue.size())));
+    playlist = new ArrayList<>(queue);
+    if (currentTrack != null && currentTrack.key().equals(track.key())) {
+      currentTrack = track;
+    }
+  }
+
   @Override public void setCallback(Callback callback) {
     this.callback = callback;
   }
@@ -277,6 +318,24 @@ class LocalPlayback implements Playback, Player.EventListener,
     }
   }
 
+  @Override public void onPositionDiscontinuity(int reason) {
+    if (reason != Player.DISCONTINUITY_REASON_PERIOD_TRANSITION || exoPlayer == null) {
+      return;
+    }
+    Track completed = currentTrack;
+    int window = exoPlayer.getCurrentWindowIndex();
+    // Tags of windows kept by mergeQueue() are outdated, the playlist is not
+    Track next = window < playlist.size() ? playlist.get(window) : null;
+    if (next == null || next.equals(completed)) {
+      return;
+    }
+    Timber.d("transition to %s", next);
+    currentTrack = next;
+    if (callback != null) {
+      callback.onTransition(completed, next);
+    }
+  }
+
   @Override public void onRepeatModeChanged(int repeatMode) {
   }
 
@@ -297,6 +356,48 @@ class LocalPlayback implements Playback, Player.EventListener,
   @Override public void onPlaybackParametersChanged(PlaybackParameters playbackParameters) {
   }
 
+  private List<MediaSource> createMediaSources(List<Track> tracks) {
+    List<MediaSource> sources = new ArrayList<>(tracks.size());
+    for (Track track : tracks) {
+      File file = downloader.localFile(track);
+      if (file != null) {
+        sources.add(new ProgressiveMediaSource.Factory(fileDataSourceFactory)
+            .setTag(track)
+            .createMediaSource(Uri.fromFile(file)));
+        continue;
+      }
+      // Key cached audio on the part rather than the url, which carries host and token
+      sources.add(new ProgressiveMediaSource.Factory(dataSourceFactory)
+          .setTag(track)
+          .setCustomCacheKey(CacheKeys.forUrl(track.libraryId(), track.source()))
+          .createMediaSource(Uri.parse(track.source())));
+    }
+    return sources;
+  }
+
+  private boolean isSamePlaylist(List<Track> queue) {
+    if (queue.size() != playlist.size()) {
+      return false;
+    }
+    for (int i = 0; i < queue.size(); i++) {
+      Track a = queue.get(i);
+      Track b = playlist.get(i);
+      if (a.queueItemId() != b.queueItemId() || !a.source().equals(b.source())) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static int indexOf(List<Track> queue, Track track) {
+    for (int i = 0; i < queue.size(); i++) {
+      if (queue.get(i).queueItemId() == track.queueItemId()) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
   private void tryToGetAudioFocus() {
     Timber.d("tryToGetAudioFocus");
     int result = audioManager.requestAudioFocus(this, AudioManager.STREAM_MUSIC,
@@ -383,6 +484,8 @@ class LocalPlayback implements Playback, Player.EventListener,
       exoPlayer.release();
       exoPlayer.removeListener(this);
       exoPlayer = null;
+      playlist = Collections.emptyList();
+      mediaSource = null;
       exoPlayerNullIsStopped = true;
       playOnFocusGain = false;
     }
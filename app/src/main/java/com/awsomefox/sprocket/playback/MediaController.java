@@ -44,6 +44,7 @@ import static android.support.v4.media.session.PlaybackStateCompat.STATE_SKIPPIN
 import static android.support.v4.media.session.PlaybackStateCompat.STATE_SKIPPING_TO_QUEUE_ITEM;
 import static android.support.v4.media.session.PlaybackStateCompat.STATE_STOPPED;
 import static com.awsomefox.sprocket.ui.PlayerController.BUNDLE_AUTO;
+import static com.awsomefox.sprocket.ui.PlayerController.CUSTOM_ACTION_MERGE_QUEUE;
 import static com.awsomefox.sprocket.ui.PlayerController.CUSTOM_ACTION_SPEED;
 
 public class MediaController {
@@ -247,6 +248,19 @@ public class MediaController {
         }
     }
 
+    /** Lets the playback adopt the queue merged into the {@link QueueManager}. */
+    void mergeQueue() {
+        if (mediaController != null) {
+            mediaController.getTransportControls().sendCustomAction(CUSTOM_ACTION_MERGE_QUEUE,
+                    null);
+        }
+    }
+
+    /** Shows {@code position} as the progress of a restored track that isn't prepared yet. */
+    void restoreProgress(long position) {
+        progressRelay.accept(position);
+    }
+
     private void handleProgress(@State final int state, final long startPosition) {
         if (state == STATE_PLAYING) {
             stopProgress();
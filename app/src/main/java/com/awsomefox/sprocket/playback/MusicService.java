@@ -22,11 +22,15 @@ import android.content.Context;
 import android.content.Intent;
 import android.content.SharedPreferences;
 import android.media.AudioManager;
+import android.net.ConnectivityManager;
 import android.net.wifi.WifiManager;
 import android.os.Binder;
 import android.os.Handler;
 import android.os.IBinder;
+import android.os.Looper;
 import android.os.Message;
+import android.os.MessageQueue;
+import android.os.PowerManager;
 import android.os.RemoteException;
 import android.support.v4.media.MediaMetadataCompat;
 import android.support.v4.media.session.MediaControllerCompat;
@@ -44,29 +48,34 @@ import com.awsomefox.sprocket.MediaNotificationManager;
 import com.awsomefox.sprocket.SprocketApp;
 import com.awsomefox.sprocket.data.LoginManager;
 import com.awsomefox.sprocket.data.ServerManager;
-import com.awsomefox.sprocket.data.api.MediaService;
+import com.awsomefox.sprocket.data.download.Downloader;
+import com.awsomefox.sprocket.data.download.Prefetcher;
 import com.awsomefox.sprocket.data.model.Track;
+import com.awsomefox.sprocket.data.outbox.Outbox;
 import com.awsomefox.sprocket.data.repository.MusicRepository;
+import com.awsomefox.sprocket.data.storage.StorageBudget;
 import com.awsomefox.sprocket.ui.PlayerController;
 import com.awsomefox.sprocket.ui.SprocketActivity;
+import com.awsomefox.sprocket.util.Pair;
 import com.awsomefox.sprocket.util.Rx;
-import com.awsomefox.sprocket.util.Strings;
-import com.awsomefox.sprocket.util.Urls;
+import com.awsomefox.sprocket.util.StartupTrace;
 import com.google.android.gms.cast.framework.CastContext;
 import com.google.android.gms.cast.framework.CastSession;
 import com.google.android.gms.cast.framework.SessionManager;
 import com.google.android.gms.cast.framework.SessionManagerListener;
 
 import java.lang.ref.WeakReference;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
 
 import javax.inject.Inject;
 import javax.inject.Named;
 
+import dagger.Lazy;
+import io.reactivex.Completable;
 import io.reactivex.disposables.CompositeDisposable;
 import io.reactivex.schedulers.Schedulers;
-import okhttp3.HttpUrl;
 import okhttp3.OkHttpClient;
 import timber.log.Timber;
 
@@ -92,7 +101,9 @@ public class MusicService extends Service implements PlaybackManager.PlaybackSer
     @Inject
     WifiManager wifiManager;
     @Inject
-    MediaService media;
+    ConnectivityManager connectivityManager;
+    @Inject
+    PowerManager powerManager;
     @Inject
     public MusicRepository musicRepository;
     @Inject
@@ -103,6 +114,22 @@ public class MusicService extends Service implements PlaybackManager.PlaybackSer
     @Inject
     @Named("default")
     OkHttpClient client;
+    @Inject
+    AudioCache audioCache;
+    @Inject
+    Downloader downloader;
+    @Inject
+    Lazy<Prefetcher> prefetcher;
+    @Inject
+    Lazy<StorageBudget> storageBudget;
+    @Inject
+    PlaybackStarter playbackStarter;
+    @Inject
+    Outbox outbox;
+    @Inject
+    PlaybackJournal playbackJournal;
+    @Inject
+    QueueStore queueStore;
     private PlaybackManager playbackManager;
     public MediaSessionCompat session;
     private MediaNotificationManager mediaNotificationManager;
@@ -110,6 +137,10 @@ public class MusicService extends Service implements PlaybackManager.PlaybackSer
     private SessionManager castSessionManager;
     private SessionManagerListener<CastSession> castSessionManagerListener;
     private TimelineManager timelineManager;
+    private final MessageQueue.IdleHandler deferredInit = () -> {
+        initDeferred();
+        return false;
+    };
 
     SharedPreferences preferences;
     CompositeDisposable disposables;
@@ -126,10 +157,15 @@ public class MusicService extends Service implements PlaybackManager.PlaybackSer
     public void onCreate() {
         super.onCreate();
         Timber.d("onCreate");
-        SprocketApp.get(this).component().inject(this);
+        try (StartupTrace.Section ignored = StartupTrace.begin("service inject")) {
+            SprocketApp.get(this).component().inject(this);
+        }
 
-        Playback playback = new LocalPlayback(getApplicationContext(), mediaController,
-                audioManager, wifiManager, client);
+        Playback playback;
+        try (StartupTrace.Section ignored = StartupTrace.begin("local playback")) {
+            playback = new LocalPlayback(getApplicationContext(), mediaController,
+                    queueManager, audioManager, wifiManager, client, audioCache, downloader);
+        }
 
         session = new MediaSessionCompat(this, "MusicService");
 
@@ -154,70 +190,96 @@ public class MusicService extends Service implements PlaybackManager.PlaybackSer
 
         playbackManager.updatePlaybackState();
 
-        mediaNotificationManager = new MediaNotificationManager(this, mediaController,
-                queueManager, rx);
-
-        castSessionManager = CastContext.getSharedInstance(this).getSessionManager();
-        castSessionManagerListener = new CastSessionManagerListener();
-        castSessionManager.addSessionManagerListener(castSessionManagerListener, CastSession.class);
-
-        mediaRouter = MediaRouter.getInstance(getApplicationContext());
-
         preferences = Objects.requireNonNull(getApplicationContext()).getSharedPreferences(
                 "playback-state", Context.MODE_PRIVATE);
-        timelineManager = new TimelineManager(mediaController, queueManager, media, rx,
-                preferences);
+        timelineManager = new TimelineManager(this, mediaController, queueManager, outbox, rx,
+                connectivityManager, powerManager);
         instance = this;
         disposables = new CompositeDisposable();
-        serverManager.refresh();
+        // Progress only ticks while playing, the replayed last value is skipped
+        disposables.add(mediaController.progress()
+                .skip(1)
+                .map(position -> PlaybackJournal.Entry.of(queueManager.currentTrack(), position))
+                .observeOn(rx.io())
+                .subscribe(playbackJournal::write, Rx::onError));
         if (mediaController.getPlaybackState() == null
                 || (mediaController.getPlaybackState().getState() == STATE_NONE)) {
-            Timber.d("Restoring state");
-            Track track = getPersistedTrack();
-            disposables.add(musicRepository.createPlayQueue(track)
-                    .compose(rx.singleSchedulers())
-                    .subscribe(pair -> {
-                        //restore playing
-                        queueManager.setQueue(pair.first, pair.second, getPersistedProgress());
-                        updateSpeed(preferences.getFloat(PlayerController.SPEED, 1.0f));
-                        mediaController.play();
-                        mediaController.pause();
-                    }, Rx::onError));
+            try (StartupTrace.Section ignored = StartupTrace.begin("restore queue")) {
+                restoreQueue();
+            }
         }
+        // Saved after restoring, so the empty queue of a new process doesn't replace it
+        disposables.add(queueManager.queue()
+                .filter(pair -> !pair.first.isEmpty())
+                .observeOn(rx.io())
+                .subscribe(pair -> queueStore.save(pair.first, pair.second), Rx::onError));
+        // Nothing below is needed to show the first screen or answer a media button
+        Looper.myQueue().addIdleHandler(deferredInit);
     }
 
-    void updateSpeed(float speed) {
-        queueManager.setSpeed(speed);
-        mediaController.setSpeed(speed);
+    private void initDeferred() {
+        try (StartupTrace.Section ignored = StartupTrace.begin("notification")) {
+            notificationManager();
+        }
+        try (StartupTrace.Section ignored = StartupTrace.begin("cast")) {
+            castSessionManager = CastContext.getSharedInstance(this).getSessionManager();
+            castSessionManagerListener = new CastSessionManagerListener();
+            castSessionManager.addSessionManagerListener(castSessionManagerListener,
+                    CastSession.class);
+        }
+        try (StartupTrace.Section ignored = StartupTrace.begin("media router")) {
+            mediaRouter = MediaRouter.getInstance(getApplicationContext());
+        }
+        try (StartupTrace.Section ignored = StartupTrace.begin("server refresh")) {
+            serverManager.refresh();
+        }
+        try (StartupTrace.Section ignored = StartupTrace.begin("background work")) {
+            downloader.start();
+            prefetcher.get().start();
+            storageBudget.get().start();
+            outbox.start();
+        }
     }
 
-    Track getPersistedTrack() {
-        HttpUrl uri = HttpUrl.get(preferences.getString("trackUri", "http://plex.com"));
-        String key = preferences.getString("trackKey", "1234");
-        String parentKey = preferences.getString("trackParentKey", "1234");
-        String libraryId = preferences.getString("trackLibraryId", "1234");
-        return Track.builder().queueItemId(0)
-                .libraryId(libraryId)
-                .key(key)
-                .ratingKey("track.ratingKey")
-                .parentKey(parentKey)
-                .title("track.title")
-                .albumTitle("track.parentTitle")
-                .artistTitle("track.grandparentTitle")
-                .index(0)
-                .duration(0L)
-                .viewOffset(0L)
-                .viewCount(1)
-                .thumb(Strings.isBlank("track.thumb") ? null : Urls.addPathToUrl(uri,
-                        "track.thumb").toString())
-                .source(Urls.addPathToUrl(uri, "track.media.part.key").toString())
-                .uri(uri)
-                .recent(true)
-                .build();
+    private MediaNotificationManager notificationManager() {
+        if (mediaNotificationManager == null) {
+            mediaNotificationManager = new MediaNotificationManager(this, mediaController,
+                    queueManager, rx);
+        }
+        return mediaNotificationManager;
     }
 
-    long getPersistedProgress() {
-        return preferences.getLong("trackProgress", 0L);
+    /**
+     * Restores the saved queue paused where it was left, without the network. The media source
+     * is prepared when playback is requested.
+     */
+    private void restoreQueue() {
+        Pair<List<Track>, Integer> saved = queueStore.load();
+        if (saved == null) {
+            return;
+        }
+        Timber.d("Restoring state");
+        List<Track> queue = new ArrayList<>(saved.first);
+        int position = saved.second;
+        PlaybackJournal.Entry entry = playbackJournal.read();
+        if (entry != null) {
+            for (int i = 0; i < queue.size(); ++i) {
+                if (queue.get(i).key().equals(entry.key)) {
+                    position = i;
+                    queue.set(i, queue.get(i).toBuilder().viewOffset(entry.position).build());
+                    break;
+                }
+            }
+        }
+        queueManager.setQueue(queue, queue.get(position).queueItemId(), 0L);
+        updateSpeed(preferences.getFloat(PlayerController.SPEED, 1.0f));
+        mediaController.restoreProgress(queue.get(position).viewOffset());
+        playbackManager.updateRestoredState();
+    }
+
+    void updateSpeed(float speed) {
+        queueManager.setSpeed(speed);
+        mediaController.setSpeed(speed);
     }
 
     @Override
@@ -241,8 +303,11 @@ public class MusicService extends Service implements PlaybackManager.PlaybackSer
     @Override
     public void onDestroy() {
         // Service is being killed, so make sure we release our resources
+        Looper.myQueue().removeIdleHandler(deferredInit);
         playbackManager.handleStopRequest();
-        mediaNotificationManager.stopNotification();
+        if (mediaNotificationManager != null) {
+            mediaNotificationManager.stopNotification();
+        }
 
         if (castSessionManager != null) {
             castSessionManager.removeSessionManagerListener(castSessionManagerListener,
@@ -250,6 +315,7 @@ public class MusicService extends Service implements PlaybackManager.PlaybackSer
         }
 
         timelineManager.stop();
+        Timber.d("%s", audioCache);
 
         delayedStopHandler.removeCallbacksAndMessages(null);
         session.release();
@@ -259,7 +325,13 @@ public class MusicService extends Service implements PlaybackManager.PlaybackSer
 
     @Override
     public void onCompletion(Track track) {
-        media.scrobble(track.uri(), track.ratingKey()).subscribeOn(Schedulers.io()).subscribe();
+        // The download is kept until the server knows the chapter was listened to, should the
+        // process die before that the next prefetch run evicts it
+        disposables.add(Completable.mergeArray(outbox.scrobbleDelivered(track),
+                musicRepository.scrobble(track))
+                .andThen(downloader.evict(track))
+                .subscribeOn(Schedulers.io())
+                .subscribe(() -> { }, Rx::onError));
     }
 
     @Override
@@ -275,13 +347,7 @@ public class MusicService extends Service implements PlaybackManager.PlaybackSer
         ContextCompat.startForegroundService(getApplicationContext(),
                 new Intent(getApplicationContext(), MusicService.class));
 
-        disposables.add(musicRepository.createPlayQueue(track)
-                .subscribeOn(Schedulers.io())
-                .subscribe(pair -> {
-                    queueManager.setQueue(pair.first, pair.second, 0L);
-                    updateSpeed(speed);
-                    mediaController.play();
-                }, Rx::onError));
+        playbackStarter.play(track, speed);
     }
 
     @Override
@@ -317,7 +383,7 @@ public class MusicService extends Service implements PlaybackManager.PlaybackSer
 
     @Override
     public void onNotificationRequired() {
-        mediaNotificationManager.startNotification();
+        notificationManager().startNotification();
     }
 
     @Override
@@ -105,6 +105,14 @@ interface Playback {
    */
   void setCurrentTrack(Track track);
 
+  /**
+   * The queue was replaced by one that still holds the current track, under its server queue
+   * item id. Implementations adopt it without interrupting playback.
+   *
+   * @param track the current track as it appears in the new queue
+   */
+  void mergeQueue(Track track);
+
   /**
    * @param callback to be called
    */
@@ -127,5 +135,13 @@ interface Playback {
      * @param track being currently played
      */
     void setCurrentTrack(Track track);
+
+    /**
+     * Playback moved on to the next track of the queue by itself, without a call to play.
+     *
+     * @param completed track that finished playing
+     * @param next      track now being played
+     */
+    void onTransition(Track completed, Track next);
   }
 }
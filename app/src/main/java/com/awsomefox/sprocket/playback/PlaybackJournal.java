@@ -0,0 +1,193 @@
+/*
+ * Copyright (C) 2020 Simon Norberg
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.awsomefox.sprocket.playback;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.awsomefox.sprocket.data.model.Track;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.zip.CRC32;
+
+import timber.log.Timber;
+
+/**
+ * Memory mapped journal of the playback position, cheap enough to write on every progress tick.
+ * The file holds two fixed size slots that are written in turn, each with a sequence number and a
+ * checksum, so a write torn by the process dying leaves the previous record intact.
+ */
+final class PlaybackJournal {
+
+  static final int SLOT_SIZE = 1024;
+  /** Sequence number, payload length and checksum. */
+  private static final int HEADER_SIZE = 8 + 4 + 8;
+
+  private final File file;
+  private MappedByteBuffer buffer;
+  private long sequence = -1;
+
+  PlaybackJournal(File file) {
+    this.file = file;
+  }
+
+  synchronized void write(@NonNull Entry entry) {
+    if (!map()) {
+      return;
+    }
+    byte[] payload;
+    try {
+      payload = entry.encode();
+    } catch (IOException e) {
+      throw new IllegalStateException(e);
+    }
+    if (payload.length > SLOT_SIZE - HEADER_SIZE) {
+      Timber.w("Journal entry too large, %d bytes", payload.length);
+      return;
+    }
+    long next = sequence + 1;
+    int offset = (int) (next % 2) * SLOT_SIZE;
+    buffer.position(offset + HEADER_SIZE);
+    buffer.put(payload);
+    buffer.putLong(offset, next);
+    buffer.putInt(offset + 8, payload.length);
+    buffer.putLong(offset + 12, checksum(next, payload));
+    sequence = next;
+  }
+
+  /** The most recent intact entry, or null when nothing was recorded. */
+  @Nullable synchronized Entry read() {
+    if (!map() || sequence < 0) {
+      return null;
+    }
+    try {
+      return Entry.decode(payload((int) (sequence % 2)));
+    } catch (IOException e) {
+      Timber.w(e, "Unreadable journal entry");
+      return null;
+    }
+  }
+
+  /** Empties both slots, nothing is read back until the next write. */
+  synchronized void clear() {
+    if (!map()) {
+      return;
+    }
+    for (int slot = 0; slot < 2; slot++) {
+      buffer.putLong(slot * SLOT_SIZE, -1);
+      buffer.putInt(slot * SLOT_SIZE + 8, 0);
+    }
+    sequence = -1;
+  }
+
+  private boolean map() {
+    if (buffer != null) {
+      return true;
+    }
+    try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+      buffer = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, 2 * SLOT_SIZE);
+    } catch (IOException e) {
+      Timber.w(e, "Could not map %s", file);
+      return false;
+    }
+    // Continue after the latest intact record, so it is the last one overwritten
+    sequence = Math.max(intactSequence(0), intactSequence(1));
+    return true;
+  }
+
+  /** Sequence number of the record in {@code slot}, or -1 when it is empty or torn. */
+  private long intactSequence(int slot) {
+    int offset = slot * SLOT_SIZE;
+    long slotSequence = buffer.getLong(offset);
+    int length = buffer.getInt(offset + 8);
+    if (slotSequence < 0 || slotSequence % 2 != slot || length <= 0
+        || length > SLOT_SIZE - HEADER_SIZE) {
+      return -1;
+    }
+    return buffer.getLong(offset + 12) == checksum(slotSequence, payload(slot))
+        ? slotSequence : -1;
+  }
+
+  private byte[] payload(int slot) {
+    int offset = slot * SLOT_SIZE;
+    byte[] payload = new byte[buffer.getInt(offset + 8)];
+    buffer.position(offset + HEADER_SIZE);
+    buffer.get(payload);
+    return payload;
+  }
+
+  private static long checksum(long sequence, byte[] payload) {
+    CRC32 crc = new CRC32();
+    for (int i = 0; i < 8; ++i) {
+      crc.update((int) (sequence >>> (8 * i)));
+    }
+    for (int i = 0; i < 4; ++i) {
+      crc.update(payload.length >>> (8 * i));
+    }
+    crc.update(payload);
+    return crc.getValue();
+  }
+
+  static final class Entry {
+    /** Identity of the queue, the library and book it was created from. */
+    @NonNull final String libraryId;
+    @NonNull final String parentKey;
+    @NonNull final String key;
+    final long queueItemId;
+    final long position;
+
+    Entry(@NonNull String libraryId, @NonNull String parentKey, @NonNull String key,
+          long queueItemId, long position) {
+      this.libraryId = libraryId;
+      this.parentKey = parentKey;
+      this.key = key;
+      this.queueItemId = queueItemId;
+      this.position = position;
+    }
+
+    /** Records {@code position} of {@code track} in the queue it belongs to. */
+    static Entry of(@NonNull Track track, long position) {
+      return new Entry(track.libraryId(), track.parentKey(), track.key(), track.queueItemId(),
+          position);
+    }
+
+    byte[] encode() throws IOException {
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+      try (DataOutputStream out = new DataOutputStream(bytes)) {
+        out.writeUTF(libraryId);
+        out.writeUTF(parentKey);
+        out.writeUTF(key);
+        out.writeLong(queueItemId);
+        out.writeLong(position);
+      }
+      return bytes.toByteArray();
+    }
+
+    static Entry decode(byte[] payload) throws IOException {
+      try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload))) {
+        return new Entry(in.readUTF(), in.readUTF(), in.readUTF(), in.readLong(), in.readLong());
+      }
+    }
+  }
+}
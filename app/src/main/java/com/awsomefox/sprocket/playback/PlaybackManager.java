@@ -29,7 +29,6 @@ import androidx.annotation.NonNull;
 import com.awsomefox.sprocket.AndroidClock;
 import com.awsomefox.sprocket.R;
 import com.awsomefox.sprocket.data.model.Track;
-import com.awsomefox.sprocket.util.Strings;
 import com.awsomefox.sprocket.util.Urls;
 
 import org.jetbrains.annotations.NotNull;
@@ -54,12 +53,21 @@ import static android.support.v4.media.session.PlaybackStateCompat.STATE_SKIPPIN
 import static android.support.v4.media.session.PlaybackStateCompat.STATE_SKIPPING_TO_QUEUE_ITEM;
 import static android.support.v4.media.session.PlaybackStateCompat.STATE_STOPPED;
 import static com.awsomefox.sprocket.ui.PlayerController.BUNDLE_AUTO;
+import static com.awsomefox.sprocket.ui.PlayerController.BUNDLE_TRACK_ALBUM_TITLE;
+import static com.awsomefox.sprocket.ui.PlayerController.BUNDLE_TRACK_ARTIST_TITLE;
+import static com.awsomefox.sprocket.ui.PlayerController.BUNDLE_TRACK_DURATION;
 import static com.awsomefox.sprocket.ui.PlayerController.BUNDLE_TRACK_KEY;
 import static com.awsomefox.sprocket.ui.PlayerController.BUNDLE_TRACK_LIBRARY_ID;
 import static com.awsomefox.sprocket.ui.PlayerController.BUNDLE_TRACK_PARENT_KEY;
+import static com.awsomefox.sprocket.ui.PlayerController.BUNDLE_TRACK_RATING_KEY;
+import static com.awsomefox.sprocket.ui.PlayerController.BUNDLE_TRACK_SOURCE;
+import static com.awsomefox.sprocket.ui.PlayerController.BUNDLE_TRACK_THUMB;
+import static com.awsomefox.sprocket.ui.PlayerController.BUNDLE_TRACK_TITLE;
 import static com.awsomefox.sprocket.ui.PlayerController.BUNDLE_TRACK_URI;
+import static com.awsomefox.sprocket.ui.PlayerController.BUNDLE_TRACK_VIEW_OFFSET;
 import static com.awsomefox.sprocket.ui.PlayerController.CUSTOM_ACTION_BACK;
 import static com.awsomefox.sprocket.ui.PlayerController.CUSTOM_ACTION_FORWARD;
+import static com.awsomefox.sprocket.ui.PlayerController.CUSTOM_ACTION_MERGE_QUEUE;
 import static com.awsomefox.sprocket.ui.PlayerController.CUSTOM_ACTION_SPEED;
 import static com.awsomefox.sprocket.ui.PlayerController.SPEED;
 
@@ -142,6 +150,21 @@ class PlaybackManager implements Playback.Callback {
         }
     }
 
+    /**
+     * Publishes the current track of a restored queue as paused at its offset. The track is only
+     * prepared once playback is requested.
+     */
+    void updateRestoredState() {
+        Track track = queueManager.currentTrack();
+        PlaybackStateCompat.Builder stateBuilder = new PlaybackStateCompat.Builder()
+                .setActions(getAvailableActions());
+        addCustomActions(stateBuilder);
+        stateBuilder.setState(STATE_PAUSED, track.viewOffset(), queueManager.getSpeed(),
+                androidClock.elapsedRealTime());
+        serviceCallback.onPlaybackStateUpdated(stateBuilder.build(),
+                getMetadataBuilder(track).build(), getQueueList());
+    }
+
     private List<MediaSessionCompat.QueueItem> getQueueList() {
         List<MediaSessionCompat.QueueItem> upNext = new ArrayList<>();
         for (Track track : queueManager.getUpNextQueue()) {
@@ -214,6 +237,14 @@ class PlaybackManager implements Playback.Callback {
         updatePlaybackState();
     }
 
+    @Override
+    public void onTransition(Track completed, Track next) {
+        Timber.d("onTransition %s", next);
+        handleCompletion(completed);
+        queueManager.setQueuePosition(next.queueItemId());
+        updatePlaybackState();
+    }
+
     @Override
     public void setCurrentTrack(Track track) {
         Timber.d("setCurrentTrack %s", track);
@@ -299,21 +330,26 @@ class PlaybackManager implements Playback.Callback {
             String key = extras.getString(BUNDLE_TRACK_KEY, "1234");
             String parentKey = extras.getString(BUNDLE_TRACK_PARENT_KEY, "1234");
             String libraryId = extras.getString(BUNDLE_TRACK_LIBRARY_ID, "1234");
+            // Without a source and duration playback waits for the server play queue
+            String source = extras.getString(BUNDLE_TRACK_SOURCE,
+                    Urls.addPathToUrl(uri, "track.media.part.key").toString());
+            // A track missing its metadata must never be played, shown or saved as it is
+            String title = extras.getString(BUNDLE_TRACK_TITLE);
+            long duration = title == null ? 0L : extras.getLong(BUNDLE_TRACK_DURATION, 0L);
             Track track = Track.builder().queueItemId(0)
                     .libraryId(libraryId)
                     .key(key)
-                    .ratingKey("track.ratingKey")
+                    .ratingKey(extras.getString(BUNDLE_TRACK_RATING_KEY, "track.ratingKey"))
                     .parentKey(parentKey)
-                    .title("track.title")
-                    .albumTitle("track.parentTitle")
-                    .artistTitle("track.grandparentTitle")
+                    .title(title == null ? "" : title)
+                    .albumTitle(extras.getString(BUNDLE_TRACK_ALBUM_TITLE, ""))
+                    .artistTitle(extras.getString(BUNDLE_TRACK_ARTIST_TITLE, ""))
                     .index(0)
-                    .duration(0L)
-                    .viewOffset(0L)
+                    .duration(duration)
+                    .viewOffset(extras.getLong(BUNDLE_TRACK_VIEW_OFFSET, 0L))
                     .viewCount(1)
-                    .thumb(Strings.isBlank("track.thumb") ? null : Urls.addPathToUrl(uri,
-                            "track.thumb").toString())
-                    .source(Urls.addPathToUrl(uri, "track.media.part.key").toString())
+                    .thumb(extras.getString(BUNDLE_TRACK_THUMB))
+                    .source(source)
                     .uri(uri)
                     .recent(true)
                     .build();
@@ -382,6 +418,10 @@ class PlaybackManager implements Playback.Callback {
             if (CUSTOM_ACTION_FORWARD.equals(action)) {
                 onSeekTo(playback.getCurrentStreamPosition() + 30000);
             }
+            if (CUSTOM_ACTION_MERGE_QUEUE.equals(action)) {
+                playback.mergeQueue(queueManager.currentTrack());
+                updatePlaybackState();
+            }
         }
     }
 }
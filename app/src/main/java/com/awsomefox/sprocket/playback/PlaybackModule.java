@@ -1,15 +1,35 @@
 package com.awsomefox.sprocket.playback;
 
+import android.content.Context;
+import android.net.ConnectivityManager;
+
+import com.awsomefox.sprocket.data.HttpUrlJsonAdapter;
+import com.awsomefox.sprocket.data.Prefs;
+import com.awsomefox.sprocket.data.download.Downloader;
+import com.awsomefox.sprocket.data.model.Track;
+import com.awsomefox.sprocket.data.repository.MusicRepository;
+import com.awsomefox.sprocket.data.storage.ActiveKeys;
+import com.awsomefox.sprocket.data.storage.Evictable;
+import com.awsomefox.sprocket.util.CacheKeys;
 import com.awsomefox.sprocket.util.Rx;
+import com.google.android.exoplayer2.database.ExoDatabaseProvider;
+import com.squareup.moshi.Moshi;
 
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.Random;
+import java.util.Set;
 import java.util.concurrent.TimeUnit;
 
+import javax.inject.Named;
 import javax.inject.Singleton;
 
 import dagger.Module;
 import dagger.Provides;
+import dagger.multibindings.IntoSet;
 import io.reactivex.Flowable;
+import okhttp3.OkHttpClient;
 
 @Module
 public class PlaybackModule {
@@ -33,4 +53,57 @@ public class PlaybackModule {
     QueueManager provideQueueManager() {
         return new QueueManager();
   }
+
+  @Provides @Singleton AudioCache provideAudioCache(Context context, Prefs prefs) {
+    long quotaMb;
+    try {
+      quotaMb = Long.parseLong(prefs.getString(AudioCache.PREF_QUOTA_MB,
+          String.valueOf(AudioCache.DEFAULT_QUOTA_MB)));
+    } catch (NumberFormatException e) {
+      quotaMb = AudioCache.DEFAULT_QUOTA_MB;
+    }
+    return new AudioCache(new File(context.getCacheDir(), "audio"),
+        new ExoDatabaseProvider(context), quotaMb * 1024 * 1024);
+  }
+
+  @Provides @IntoSet Evictable provideAudioStorage(AudioCache audioCache) {
+    return audioCache;
+  }
+
+  @Provides ActiveKeys provideActiveKeys(QueueManager queueManager) {
+    return () -> {
+      Set<String> keys = new HashSet<>();
+      for (Track track : new ArrayList<>(queueManager.getQueue())) {
+        String key = CacheKeys.forUrl(track.libraryId(), track.source());
+        if (key != null) {
+          keys.add(key);
+        }
+      }
+      return keys;
+    };
+  }
+
+  @Provides @Singleton PlaybackJournal providePlaybackJournal(Context context) {
+    return new PlaybackJournal(new File(context.getFilesDir(), "playback.journal"));
+  }
+
+  @Provides @Singleton QueueStore provideQueueStore(Context context) {
+    return new QueueStore(new File(context.getFilesDir(), "playback.queue"),
+        Track.jsonAdapter(new Moshi.Builder().add(new HttpUrlJsonAdapter()).build()));
+  }
+
+  @Provides @Singleton
+  PlaybackWarmer providePlaybackWarmer(Context context, ConnectivityManager connectivity,
+                                       Downloader downloader, AudioCache audioCache,
+                                       @Named("default") OkHttpClient client, Rx rx) {
+    return new PlaybackWarmer(connectivity, downloader,
+        audioCache.createDataSourceFactory(context, client), rx);
+  }
+
+  @Provides @Singleton
+  PlaybackStarter providePlaybackStarter(QueueManager queueManager,
+                                         MediaController mediaController,
+                                         MusicRepository repository, Rx rx) {
+    return new PlaybackStarter(queueManager, mediaController, repository, rx);
+  }
 }
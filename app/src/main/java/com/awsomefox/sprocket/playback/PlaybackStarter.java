@@ -0,0 +1,76 @@
+/*
+ * Copyright (C) 2020 Simon Norberg
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.awsomefox.sprocket.playback;
+
+import androidx.annotation.NonNull;
+
+import com.awsomefox.sprocket.data.model.Track;
+import com.awsomefox.sprocket.data.repository.MusicRepository;
+import com.awsomefox.sprocket.util.Rx;
+
+import java.util.Collections;
+
+import io.reactivex.disposables.Disposable;
+import io.reactivex.disposables.Disposables;
+import timber.log.Timber;
+
+/**
+ * Starts playing a chapter without waiting for the server play queue. The tapped track is played
+ * on its own while the play queue is created, which is then merged into the
+ * {@link QueueManager} so the rest of the book follows without interrupting the audio.
+ */
+public final class PlaybackStarter {
+
+  private final QueueManager queueManager;
+  private final MediaController mediaController;
+  private final MusicRepository repository;
+  private final Rx rx;
+  private Disposable pending = Disposables.disposed();
+
+  PlaybackStarter(QueueManager queueManager, MediaController mediaController,
+                  MusicRepository repository, Rx rx) {
+    this.queueManager = queueManager;
+    this.mediaController = mediaController;
+    this.repository = repository;
+    this.rx = rx;
+  }
+
+  /** Plays {@code track} at {@code speed}, must be called on the main thread. */
+  public void play(@NonNull Track track, float speed) {
+    pending.dispose();
+    queueManager.setSpeed(speed);
+    mediaController.setSpeed(queueManager.getSpeed());
+    // Tracks played from a media id without their metadata have no duration, they wait for
+    // the play queue
+    boolean started = track.duration() > 0;
+    if (started) {
+      queueManager.setQueue(Collections.singletonList(track), track.queueItemId(), 0L);
+      mediaController.play();
+    }
+    pending = repository.createPlayQueue(track)
+        .compose(rx.singleSchedulers())
+        .subscribe(pair -> {
+          if (!started) {
+            queueManager.setQueue(pair.first, pair.second, 0L);
+            mediaController.play();
+          } else if (queueManager.mergeQueue(pair.first)) {
+            mediaController.mergeQueue();
+          } else {
+            Timber.w("Play queue doesn't hold %s", track.key());
+          }
+        }, Rx::onError);
+  }
+}
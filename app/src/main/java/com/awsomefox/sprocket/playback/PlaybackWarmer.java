@@ -0,0 +1,129 @@
+/*
+ * Copyright (C) 2020 Simon Norberg
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.awsomefox.sprocket.playback;
+
+import android.net.ConnectivityManager;
+import android.net.Uri;
+
+import androidx.annotation.NonNull;
+
+import com.awsomefox.sprocket.data.download.Downloader;
+import com.awsomefox.sprocket.data.model.Track;
+import com.awsomefox.sprocket.util.CacheKeys;
+import com.awsomefox.sprocket.util.Rx;
+import com.google.android.exoplayer2.C;
+import com.google.android.exoplayer2.upstream.DataSource;
+import com.google.android.exoplayer2.upstream.DataSpec;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import io.reactivex.Completable;
+import io.reactivex.disposables.Disposable;
+import timber.log.Timber;
+
+/**
+ * Prepares the most likely next play action, resuming a chapter in progress, before it is tapped.
+ * The connection to the server is opened and a few seconds of audio around the resume offset are
+ * read into the {@link AudioCache}, so playback starts without waiting for them. Nothing is
+ * changed on the server, the play queue is only created once the chapter is played, and nothing
+ * is read on a metered network.
+ */
+public final class PlaybackWarmer {
+
+  /** Read from the start of the file, enough for the container headers. */
+  private static final long HEAD_BYTES = 256 * 1024;
+  private static final long LEAD_MS = TimeUnit.SECONDS.toMillis(2);
+  private static final long WINDOW_MS = TimeUnit.SECONDS.toMillis(10);
+  private static final int BUFFER_SIZE = 16 * 1024;
+
+  private final ConnectivityManager connectivityManager;
+  private final Downloader downloader;
+  private final DataSource.Factory dataSourceFactory;
+  private final Rx rx;
+
+  PlaybackWarmer(ConnectivityManager connectivityManager, Downloader downloader,
+                 DataSource.Factory dataSourceFactory, Rx rx) {
+    this.connectivityManager = connectivityManager;
+    this.downloader = downloader;
+    this.dataSourceFactory = dataSourceFactory;
+    this.rx = rx;
+  }
+
+  /**
+   * Buffers audio at the offset of {@code track}. Dispose to cancel, for example when the screen
+   * offering the chapter goes away.
+   */
+  @NonNull public Disposable warm(@NonNull Track track) {
+    Timber.d("Warming %s", track.title());
+    return buffer(track).subscribeOn(rx.io())
+        .subscribe(() -> { }, error -> Timber.d(error, "Could not buffer %s", track.title()));
+  }
+
+  private Completable buffer(Track track) {
+    return Completable.create(emitter -> {
+      AtomicBoolean cancelled = new AtomicBoolean();
+      emitter.setCancellable(() -> cancelled.set(true));
+      // Checked when the work runs, the network may have changed since it was asked for
+      if (!isMetered() && downloader.localFile(track) == null && track.duration() > 0) {
+        buffer(track, cancelled);
+      }
+      emitter.onComplete();
+    });
+  }
+
+  private boolean isMetered() {
+    return connectivityManager == null || connectivityManager.isActiveNetworkMetered();
+  }
+
+  private void buffer(Track track, AtomicBoolean cancelled) throws IOException {
+    Uri uri = Uri.parse(track.source());
+    String cacheKey = CacheKeys.forUrl(track.libraryId(), track.source());
+    long length = read(new DataSpec(uri, 0, C.LENGTH_UNSET, cacheKey), HEAD_BYTES, cancelled);
+    if (length == C.LENGTH_UNSET || track.viewOffset() <= 0 || cancelled.get() || isMetered()) {
+      return;
+    }
+    // Assume a constant bitrate to find the resume offset in the file
+    double bytesPerMs = (double) length / track.duration();
+    long start = Math.max(HEAD_BYTES, (long) ((track.viewOffset() - LEAD_MS) * bytesPerMs));
+    if (start >= length) {
+      return;
+    }
+    long window = Math.min((long) (WINDOW_MS * bytesPerMs), length - start);
+    read(new DataSpec(uri, start, window, cacheKey), window, cancelled);
+  }
+
+  /** Reads up to {@code bytes} of {@code dataSpec} and returns the resolved length. */
+  private long read(DataSpec dataSpec, long bytes, AtomicBoolean cancelled) throws IOException {
+    DataSource source = dataSourceFactory.createDataSource();
+    try {
+      long length = source.open(dataSpec);
+      byte[] buffer = new byte[BUFFER_SIZE];
+      long remaining = bytes;
+      while (remaining > 0 && !cancelled.get()) {
+        int read = source.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+        if (read == C.RESULT_END_OF_INPUT) {
+          break;
+        }
+        remaining -= read;
+      }
+      return length;
+    } finally {
+      source.close();
+    }
+  }
+}
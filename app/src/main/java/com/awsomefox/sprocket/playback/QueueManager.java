@@ -67,6 +67,29 @@ public class QueueManager {
         notifyQueue();
     }
 
+    /**
+     * Replaces the queue with {@code serverQueue} while its current track keeps playing. The
+     * current track is matched by key and takes the queue item id from the server, but keeps its
+     * offset. Returns false, leaving the queue as is, when the server queue doesn't hold it.
+     */
+    boolean mergeQueue(List<Track> serverQueue) {
+        if (queue.isEmpty()) {
+            return false;
+        }
+        Track current = currentTrack();
+        for (int i = 0; i < serverQueue.size(); ++i) {
+            if (serverQueue.get(i).key().equals(current.key())) {
+                List<Track> merged = new ArrayList<>(serverQueue);
+                merged.set(i, merged.get(i).toBuilder().viewOffset(current.viewOffset()).build());
+                queue = merged;
+                position = i;
+                notifyQueue();
+                return true;
+            }
+        }
+        return false;
+    }
+
     public List<Track> getQueue() {
         return queue;
     }
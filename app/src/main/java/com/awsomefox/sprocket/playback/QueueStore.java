@@ -0,0 +1,111 @@
+/*
+ * Copyright (C) 2020 Simon Norberg
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.awsomefox.sprocket.playback;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.awsomefox.sprocket.data.model.Track;
+import com.awsomefox.sprocket.util.Pair;
+import com.squareup.moshi.JsonAdapter;
+import com.squareup.moshi.JsonDataException;
+import com.squareup.moshi.JsonReader;
+import com.squareup.moshi.JsonWriter;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import okio.Okio;
+import timber.log.Timber;
+
+/**
+ * The play queue saved with every track in full, so it can be restored on startup without asking
+ * the server. The file is replaced as a whole on every save.
+ */
+final class QueueStore {
+
+  private final File file;
+  private final JsonAdapter<Track> adapter;
+
+  QueueStore(File file, JsonAdapter<Track> adapter) {
+    this.file = file;
+    this.adapter = adapter;
+  }
+
+  synchronized void save(@NonNull List<Track> queue, int position) {
+    File temp = new File(file.getPath() + ".tmp");
+    try (JsonWriter writer = JsonWriter.of(Okio.buffer(Okio.sink(temp)))) {
+      writer.beginObject();
+      writer.name("position").value(position);
+      writer.name("tracks").beginArray();
+      for (Track track : queue) {
+        adapter.toJson(writer, track);
+      }
+      writer.endArray();
+      writer.endObject();
+    } catch (IOException e) {
+      Timber.w(e, "Could not save the queue");
+      return;
+    }
+    if (!temp.renameTo(file)) {
+      Timber.w("Could not replace %s", file);
+    }
+  }
+
+  synchronized void clear() {
+    if (file.exists() && !file.delete()) {
+      Timber.w("Could not delete %s", file);
+    }
+  }
+
+  /** The saved queue and the position in it, or null when there is none. */
+  @Nullable synchronized Pair<List<Track>, Integer> load() {
+    if (!file.exists()) {
+      return null;
+    }
+    int position = 0;
+    List<Track> tracks = new ArrayList<>();
+    try (JsonReader reader = JsonReader.of(Okio.buffer(Okio.source(file)))) {
+      reader.beginObject();
+      while (reader.hasNext()) {
+        switch (reader.nextName()) {
+          case "position":
+            position = reader.nextInt();
+            break;
+          case "tracks":
+            reader.beginArray();
+            while (reader.hasNext()) {
+              tracks.add(adapter.fromJson(reader));
+            }
+            reader.endArray();
+            break;
+          default:
+            reader.skipValue();
+        }
+      }
+      reader.endObject();
+    } catch (IOException | JsonDataException e) {
+      Timber.w(e, "Could not load the queue");
+      return null;
+    }
+    if (position < 0 || position >= tracks.size()) {
+      return null;
+    }
+    return new Pair<>(tracks, position);
+  }
+}
@@ -15,11 +15,21 @@
  */
 package com.awsomefox.sprocket.playback;
 
-import android.content.SharedPreferences;
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.net.ConnectivityManager;
+import android.net.Network;
+import android.net.NetworkCapabilities;
+import android.net.NetworkRequest;
+import android.os.PowerManager;
 import android.text.format.DateUtils;
 
-import com.awsomefox.sprocket.data.api.MediaService;
+import androidx.annotation.NonNull;
+
 import com.awsomefox.sprocket.data.model.Track;
+import com.awsomefox.sprocket.data.outbox.Outbox;
 import com.awsomefox.sprocket.util.Rx;
 
 import java.util.concurrent.atomic.AtomicLong;
@@ -34,67 +44,152 @@ import static android.support.v4.media.session.PlaybackStateCompat.STATE_PLAYING
 import static android.support.v4.media.session.PlaybackStateCompat.STATE_STOPPED;
 
 /**
- * Updates the Plex server of current playback status
+ * Updates the Plex server of current playback status. While playing the position is reported
+ * every {@link #BASE_INTERVAL_MS} of wall time, less often with the screen off or on a metered
+ * network. Pausing, stopping, changing track and seeking back are reported right away. Reports
+ * are queued one at a time and only the latest one waiting is kept.
  */
 class TimelineManager {
 
+    static final long BASE_INTERVAL_MS = 10000;
+
+    enum Decision {
+        REPORT,
+        /** Folded into a later report. */
+        COALESCE,
+        /** Identical to the last report. */
+        DROP
+    }
+
+    private final Context context;
     private final MediaController mediaController;
     private final QueueManager queueManager;
-    private final MediaService media;
+    private final Outbox outbox;
     private final Rx rx;
+    private final ConnectivityManager connectivityManager;
+    private final PowerManager powerManager;
+    private final AtomicLong sent = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    // Asking the system services is an IPC, too slow for every progress tick
+    private final BroadcastReceiver screenReceiver = new BroadcastReceiver() {
+        @Override
+        public void onReceive(Context context, Intent intent) {
+            interactive = Intent.ACTION_SCREEN_ON.equals(intent.getAction());
+        }
+    };
+    private final ConnectivityManager.NetworkCallback networkCallback =
+            new ConnectivityManager.NetworkCallback() {
+                @Override
+                public void onAvailable(@NonNull Network network) {
+                    metered = connectivityManager.isActiveNetworkMetered();
+                }
+
+                @Override
+                public void onCapabilitiesChanged(@NonNull Network network,
+                                                  @NonNull NetworkCapabilities capabilities) {
+                    metered = connectivityManager.isActiveNetworkMetered();
+                }
+
+                @Override
+                public void onLost(@NonNull Network network) {
+                    metered = connectivityManager.isActiveNetworkMetered();
+                }
+            };
+    private volatile boolean interactive;
+    private volatile boolean metered;
+    private boolean watching;
     private CompositeDisposable disposables;
-    private AtomicLong currentTrackedProgress = new AtomicLong(0L);
-    private SharedPreferences preferences;
-
-    TimelineManager(MediaController mediaController, QueueManager queueManager, MediaService media,
-                    Rx rx, SharedPreferences preferences) {
+    // Only touched by the serialized timeline stream
+    private Timeline lastOffered;
+    private long offered;
+    private long lastReported;
+
+    TimelineManager(Context context, MediaController mediaController, QueueManager queueManager,
+                    Outbox outbox, Rx rx, ConnectivityManager connectivityManager,
+                    PowerManager powerManager) {
+        this.context = context;
         this.mediaController = mediaController;
         this.queueManager = queueManager;
-        this.media = media;
+        this.outbox = outbox;
         this.rx = rx;
-        this.preferences = preferences;
+        this.connectivityManager = connectivityManager;
+        this.powerManager = powerManager;
         disposables = new CompositeDisposable();
-
     }
 
     void reset() {
-        currentTrackedProgress.set(0L);
-        stop();
+        Rx.dispose(disposables);
         disposables = new CompositeDisposable();
         start();
     }
 
     private void start() {
-
-        disposables.add(Flowable.combineLatest(state(), currentTrack(), progress(),
+        watch();
+        lastOffered = null;
+        offered = 0;
+        lastReported = 0;
+        disposables.add(Flowable.combineLatest(state(), currentTrack(), mediaController.progress(),
                 (state, track, time) -> new Timeline(state, time, track))
-                .observeOn(rx.io())
-                .flatMapCompletable(this::updateTimeline)
-                .subscribeOn(rx.io())
-                .observeOn(rx.io())
+                .filter(this::offer)
+                .observeOn(rx.io(), false, 1)
+                .onBackpressureLatest()
+                .concatMapCompletable(this::report, 1)
                 .subscribe(() -> Timber.d("onCompleted"), Rx::onError));
     }
 
-    private Completable updateTimeline(Timeline t) {
-        //if no track set the current track to the timeline track
-        preferences.edit().putLong("trackProgress", t.time).apply();
-        if (currentTrackedProgress.get() > t.time) {
-            currentTrackedProgress.set(0L);
+    private boolean offer(Timeline t) {
+        Decision decision = decide(lastOffered, t,
+                reportInterval(mediaController.getSpeed(), interactive, metered));
+        if (decision == Decision.COALESCE) {
+            coalesced.incrementAndGet();
+        } else if (decision == Decision.DROP) {
+            dropped.incrementAndGet();
+        } else {
+            lastOffered = t;
+            t.sequence = ++offered;
         }
+        return decision == Decision.REPORT;
+    }
 
-        currentTrackedProgress.set(t.time);
-        Timber.d("Sending progress update at %s",
+    private Completable report(Timeline t) {
+        // Reports replaced while the previous one was queued
+        coalesced.addAndGet(t.sequence - lastReported - 1);
+        lastReported = t.sequence;
+        Timber.d("Queueing progress update at %s",
                 DateUtils.formatElapsedTime(t.time / 1000));
-        return media.timeline(t.track.uri(), t.track.queueItemId(), t.track.key(),
-                t.track.ratingKey(), t.state, t.track.duration(), t.time)
-                .onErrorComplete(); // Skip errors;
+        return outbox.timeline(t.track, t.state, t.time)
+                .doOnComplete(sent::incrementAndGet)
+                .doOnError(e -> dropped.incrementAndGet())
+                .onErrorComplete(); // Skip errors
     }
 
-    private Flowable<Long> progress() {
-        return mediaController.progress()
-                .filter(progress -> (progress - currentTrackedProgress.get()) > 10000 || progress
-                        < currentTrackedProgress.get());
-        // Send updates every 10 seconds playtime or when current progress out of sync
+    /** Whether {@code next} is worth reporting after {@code last}. */
+    static Decision decide(Timeline last, Timeline next, long interval) {
+        if (last == null || !last.track.key().equals(next.track.key())
+                || !last.state.equals(next.state)) {
+            return Decision.REPORT;
+        }
+        if (last.time == next.time) {
+            return Decision.DROP;
+        }
+        if (!"playing".equals(next.state) || next.time < last.time
+                || next.time - last.time >= interval) {
+            return Decision.REPORT;
+        }
+        return Decision.COALESCE;
+    }
+
+    /** Playback time between reports, so that they are evenly spaced in wall time. */
+    static long reportInterval(float speed, boolean interactive, boolean metered) {
+        long interval = BASE_INTERVAL_MS;
+        if (!interactive) {
+            interval *= 3;
+        }
+        if (metered) {
+            interval *= 4;
+        }
+        return (long) (interval * speed);
     }
 
     private Flowable<Track> currentTrack() {
@@ -118,14 +213,38 @@ class TimelineManager {
                 });
     }
 
+    private void watch() {
+        if (watching) {
+            return;
+        }
+        watching = true;
+        interactive = powerManager.isInteractive();
+        metered = connectivityManager.isActiveNetworkMetered();
+        IntentFilter filter = new IntentFilter(Intent.ACTION_SCREEN_ON);
+        filter.addAction(Intent.ACTION_SCREEN_OFF);
+        context.registerReceiver(screenReceiver, filter);
+        connectivityManager.registerNetworkCallback(new NetworkRequest.Builder()
+                .addCapability(NetworkCapabilities.NET_CAPABILITY_INTERNET)
+                .build(), networkCallback);
+    }
+
     void stop() {
+        if (watching) {
+            watching = false;
+            context.unregisterReceiver(screenReceiver);
+            connectivityManager.unregisterNetworkCallback(networkCallback);
+        }
         Rx.dispose(disposables);
+        Timber.d("Timeline updates sent %d, coalesced %d, dropped %d", sent.get(),
+                coalesced.get(), dropped.get());
     }
 
-    private static class Timeline {
+    static class Timeline {
         private final String state;
         private final long time;
         private final Track track;
+        /** Order in which the report was offered. */
+        private long sequence;
 
         Timeline(String state, long time, Track track) {
             this.state = state;
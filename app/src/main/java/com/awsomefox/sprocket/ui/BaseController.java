@@ -17,6 +17,7 @@ package com.awsomefox.sprocket.ui;
 
 import android.os.Bundle;
 import android.view.LayoutInflater;
+import android.view.Menu;
 import android.view.View;
 import android.view.ViewGroup;
 
@@ -26,11 +27,11 @@ import androidx.appcompat.widget.Toolbar;
 
 import com.awsomefox.sprocket.R;
 import com.awsomefox.sprocket.util.Rx;
+import com.awsomefox.sprocket.util.StartupTrace;
 import com.bluelinelabs.conductor.ControllerChangeHandler;
 import com.bluelinelabs.conductor.ControllerChangeType;
 import com.bluelinelabs.conductor.rxlifecycle2.RxController;
-import com.google.android.gms.cast.framework.CastContext;
-import com.google.android.gms.cast.framework.CastStateListener;
+import com.google.android.gms.cast.framework.CastButtonFactory;
 
 import butterknife.BindView;
 import butterknife.ButterKnife;
@@ -40,13 +41,10 @@ import leakcanary.AppWatcher;
 
 abstract class BaseController extends RxController {
 
-    private final CastStateListener castStateListener = newState -> {
-    };
     @Nullable
     @BindView(R.id.toolbar)
     Toolbar toolbar;
     CompositeDisposable disposables;
-    private CastContext castContext;
     private Unbinder unbinder;
     private boolean hasExited;
 
@@ -64,33 +62,35 @@ abstract class BaseController extends RxController {
         injectDependencies();
         View view = inflater.inflate(getLayoutResource(), container, false);
         unbinder = ButterKnife.bind(this, view);
-        if (getActivity() != null) {
-            if (toolbar != null) {
-                ((SprocketActivity) getActivity()).setSupportActionBar(toolbar);
-            }
-            castContext = CastContext.getSharedInstance(getActivity());
+        if (getActivity() != null && toolbar != null) {
+            ((SprocketActivity) getActivity()).setSupportActionBar(toolbar);
         }
         return view;
     }
 
+    /** Sets up the cast button, the first one initializes the Cast framework on this thread. */
+    void setUpMediaRouteButton(@NonNull Menu menu) {
+        try (StartupTrace.Section ignored = StartupTrace.begin("cast button")) {
+            CastButtonFactory.setUpMediaRouteButton(getApplicationContext(), menu,
+                    R.id.media_route_menu_item);
+        }
+    }
+
     @Override
     protected void onAttach(@NonNull View view) {
         super.onAttach(view);
         disposables = new CompositeDisposable();
-        castContext.addCastStateListener(castStateListener);
     }
 
     @Override
     protected void onDetach(@NonNull View view) {
         super.onDetach(view);
         Rx.dispose(disposables);
-        castContext.removeCastStateListener(castStateListener);
     }
 
     @Override
     protected void onDestroyView(@NonNull View view) {
         super.onDestroyView(view);
-        castContext = null;
         unbinder.unbind();
         unbinder = null;
     }
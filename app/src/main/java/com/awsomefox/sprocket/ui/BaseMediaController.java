@@ -28,16 +28,22 @@ import androidx.annotation.NonNull;
 import androidx.appcompat.app.AlertDialog;
 
 import com.awsomefox.sprocket.R;
+import com.awsomefox.sprocket.data.model.PlexItem;
 import com.awsomefox.sprocket.data.model.Track;
 import com.awsomefox.sprocket.data.repository.MusicRepository;
 import com.awsomefox.sprocket.playback.MediaController;
+import com.awsomefox.sprocket.playback.PlaybackStarter;
+import com.awsomefox.sprocket.playback.PlaybackWarmer;
 import com.awsomefox.sprocket.playback.QueueManager;
 import com.awsomefox.sprocket.ui.adapter.ClickableViewHolder;
 
+import java.util.List;
 import java.util.Objects;
 
 import javax.inject.Inject;
 
+import io.reactivex.android.schedulers.AndroidSchedulers;
+import io.reactivex.disposables.Disposable;
 import io.reactivex.observers.DisposableCompletableObserver;
 import io.reactivex.schedulers.Schedulers;
 
@@ -48,8 +54,13 @@ abstract class BaseMediaController extends BaseController {
     MusicRepository musicRepository;
     @Inject
     QueueManager queueManager;
+    @Inject
+    PlaybackWarmer playbackWarmer;
+    @Inject
+    PlaybackStarter playbackStarter;
 
     SharedPreferences preferences;
+    private Disposable warming;
 
     BaseMediaController(Bundle args) {
         super(args);
@@ -63,7 +74,7 @@ abstract class BaseMediaController extends BaseController {
         return view;
     }
 
-    private void makeToastOnUIThread(String text) {
+    void makeToastOnUIThread(String text) {
         Objects.requireNonNull(getActivity()).runOnUiThread(() ->
                 Toast.makeText(Objects.requireNonNull(getActivity()), text,
                         Toast.LENGTH_SHORT).show());
@@ -74,13 +85,18 @@ abstract class BaseMediaController extends BaseController {
                 Objects.requireNonNull(getActivity()));
         builder.setTitle(R.string.mark_unstarted)
                 .setPositiveButton(R.string.yes, (dialog, id) -> {
-                    musicRepository.unscrobble(plexItem.uri(), plexItem.ratingKey())
+                    musicRepository.unscrobble(plexItem)
                             .subscribeOn(Schedulers.io())
+                            .observeOn(AndroidSchedulers.mainThread())
                             .subscribe(new DisposableCompletableObserver() {
                                 @Override
                                 public void onComplete() {
                                     iv.setImageResource(R.drawable.no_listen);
                                     iv.setTag(ClickableViewHolder.NONE);
+                                    onListenStateChanged(plexItem.toBuilder()
+                                            .viewOffset(0)
+                                            .viewCount(0)
+                                            .build());
                                     makeToastOnUIThread("Marked unstarted");
                                 }
 
@@ -99,13 +115,18 @@ abstract class BaseMediaController extends BaseController {
                 Objects.requireNonNull(getActivity()));
         builder.setTitle(R.string.mark_finshed)
                 .setPositiveButton(R.string.yes, (dialog, id) -> {
-                    musicRepository.scrobble(plexItem.uri(), plexItem.ratingKey())
+                    musicRepository.scrobble(plexItem)
                             .subscribeOn(Schedulers.io())
+                            .observeOn(AndroidSchedulers.mainThread())
                             .subscribe(new DisposableCompletableObserver() {
                                 @Override
                                 public void onComplete() {
                                     iv.setImageResource(R.drawable.full_listen);
                                     iv.setTag(ClickableViewHolder.FULL);
+                                    onListenStateChanged(plexItem.toBuilder()
+                                            .viewOffset(0)
+                                            .viewCount(Math.max(1, plexItem.viewCount()))
+                                            .build());
                                     makeToastOnUIThread("Marked finished");
                                 }
 
@@ -119,15 +140,35 @@ abstract class BaseMediaController extends BaseController {
         builder.create().show();
     }
 
+    /** Called on the main thread once a chapter has been marked finished or unstarted. */
+    void onListenStateChanged(Track track) {
+    }
+
+    /**
+     * Prepares resuming the first chapter in progress in {@code items}, the most likely next tap,
+     * until the view is detached.
+     */
+    void warmUpResume(List<PlexItem> items) {
+        if (warming != null && !warming.isDisposed()) {
+            return;
+        }
+        for (PlexItem item : items) {
+            if (item instanceof Track && ((Track) item).viewOffset() > 0) {
+                Track track = (Track) item;
+                for (Track queued : queueManager.getQueue()) {
+                    if (queued.key().equals(track.key())) {
+                        return;
+                    }
+                }
+                warming = playbackWarmer.warm(track);
+                disposables.add(warming);
+                return;
+            }
+        }
+    }
+
     void updateSpeed(float speed) {
         queueManager.setSpeed(speed);
         mediaController.setSpeed(queueManager.getSpeed());
     }
-
-    void persistCurrentTrack(Track track) {
-        preferences.edit().putString("trackUri", track.uri().toString()).apply();
-        preferences.edit().putString("trackKey", track.key()).apply();
-        preferences.edit().putString("trackParentKey", track.parentKey()).apply();
-        preferences.edit().putString("trackLibraryId", track.libraryId()).apply();
-    }
 }
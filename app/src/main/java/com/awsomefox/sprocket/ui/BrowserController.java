@@ -23,6 +23,7 @@ import android.view.Menu;
 import android.view.MenuInflater;
 import android.view.View;
 import android.view.ViewGroup;
+import android.view.ViewTreeObserver;
 import android.widget.AdapterView;
 import android.widget.ArrayAdapter;
 import android.widget.FrameLayout;
@@ -46,14 +47,16 @@ import com.awsomefox.sprocket.data.model.Library;
 import com.awsomefox.sprocket.data.model.MediaType;
 import com.awsomefox.sprocket.data.model.PlexItem;
 import com.awsomefox.sprocket.data.model.Track;
+import com.awsomefox.sprocket.data.repository.LetterIndex;
 import com.awsomefox.sprocket.ui.adapter.MusicAdapter;
+import com.awsomefox.sprocket.ui.adapter.PagedItems;
 import com.awsomefox.sprocket.ui.widget.DividerItemDecoration;
-import com.awsomefox.sprocket.ui.widget.EndScrollListener;
+import com.awsomefox.sprocket.ui.widget.LetterBar;
 import com.awsomefox.sprocket.util.Rx;
+import com.awsomefox.sprocket.util.StartupTrace;
 import com.awsomefox.sprocket.util.Views;
 import com.bluelinelabs.conductor.Router;
 import com.bluelinelabs.conductor.RouterTransaction;
-import com.google.android.gms.cast.framework.CastButtonFactory;
 
 import java.util.ArrayList;
 import java.util.Collections;
@@ -64,13 +67,14 @@ import javax.inject.Inject;
 import butterknife.BindDrawable;
 import butterknife.BindView;
 import butterknife.OnClick;
+import io.reactivex.Completable;
 import timber.log.Timber;
 
 import static com.bluelinelabs.conductor.rxlifecycle2.ControllerEvent.DETACH;
 
 public class BrowserController extends BaseMediaController implements
-        MusicAdapter.OnPlexItemClickListener, EndScrollListener.EndListener,
-        AdapterView.OnItemSelectedListener {
+        MusicAdapter.OnPlexItemClickListener, PagedItems.Callback,
+        LetterBar.OnLetterSelectedListener, AdapterView.OnItemSelectedListener {
 
     private static final int PAGE_SIZE = 50;
     public static final String LIBRARY_PREFERENCE = "com.awsomefox.sprocket.selectedLibrary";
@@ -87,17 +91,31 @@ public class BrowserController extends BaseMediaController implements
     Drawable itemDivider;
     @BindView(R.id.swipe_view)
     SwipeRefreshLayout swipeRefreshLayout;
+    @BindView(R.id.letter_bar)
+    LetterBar letterBar;
     @Inject
     ServerManager serverManager;
     @Inject
     Rx rx;
-    private EndScrollListener endScrollListener;
     private List<Library> libs = Collections.emptyList();
     private Library currentLib;
     private MediaType mediaType;
-    private int currentPage = -1;
-    private boolean isLoading;
+    private PagedItems pagedItems;
     private boolean serverRefreshed;
+    // Layout runs before drawing, so the first pre-draw with items is the first one showing them
+    private final ViewTreeObserver.OnPreDrawListener firstContentListener =
+            new ViewTreeObserver.OnPreDrawListener() {
+                @Override
+                public boolean onPreDraw() {
+                    if (adapter.getItemCount() > 0) {
+                        recyclerView.getViewTreeObserver().removeOnPreDrawListener(this);
+                        if (getActivity() != null) {
+                            ((SprocketActivity) getActivity()).onFirstContentDrawn();
+                        }
+                    }
+                    return true;
+                }
+            };
 
     public BrowserController(Bundle args) {
         super(args);
@@ -147,11 +165,12 @@ public class BrowserController extends BaseMediaController implements
         recyclerView.addItemDecoration(new DividerItemDecoration(itemDivider));
 
         contentLoading.hide();
+        letterBar.setOnLetterSelectedListener(this);
         swipeRefreshLayout.setOnRefreshListener(() -> {
             if (mediaType == null) {
                 browseLibrary(currentLib, true);
             } else {
-                browseMediaType();
+                browseMediaType(true);
             }
         });
         return view;
@@ -161,18 +180,20 @@ public class BrowserController extends BaseMediaController implements
     protected void onAttach(@NonNull View view) {
         super.onAttach(view);
         recyclerView.setAdapter(adapter);
+        if (mediaType == null && !StartupTrace.isReported()) {
+            recyclerView.getViewTreeObserver().addOnPreDrawListener(firstContentListener);
+        }
         if (mediaType == null) {
             if (!serverRefreshed) {
                 serverRefreshed = true;
                 serverManager.refresh();
             }
             observeLibs();
+        } else if (pagedItems == null) {
+            browseMediaType(false);
         } else {
-            startEndlessScrolling();
-            if (currentPage < 0) {
-                currentPage = 0;
-                browseMediaType();
-            }
+            // The view was rebuilt after coming back, the letters are still known
+            showLetters(pagedItems.index());
         }
         observePlayback();
 
@@ -181,7 +202,11 @@ public class BrowserController extends BaseMediaController implements
     @Override
     protected void onDetach(@NonNull View view) {
         super.onDetach(view);
-        recyclerView.clearOnScrollListeners();
+        recyclerView.getViewTreeObserver().removeOnPreDrawListener(firstContentListener);
+        if (pagedItems != null) {
+            // Loads in flight are disposed on detach, let them be requested again
+            pagedItems.cancelAll();
+        }
         recyclerView.setAdapter(null);
     }
 
@@ -189,14 +214,36 @@ public class BrowserController extends BaseMediaController implements
     public void onCreateOptionsMenu(@NonNull Menu menu, @NonNull MenuInflater inflater) {
         super.onCreateOptionsMenu(menu, inflater);
         inflater.inflate(R.menu.menu_main, menu);
-        CastButtonFactory.setUpMediaRouteButton(getApplicationContext(), menu,
-                R.id.media_route_menu_item);
+        setUpMediaRouteButton(menu);
+    }
+
+    @Override
+    public void loadPage(int page, int start, int size) {
+        PagedItems target = pagedItems;
+        disposables.add(musicRepository.browsePage(mediaType, start, size)
+                .compose(bindUntilEvent(DETACH))
+                .compose(rx.observableSchedulers())
+                .subscribe(items -> {
+                    if (target == pagedItems) {
+                        target.setPage(page, items);
+                    }
+                }, error -> {
+                    target.cancelPage(page);
+                    Rx.onError(error);
+                }));
+    }
+
+    @Override
+    public void onPageChanged(int positionStart, int itemCount) {
+        adapter.notifyItemRangeChanged(positionStart, itemCount);
     }
 
     @Override
-    public void endReached() {
-        if (mediaType != null) {
-            browseMediaType();
+    public void onLetterSelected(int letter) {
+        if (pagedItems != null) {
+            // Only the pages around the target are loaded, straight from their offset
+            ((LinearLayoutManager) recyclerView.getLayoutManager()).scrollToPositionWithOffset(
+                    pagedItems.index().headerPosition(letter), 0);
         }
     }
 
@@ -223,6 +270,11 @@ public class BrowserController extends BaseMediaController implements
         markUstarted((Track) plexItem, iv);
     }
 
+    @Override
+    void onListenStateChanged(Track track) {
+        adapter.update(track);
+    }
+
     @OnClick(R.id.miniplayer_container)
     void onMiniplayerClicked() {
         getRouter().pushController(RouterTransaction.with(new PlayerController(null)));
@@ -266,42 +318,39 @@ public class BrowserController extends BaseMediaController implements
         swipeRefreshLayout.setRefreshing(true);
         disposables.add(musicRepository.browseLibrary(lib)
                 .compose(bindUntilEvent(DETACH))
-                .compose(rx.singleSchedulers())
+                .compose(rx.observableSchedulers())
                 .subscribe(items -> {
                     adapter.set(items);
                     swipeRefreshLayout.setRefreshing(false);
+                    warmUpResume(items);
                 }, Rx::onError));
     }
 
-    private void browseMediaType() {
-        if (isLoading) {
-            return;
-        }
+    private void browseMediaType(boolean refresh) {
         swipeRefreshLayout.setRefreshing(true);
-        isLoading = true;
-        disposables.add(musicRepository.browseMediaType(mediaType, PAGE_SIZE * currentPage, 50)
+        Completable invalidate = refresh
+                ? musicRepository.invalidate(mediaType) : Completable.complete();
+        disposables.add(invalidate.andThen(musicRepository.letterIndex(mediaType))
                 .compose(bindUntilEvent(DETACH))
                 .compose(rx.singleSchedulers())
-                .subscribe(items -> {
-                    if (items.isEmpty()) {
-                        stopEndlessScrolling();
-                    } else {
-                        adapter.addAll(items);
-                    }
+                .subscribe(index -> {
+                    pagedItems = new PagedItems(index, PAGE_SIZE, this);
+                    adapter.set(pagedItems);
+                    showLetters(index);
                     swipeRefreshLayout.setRefreshing(false);
-                    currentPage++; // Only increment page if current page was loaded successfully
-                    isLoading = false;
-                }, Rx::onError));
-    }
-
-    private void startEndlessScrolling() {
-        endScrollListener = new EndScrollListener((LinearLayoutManager)
-                recyclerView.getLayoutManager(), this);
-        recyclerView.addOnScrollListener(endScrollListener);
+                }, error -> {
+                    swipeRefreshLayout.setRefreshing(false);
+                    Rx.onError(error);
+                }));
     }
 
-    private void stopEndlessScrolling() {
-        recyclerView.removeOnScrollListener(endScrollListener);
+    private void showLetters(LetterIndex index) {
+        letterBar.setLetters(index.letters());
+        if (index.letters().isEmpty()) {
+            Views.gone(letterBar);
+        } else {
+            Views.visible(letterBar);
+        }
     }
 
     private void observePlayback() {
@@ -341,14 +390,7 @@ public class BrowserController extends BaseMediaController implements
 
     private void playTrack(Track track) {
         Timber.d("playTrack %s", track);
-        disposables.add(musicRepository.createPlayQueue(track)
-                .compose(bindUntilEvent(DETACH))
-                .compose(rx.singleSchedulers())
-                .subscribe(pair -> {
-                    queueManager.setQueue(pair.first, pair.second, 0L);
-                    updateSpeed(preferences.getFloat(PlayerController.SPEED, 1.0f));
-                    mediaController.play();
-                }, Rx::onError));
+        playbackStarter.play(track, preferences.getFloat(PlayerController.SPEED, 1.0f));
     }
 
     @Override
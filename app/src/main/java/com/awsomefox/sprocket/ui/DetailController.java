@@ -21,12 +21,14 @@ import android.support.v4.media.session.PlaybackStateCompat;
 import android.view.LayoutInflater;
 import android.view.Menu;
 import android.view.MenuInflater;
+import android.view.MenuItem;
 import android.view.View;
 import android.view.ViewGroup;
 import android.widget.FrameLayout;
 import android.widget.ImageView;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.StringRes;
 import androidx.appcompat.app.ActionBar;
 import androidx.core.widget.ContentLoadingProgressBar;
 import androidx.recyclerview.widget.LinearLayoutManager;
@@ -36,6 +38,8 @@ import androidx.swiperefreshlayout.widget.SwipeRefreshLayout;
 import com.awsomefox.sprocket.R;
 import com.awsomefox.sprocket.SprocketApp;
 import com.awsomefox.sprocket.data.Key;
+import com.awsomefox.sprocket.data.download.DownloadProgress;
+import com.awsomefox.sprocket.data.download.Downloader;
 import com.awsomefox.sprocket.data.model.Author;
 import com.awsomefox.sprocket.data.model.Book;
 import com.awsomefox.sprocket.data.model.PlexItem;
@@ -45,13 +49,16 @@ import com.awsomefox.sprocket.ui.widget.DividerItemDecoration;
 import com.awsomefox.sprocket.util.Rx;
 import com.bluelinelabs.conductor.Router;
 import com.bluelinelabs.conductor.RouterTransaction;
-import com.google.android.gms.cast.framework.CastButtonFactory;
+
+import java.util.Objects;
 
 import javax.inject.Inject;
 
 import butterknife.BindDrawable;
 import butterknife.BindView;
 import butterknife.OnClick;
+import io.reactivex.Completable;
+import io.reactivex.schedulers.Schedulers;
 import timber.log.Timber;
 
 import static com.bluelinelabs.conductor.rxlifecycle2.ControllerEvent.DETACH;
@@ -72,8 +79,11 @@ public class DetailController extends BaseMediaController implements
     SwipeRefreshLayout swipeRefreshLayout;
     @Inject
     Rx rx;
+    @Inject
+    Downloader downloader;
     private PlexItem plexItem;
     private boolean itemsLoaded;
+    private DownloadProgress downloadProgress;
 
     public DetailController(Bundle args) {
         super(args);
@@ -132,17 +142,22 @@ public class DetailController extends BaseMediaController implements
             updateList(false);
         }
         observePlayback();
+        if (plexItem instanceof Book) {
+            observeDownload((Book) plexItem);
+        }
     }
 
     private void updateList(boolean refreshing) {
         swipeRefreshLayout.setRefreshing(true);
+        Completable invalidate = Completable.complete();
         if (refreshing) {
             adapter.clear();
+            invalidate = musicRepository.invalidate(plexItem);
         }
         if (plexItem instanceof Author) {
-            getAuthorItems((Author) plexItem);
+            getAuthorItems((Author) plexItem, invalidate);
         } else if (plexItem instanceof Book) {
-            getBookItems((Book) plexItem);
+            getBookItems((Book) plexItem, invalidate);
         }
     }
 
@@ -151,14 +166,59 @@ public class DetailController extends BaseMediaController implements
         super.onDetach(view);
         recyclerView.clearOnScrollListeners();
         recyclerView.setAdapter(null);
+        ActionBar actionBar = ((SprocketActivity) Objects.requireNonNull(getActivity()))
+                .getSupportActionBar();
+        if (actionBar != null) {
+            // The action bar is shared with the next screen
+            actionBar.setSubtitle(null);
+        }
     }
 
     @Override
     public void onCreateOptionsMenu(@NonNull Menu menu, @NonNull MenuInflater inflater) {
         super.onCreateOptionsMenu(menu, inflater);
         inflater.inflate(R.menu.menu_main, menu);
-        CastButtonFactory.setUpMediaRouteButton(getApplicationContext(), menu,
-                R.id.media_route_menu_item);
+        setUpMediaRouteButton(menu);
+        if (plexItem instanceof Book) {
+            inflater.inflate(R.menu.menu_detail, menu);
+        }
+    }
+
+    @Override
+    public void onPrepareOptionsMenu(@NonNull Menu menu) {
+        MenuItem download = menu.findItem(R.id.action_download);
+        MenuItem remove = menu.findItem(R.id.action_remove_download);
+        if (download != null && remove != null) {
+            // Automatically downloaded chapters don't make the book downloaded
+            download.setVisible(downloadProgress == null || downloadProgress.pinned == 0);
+            remove.setVisible(downloadProgress != null && downloadProgress.parts > 0);
+        }
+    }
+
+    @Override
+    public boolean onOptionsItemSelected(@NonNull MenuItem item) {
+        if (!(plexItem instanceof Book)) {
+            return super.onOptionsItemSelected(item);
+        }
+        Book book = (Book) plexItem;
+        switch (item.getItemId()) {
+            case R.id.action_download:
+                runDownloadAction(downloader.download(book), R.string.download_queued);
+                return true;
+            case R.id.action_remove_download:
+                runDownloadAction(downloader.remove(book), R.string.download_removed);
+                return true;
+            default:
+                return super.onOptionsItemSelected(item);
+        }
+    }
+
+    private void runDownloadAction(Completable action, @StringRes int message) {
+        String text = Objects.requireNonNull(getActivity())
+                .getString(message, ((Book) plexItem).title());
+        disposables.add(action
+                .subscribeOn(Schedulers.io())
+                .subscribe(() -> makeToastOnUIThread(text), Rx::onError));
     }
 
     @Override
@@ -180,33 +240,69 @@ public class DetailController extends BaseMediaController implements
         markUstarted((Track) plexItem, iv);
     }
 
+    @Override
+    void onListenStateChanged(Track track) {
+        adapter.update(track);
+    }
+
     @OnClick(R.id.miniplayer_container)
     void onMiniplayerClicked() {
         getRouter().pushController(RouterTransaction.with(new PlayerController(null)));
     }
 
-    private void getAuthorItems(Author artist) {
-        disposables.add(musicRepository.artistItems(artist)
+    private void getAuthorItems(Author artist, Completable invalidate) {
+        disposables.add(invalidate.andThen(musicRepository.artistItems(artist))
                 .compose(bindUntilEvent(DETACH))
-                .compose(rx.singleSchedulers())
+                .compose(rx.observableSchedulers())
                 .subscribe(items -> {
-                    adapter.addAll(items);
+                    adapter.set(items);
                     itemsLoaded = true;
                     swipeRefreshLayout.setRefreshing(false);
                 }, Rx::onError));
     }
 
-    private void getBookItems(Book album) {
-        disposables.add(musicRepository.albumItems(album)
+    private void getBookItems(Book album, Completable invalidate) {
+        disposables.add(invalidate.andThen(musicRepository.albumItems(album))
                 .compose(bindUntilEvent(DETACH))
-                .compose(rx.singleSchedulers())
+                .compose(rx.observableSchedulers())
                 .subscribe(items -> {
-                    adapter.addAll(items);
+                    adapter.set(items);
                     itemsLoaded = true;
                     swipeRefreshLayout.setRefreshing(false);
+                    warmUpResume(items);
+                }, Rx::onError));
+    }
+
+    private void observeDownload(Book book) {
+        disposables.add(downloader.progress(book)
+                .compose(bindUntilEvent(DETACH))
+                .compose(rx.observableSchedulers())
+                .subscribe(progress -> {
+                    downloadProgress = progress;
+                    showDownloadProgress(progress);
+                    Objects.requireNonNull(getActivity()).invalidateOptionsMenu();
                 }, Rx::onError));
     }
 
+    private void showDownloadProgress(DownloadProgress progress) {
+        ActionBar actionBar = ((SprocketActivity) Objects.requireNonNull(getActivity()))
+                .getSupportActionBar();
+        if (actionBar == null) {
+            return;
+        }
+        if (progress.parts == 0) {
+            actionBar.setSubtitle(null);
+        } else if (!progress.isComplete()) {
+            actionBar.setSubtitle(getActivity().getString(R.string.download_progress,
+                    Math.round(progress.fraction * 100)));
+        } else if (progress.pinned > 0) {
+            actionBar.setSubtitle(R.string.download_complete);
+        } else {
+            actionBar.setSubtitle(getActivity().getResources().getQuantityString(
+                    R.plurals.chapters_downloaded, progress.downloaded, progress.downloaded));
+        }
+    }
+
     private void observePlayback() {
         disposables.add(mediaController.state()
                 .compose(bindUntilEvent(DETACH))
@@ -238,13 +334,6 @@ public class DetailController extends BaseMediaController implements
 
     private void playTrack(Track track) {
         Timber.d("playTrack %s", track);
-        disposables.add(musicRepository.createPlayQueue(track)
-                .compose(bindUntilEvent(DETACH))
-                .compose(rx.singleSchedulers())
-                .subscribe(pair -> {
-                    queueManager.setQueue(pair.first, pair.second, 0L);
-                    updateSpeed(preferences.getFloat(PlayerController.SPEED, 1.0f));
-                    mediaController.play();
-                }, Rx::onError));
+        playbackStarter.play(track, preferences.getFloat(PlayerController.SPEED, 1.0f));
     }
 }
@@ -28,16 +28,22 @@ import com.awsomefox.sprocket.R;
 import com.awsomefox.sprocket.SprocketApp;
 import com.awsomefox.sprocket.data.model.Track;
 import com.awsomefox.sprocket.util.Rx;
+import com.awsomefox.sprocket.util.ArtworkUrl;
+import com.awsomefox.sprocket.util.Urls;
 import com.bumptech.glide.Glide;
+import com.bumptech.glide.load.DecodeFormat;
+import com.bumptech.glide.request.RequestOptions;
 
 import java.util.Objects;
 
 import javax.inject.Inject;
 
+import butterknife.BindDimen;
 import butterknife.BindString;
 import butterknife.BindView;
 import butterknife.OnClick;
 
+import static com.awsomefox.sprocket.util.Urls.PhotoFormat.WEBP;
 import static com.bluelinelabs.conductor.rxlifecycle2.ControllerEvent.DETACH;
 import static com.bumptech.glide.load.resource.drawable.DrawableTransitionOptions.withCrossFade;
 
@@ -60,6 +66,8 @@ public class MiniPlayerController extends BaseMediaController {
     String descPause;
     @BindString(R.string.chapter_title)
     String chapterTitle;
+    @BindDimen(R.dimen.miniplayer_height)
+    int thumbSize;
     @Inject
     Rx rx;
 
@@ -120,9 +128,10 @@ public class MiniPlayerController extends BaseMediaController {
         trackTitle.setText(String.format(chapterTitle, track.index()));
         bookTitle.setText(track.albumTitle());
         Glide.with(Objects.requireNonNull(getActivity()))
-                .load(track.thumb())
+                .load(ArtworkUrl.of(track.libraryId(),
+                        Urls.getPhotoUrl(track.thumb(), thumbSize, thumbSize, WEBP)))
+                .apply(RequestOptions.formatOf(DecodeFormat.PREFER_RGB_565))
                 .transition(withCrossFade())
                 .into(albumThumb);
-        persistCurrentTrack(track);
     }
 }
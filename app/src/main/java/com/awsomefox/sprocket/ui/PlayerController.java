@@ -21,6 +21,7 @@ import android.os.Bundle;
 import android.support.v4.media.session.PlaybackStateCompat;
 import android.support.v4.media.session.PlaybackStateCompat.State;
 import android.text.format.DateUtils;
+import android.util.DisplayMetrics;
 import android.view.LayoutInflater;
 import android.view.Menu;
 import android.view.MenuInflater;
@@ -45,9 +46,10 @@ import com.awsomefox.sprocket.data.model.Track;
 import com.awsomefox.sprocket.ui.adapter.QueueAdapter;
 import com.awsomefox.sprocket.ui.widget.DividerItemDecoration;
 import com.awsomefox.sprocket.util.Rx;
+import com.awsomefox.sprocket.util.ArtworkUrl;
+import com.awsomefox.sprocket.util.Urls;
 import com.awsomefox.sprocket.util.Views;
 import com.bumptech.glide.Glide;
-import com.google.android.gms.cast.framework.CastButtonFactory;
 
 import java.util.Objects;
 
@@ -58,6 +60,7 @@ import butterknife.BindString;
 import butterknife.BindView;
 import butterknife.OnClick;
 
+import static com.awsomefox.sprocket.util.Urls.PhotoFormat.JPEG;
 import static com.bluelinelabs.conductor.rxlifecycle2.ControllerEvent.DETACH;
 import static com.bumptech.glide.load.resource.drawable.DrawableTransitionOptions.withCrossFade;
 
@@ -72,11 +75,20 @@ public class PlayerController extends BaseMediaController
     public static final String CUSTOM_ACTION_SPEED = "com.awsomefox.sprocket.SPEED";
     public static final String CUSTOM_ACTION_BACK = "com.awsomefox.sprocket.BACK";
     public static final String CUSTOM_ACTION_FORWARD = "com.awsomefox.sprocket.FORWARD";
+    public static final String CUSTOM_ACTION_MERGE_QUEUE = "com.awsomefox.sprocket.MERGE_QUEUE";
     public static final String BUNDLE_AUTO = "com.awsomefox.sprocket.auto";
     public static final String BUNDLE_TRACK_URI = "com.awsomefox.sprocket.trackUri";
     public static final String BUNDLE_TRACK_KEY = "com.awsomefox.sprocket.trackKey";
     public static final String BUNDLE_TRACK_PARENT_KEY = "com.awsomefox.sprocket.trackParentKey";
     public static final String BUNDLE_TRACK_LIBRARY_ID = "com.awsomefox.sprocket.trackLibraryId";
+    public static final String BUNDLE_TRACK_RATING_KEY = "com.awsomefox.sprocket.trackRatingKey";
+    public static final String BUNDLE_TRACK_SOURCE = "com.awsomefox.sprocket.trackSource";
+    public static final String BUNDLE_TRACK_TITLE = "com.awsomefox.sprocket.trackTitle";
+    public static final String BUNDLE_TRACK_ALBUM_TITLE = "com.awsomefox.sprocket.trackAlbum";
+    public static final String BUNDLE_TRACK_ARTIST_TITLE = "com.awsomefox.sprocket.trackArtist";
+    public static final String BUNDLE_TRACK_THUMB = "com.awsomefox.sprocket.trackThumb";
+    public static final String BUNDLE_TRACK_DURATION = "com.awsomefox.sprocket.trackDuration";
+    public static final String BUNDLE_TRACK_VIEW_OFFSET = "com.awsomefox.sprocket.trackViewOffset";
     private final QueueAdapter queueAdapter;
     @BindView(R.id.content_loading)
     ContentLoadingProgressBar contentLoading;
@@ -202,8 +214,7 @@ public class PlayerController extends BaseMediaController
         super.onCreateOptionsMenu(menu, inflater);
         inflater.inflate(R.menu.menu_main, menu);
         inflater.inflate(R.menu.menu_player, menu);
-        CastButtonFactory.setUpMediaRouteButton(getApplicationContext(), menu,
-                R.id.media_route_menu_item);
+        setUpMediaRouteButton(menu);
     }
 
     @Override
@@ -366,8 +377,12 @@ public class PlayerController extends BaseMediaController
         contentLoading.hide();
 
         if (getActivity() != null) {
+            // The cover is square and has to fit the screen in both directions
+            DisplayMetrics metrics = getActivity().getResources().getDisplayMetrics();
+            int size = Math.min(metrics.widthPixels, metrics.heightPixels);
             Glide.with(getActivity())
-                    .load(track.thumb())
+                    .load(ArtworkUrl.of(track.libraryId(),
+                            Urls.getPhotoUrl(track.thumb(), size, size, JPEG)))
                     .transition(withCrossFade())
                     .into(background);
         }
@@ -377,7 +392,6 @@ public class PlayerController extends BaseMediaController
 
         authorBook.setText(String.format(dotSpacer, track.albumTitle(), track.artistTitle()));
         trackTitle.setText(String.format(chapterTitle, track.index()));
-        persistCurrentTrack(track);
     }
 
     @Override
@@ -21,17 +21,26 @@ import android.content.Intent;
 import android.content.ServiceConnection;
 import android.os.Bundle;
 import android.os.IBinder;
+import android.view.Menu;
 import android.view.MenuItem;
 import android.view.ViewGroup;
 
 import androidx.annotation.Nullable;
 import androidx.appcompat.app.AppCompatActivity;
 
+import com.awsomefox.sprocket.BuildConfig;
 import com.awsomefox.sprocket.R;
 import com.awsomefox.sprocket.SprocketApp;
 import com.awsomefox.sprocket.data.LoginManager;
+import com.awsomefox.sprocket.data.Prefs;
+import com.awsomefox.sprocket.data.api.MediaService;
+import com.awsomefox.sprocket.data.api.WireFormat;
+import com.awsomefox.sprocket.data.download.Prefetcher;
+import com.awsomefox.sprocket.playback.AccountData;
 import com.awsomefox.sprocket.playback.MediaController;
 import com.awsomefox.sprocket.playback.MusicService;
+import com.awsomefox.sprocket.util.Rx;
+import com.awsomefox.sprocket.util.StartupTrace;
 import com.bluelinelabs.conductor.Conductor;
 import com.bluelinelabs.conductor.Router;
 import com.bluelinelabs.conductor.RouterTransaction;
@@ -51,6 +60,14 @@ public class SprocketActivity extends AppCompatActivity {
   LoginManager loginManager;
   @Inject
   MediaController mediaController;
+  @Inject
+  AccountData accountData;
+  @Inject
+  WireFormat wireFormat;
+  @Inject
+  MediaService mediaService;
+  @Inject
+  Prefs prefs;
   private Router router;
   private boolean bound;
 
@@ -67,18 +84,22 @@ public class SprocketActivity extends AppCompatActivity {
   @Override protected void onCreate(@Nullable Bundle savedInstanceState) {
       Timber.d("onCreate");
     super.onCreate(savedInstanceState);
-    SprocketApp.get(this).component().inject(this);
+    try (StartupTrace.Section ignored = StartupTrace.begin("activity inject")) {
+      SprocketApp.get(this).component().inject(this);
+    }
     setContentView(R.layout.activity_sprocket);
     ButterKnife.bind(this);
 
-    router = Conductor.attachRouter(this, container, savedInstanceState);
+    try (StartupTrace.Section ignored = StartupTrace.begin("first screen")) {
+      router = Conductor.attachRouter(this, container, savedInstanceState);
       if (savedInstanceState == null) {
-          if (loginManager.isLoggedOut()) {
-              router.setRoot(RouterTransaction.with(new LoginController(null)));
-          } else {
-              router.setRoot(RouterTransaction.with(new BrowserController(null)));
-          }
+        if (loginManager.isLoggedOut()) {
+          router.setRoot(RouterTransaction.with(new LoginController(null)));
+        } else {
+          router.setRoot(RouterTransaction.with(new BrowserController(null)));
+        }
       }
+    }
   }
 
   @Override protected void onStart() {
@@ -96,6 +117,19 @@ public class SprocketActivity extends AppCompatActivity {
     }
   }
 
+  @Override public boolean onPrepareOptionsMenu(Menu menu) {
+    MenuItem jsonResponses = menu.findItem(R.id.json_responses);
+    if (jsonResponses != null) {
+      // Only there to compare both formats against the same library
+      jsonResponses.setVisible(BuildConfig.DEBUG)
+          .setChecked(WireFormat.JSON.equals(wireFormat.get()));
+    }
+    checkPref(menu, R.id.auto_downloads_unmetered, Prefetcher.PREF_UNMETERED, true);
+    checkPref(menu, R.id.auto_downloads_charging, Prefetcher.PREF_CHARGING, false);
+    checkPref(menu, R.id.auto_downloads_idle, Prefetcher.PREF_IDLE, false);
+    return super.onPrepareOptionsMenu(menu);
+  }
+
   @Override public boolean onOptionsItemSelected(MenuItem item) {
     switch (item.getItemId()) {
       case android.R.id.home:
@@ -104,6 +138,18 @@ public class SprocketActivity extends AppCompatActivity {
       case R.id.licenses:
         showCredits();
         return true;
+      case R.id.json_responses:
+        switchWireFormat(!item.isChecked());
+        return true;
+      case R.id.auto_downloads_unmetered:
+        togglePref(Prefetcher.PREF_UNMETERED, item);
+        return true;
+      case R.id.auto_downloads_charging:
+        togglePref(Prefetcher.PREF_CHARGING, item);
+        return true;
+      case R.id.auto_downloads_idle:
+        togglePref(Prefetcher.PREF_IDLE, item);
+        return true;
       case R.id.sign_out:
         logout();
         return true;
@@ -122,9 +168,37 @@ public class SprocketActivity extends AppCompatActivity {
     startActivity(new Intent(this, OssLicensesMenuActivity.class));
   }
 
+  /** Ends the startup trace, called once the first screen is drawn with its content. */
+  void onFirstContentDrawn() {
+    if (StartupTrace.report()) {
+      reportFullyDrawn();
+    }
+  }
+
+  private void checkPref(Menu menu, int id, String key, boolean defaultValue) {
+    MenuItem item = menu.findItem(id);
+    if (item != null) {
+      item.setChecked(prefs.getBoolean(key, defaultValue));
+    }
+  }
+
+  /** The prefetcher reschedules its job when one of its prefs changes. */
+  private void togglePref(String key, MenuItem item) {
+    prefs.putBoolean(key, !item.isChecked());
+    invalidateOptionsMenu();
+  }
+
+  private void switchWireFormat(boolean json) {
+    wireFormat.set(json ? WireFormat.JSON : WireFormat.XML);
+    // Cached responses were decoded from the other format
+    mediaService.invalidateAll();
+    invalidateOptionsMenu();
+  }
+
   private void logout() {
-      mediaController.stop();
+    mediaController.stop();
     loginManager.logout();
+    accountData.clear().subscribe(() -> { }, Rx::onError);
     router.setRoot(RouterTransaction.with(new LoginController(null)));
   }
 }
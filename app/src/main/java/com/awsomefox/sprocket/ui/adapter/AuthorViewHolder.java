@@ -23,13 +23,16 @@ import androidx.annotation.NonNull;
 
 import com.awsomefox.sprocket.R;
 import com.awsomefox.sprocket.data.model.Author;
+import com.awsomefox.sprocket.util.ArtworkUrl;
 import com.awsomefox.sprocket.util.Urls;
 import com.bumptech.glide.Glide;
+import com.bumptech.glide.load.DecodeFormat;
 import com.bumptech.glide.request.RequestOptions;
 
 import butterknife.BindDimen;
 import butterknife.BindView;
 
+import static com.awsomefox.sprocket.util.Urls.PhotoFormat.WEBP;
 import static com.bumptech.glide.load.resource.drawable.DrawableTransitionOptions.withCrossFade;
 
 final class AuthorViewHolder extends ClickableViewHolder<Author> {
@@ -48,8 +51,10 @@ final class AuthorViewHolder extends ClickableViewHolder<Author> {
 
     //noinspection SuspiciousNameCombination
     Glide.with(itemView.getContext())
-        .load(Urls.addTranscodeParams(artist.thumb(), height, height))
-        .apply(RequestOptions.circleCropTransform())
+        .load(ArtworkUrl.of(artist.libraryId(),
+            Urls.getPhotoUrl(artist.thumb(), height, height, WEBP)))
+        .apply(RequestOptions.circleCropTransform()
+            .format(DecodeFormat.PREFER_RGB_565))
             .placeholder(R.drawable.author_missing)
         .transition(withCrossFade())
         .into(thumb);
@@ -23,13 +23,16 @@ import androidx.annotation.NonNull;
 
 import com.awsomefox.sprocket.R;
 import com.awsomefox.sprocket.data.model.Book;
+import com.awsomefox.sprocket.util.ArtworkUrl;
 import com.awsomefox.sprocket.util.Urls;
 import com.bumptech.glide.Glide;
+import com.bumptech.glide.load.DecodeFormat;
 import com.bumptech.glide.request.RequestOptions;
 
 import butterknife.BindDimen;
 import butterknife.BindView;
 
+import static com.awsomefox.sprocket.util.Urls.PhotoFormat.WEBP;
 import static com.bumptech.glide.load.resource.drawable.DrawableTransitionOptions.withCrossFade;
 
 final class BookViewHolder extends ClickableViewHolder<Book> {
@@ -49,8 +52,10 @@ final class BookViewHolder extends ClickableViewHolder<Book> {
 
     //noinspection SuspiciousNameCombination
     Glide.with(itemView.getContext())
-        .load(Urls.addTranscodeParams(album.thumb(), height, height))
-        .apply(RequestOptions.centerCropTransform())
+        .load(ArtworkUrl.of(album.libraryId(),
+            Urls.getPhotoUrl(album.thumb(), height, height, WEBP)))
+        .apply(RequestOptions.centerCropTransform()
+            .format(DecodeFormat.PREFER_RGB_565))
         .transition(withCrossFade())
         .into(thumb);
 
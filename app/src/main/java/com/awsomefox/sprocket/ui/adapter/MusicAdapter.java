@@ -20,6 +20,8 @@ import android.view.ViewGroup;
 import android.widget.ImageView;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.recyclerview.widget.AsyncListDiffer;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.awsomefox.sprocket.R;
@@ -30,6 +32,7 @@ import com.awsomefox.sprocket.data.model.Header;
 import com.awsomefox.sprocket.data.model.MediaType;
 import com.awsomefox.sprocket.data.model.PlexItem;
 import com.awsomefox.sprocket.data.model.Track;
+import com.awsomefox.sprocket.util.Strings;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -38,10 +41,13 @@ public class MusicAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder>
     implements ClickableViewHolder.ViewHolderListener {
 
   private final OnPlexItemClickListener listener;
-  private List<PlexItem> items = new ArrayList<>();
+  private final AsyncListDiffer<PlexItem> differ =
+      new AsyncListDiffer<>(this, new PlexItemDiff());
+  @Nullable private PagedItems paged;
 
   public MusicAdapter(OnPlexItemClickListener listener) {
     this.listener = listener;
+    setHasStableIds(true);
   }
 
   @Override @NonNull
@@ -59,13 +65,31 @@ public class MusicAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder>
     } else if (viewType == Type.MEDIA_TYPE) {
       return new MediaTypeViewHolder(inflater.inflate(R.layout.item_media_type, parent, false),
               this);
+    } else if (viewType == Type.PLACEHOLDER) {
+      return new PlaceholderViewHolder(
+          inflater.inflate(R.layout.item_placeholder, parent, false));
     } else {
       return new HeaderViewHolder(inflater.inflate(R.layout.item_header, parent, false));
     }
   }
 
+  @Override public void onBindViewHolder(@NonNull RecyclerView.ViewHolder holder, int position,
+                                         @NonNull List<Object> payloads) {
+    if (payloads.contains(PlexItemDiff.LISTEN_STATE)) {
+      PlexItem item = getItem(position);
+      if (holder instanceof TrackViewHolder) {
+        ((TrackViewHolder) holder).bindListenState((Track) item);
+        return;
+      } else if (holder instanceof RecentViewHolder) {
+        ((RecentViewHolder) holder).bindListenState((Track) item);
+        return;
+      }
+    }
+    onBindViewHolder(holder, position);
+  }
+
   @Override public void onBindViewHolder(@NonNull RecyclerView.ViewHolder holder, int position) {
-    Object item = items.get(position);
+    Object item = getItem(position);
     switch (getItemViewType(position)) {
       case Type.ARTIST:
         ((AuthorViewHolder) holder).bindModel((Author) item);
@@ -90,12 +114,22 @@ public class MusicAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder>
   }
 
   @Override public int getItemCount() {
-    return items.size();
+    return paged != null ? paged.size() : differ.getCurrentList().size();
+  }
+
+  @Override public long getItemId(int position) {
+    if (paged != null) {
+      // Paged rows never move, keyed by position a placeholder keeps its id once its page loads
+      return position;
+    }
+    return Strings.hash64(PlexItemDiff.identity(differ.getCurrentList().get(position)));
   }
 
   @Override public int getItemViewType(int position) {
-    PlexItem item = items.get(position);
-    if (item instanceof Author) {
+    PlexItem item = paged != null ? paged.peek(position) : differ.getCurrentList().get(position);
+    if (item == null) {
+      return Type.PLACEHOLDER;
+    } else if (item instanceof Author) {
       return Type.ARTIST;
     } else if (item instanceof Book) {
       return Type.ALBUM;
@@ -113,32 +147,65 @@ public class MusicAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder>
   }
 
   @Override public void onClick(int position) {
-    listener.onPlexItemClicked(items.get(position));
+    PlexItem item = getItem(position);
+    if (item != null) {
+      listener.onPlexItemClicked(item);
+    }
   }
 
   @Override
   public void onMarkFinished(int position, ImageView iv) {
-    listener.onPlexItemMarkFinished(items.get(position), iv);
+    listener.onPlexItemMarkFinished(getItem(position), iv);
   }
 
   @Override
   public void onMarkUnstarted(int position, ImageView iv) {
-    listener.onPlexItemMarkUnstarted(items.get(position), iv);
+    listener.onPlexItemMarkUnstarted(getItem(position), iv);
   }
 
-  public void addAll(List<PlexItem> items) {
-    this.items.addAll(items);
-    notifyDataSetChanged();
+  /**
+   * Shows a list, the changes are diffed off the main thread. A {@link PagedItems} is shown as is,
+   * diffing it would load every page.
+   */
+  public void set(List<PlexItem> items) {
+    if (items instanceof PagedItems) {
+      clear();
+      paged = (PagedItems) items;
+      notifyItemRangeInserted(0, paged.size());
+    } else {
+      if (paged != null) {
+        clear();
+      }
+      differ.submitList(items);
+    }
   }
 
-  public void set(List<PlexItem> items) {
-    this.items = items;
-    notifyDataSetChanged();
+  /** Replaces the item with the same identity, a changed listen state only rebinds its icon. */
+  public void update(PlexItem item) {
+    if (paged != null) {
+      return;
+    }
+    String identity = PlexItemDiff.identity(item);
+    List<PlexItem> items = new ArrayList<>(differ.getCurrentList());
+    for (int i = 0; i < items.size(); ++i) {
+      if (identity.equals(PlexItemDiff.identity(items.get(i)))) {
+        items.set(i, item);
+      }
+    }
+    differ.submitList(items);
   }
 
   public void clear() {
-    this.items.clear();
-    notifyDataSetChanged();
+    if (paged != null) {
+      int size = paged.size();
+      paged = null;
+      notifyItemRangeRemoved(0, size);
+    }
+    differ.submitList(null);
+  }
+
+  @Nullable private PlexItem getItem(int position) {
+    return paged != null ? paged.get(position) : differ.getCurrentList().get(position);
   }
 
   public interface OnPlexItemClickListener {
@@ -0,0 +1,134 @@
+/*
+ * Copyright (C) 2020 Simon Norberg
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.awsomefox.sprocket.ui.adapter;
+
+import android.util.SparseArray;
+import android.util.SparseBooleanArray;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.awsomefox.sprocket.data.model.Header;
+import com.awsomefox.sprocket.data.model.PlexItem;
+import com.awsomefox.sprocket.data.repository.LetterIndex;
+
+import java.util.AbstractList;
+import java.util.List;
+
+/**
+ * A browse list sized by its {@link LetterIndex} up front. Items that have not been loaded yet
+ * are null placeholders, reading one asks the callback for its page. Pages far from the last
+ * read position are dropped again to bound memory.
+ */
+public final class PagedItems extends AbstractList<PlexItem> {
+
+  /** Pages kept on each side of the page last read. */
+  private static final int KEEP_PAGES = 4;
+
+  private final LetterIndex index;
+  private final int pageSize;
+  private final Callback callback;
+  private final Header[] headers;
+  private final SparseArray<List<PlexItem>> pages = new SparseArray<>();
+  private final SparseBooleanArray loading = new SparseBooleanArray();
+  private int lastPage;
+
+  public PagedItems(@NonNull LetterIndex index, int pageSize, @NonNull Callback callback) {
+    this.index = index;
+    this.pageSize = pageSize;
+    this.callback = callback;
+    this.headers = new Header[index.letters().size()];
+    for (int i = 0; i < headers.length; i++) {
+      headers[i] = Header.builder().title(index.letters().get(i)).build();
+    }
+  }
+
+  @NonNull public LetterIndex index() {
+    return index;
+  }
+
+  @Override public int size() {
+    return index.size();
+  }
+
+  @Override @Nullable public PlexItem get(int position) {
+    if (index.isHeader(position)) {
+      return headers[index.letterAt(position)];
+    }
+    int item = index.itemAt(position);
+    int page = item / pageSize;
+    int offset = item - page * pageSize;
+    lastPage = page;
+    if (offset > pageSize * 3 / 4 && (page + 1) * pageSize < index.itemCount()) {
+      // Close to the end of the page, fetch the next one before it is needed
+      request(page + 1);
+    }
+    List<PlexItem> items = pages.get(page);
+    if (items == null) {
+      request(page);
+      return null;
+    }
+    return offset < items.size() ? items.get(offset) : null;
+  }
+
+  /** The item at {@code position} if it is loaded, without requesting any page. */
+  @Nullable public PlexItem peek(int position) {
+    if (index.isHeader(position)) {
+      return headers[index.letterAt(position)];
+    }
+    int item = index.itemAt(position);
+    int page = item / pageSize;
+    int offset = item - page * pageSize;
+    List<PlexItem> items = pages.get(page);
+    return items != null && offset < items.size() ? items.get(offset) : null;
+  }
+
+  /** Stores a loaded page, a page loaded again replaces the previous one. */
+  public void setPage(int page, @NonNull List<PlexItem> items) {
+    loading.delete(page);
+    pages.put(page, items);
+    for (int i = pages.size() - 1; i >= 0; i--) {
+      if (Math.abs(pages.keyAt(i) - lastPage) > KEEP_PAGES) {
+        pages.removeAt(i);
+      }
+    }
+    int first = index.positionOf(page * pageSize);
+    int last = index.positionOf(Math.min((page + 1) * pageSize, index.itemCount()) - 1);
+    callback.onPageChanged(first, last - first + 1);
+  }
+
+  /** Allows a page to be requested again, after it failed or its load was cancelled. */
+  public void cancelPage(int page) {
+    loading.delete(page);
+  }
+
+  public void cancelAll() {
+    loading.clear();
+  }
+
+  private void request(int page) {
+    if (pages.get(page) == null && !loading.get(page)) {
+      loading.put(page, true);
+      callback.loadPage(page, page * pageSize, pageSize);
+    }
+  }
+
+  public interface Callback {
+    void loadPage(int page, int start, int size);
+
+    void onPageChanged(int positionStart, int itemCount);
+  }
+}
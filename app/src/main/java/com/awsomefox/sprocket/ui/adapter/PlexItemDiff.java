@@ -0,0 +1,77 @@
+/*
+ * Copyright (C) 2020 Simon Norberg
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.awsomefox.sprocket.ui.adapter;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.recyclerview.widget.DiffUtil;
+
+import com.awsomefox.sprocket.data.model.Author;
+import com.awsomefox.sprocket.data.model.Book;
+import com.awsomefox.sprocket.data.model.Header;
+import com.awsomefox.sprocket.data.model.MediaType;
+import com.awsomefox.sprocket.data.model.PlexItem;
+import com.awsomefox.sprocket.data.model.Track;
+
+/**
+ * Items are the same when they have the same rating key, a chapter whose only change is its
+ * listen state is rebound with {@link #LISTEN_STATE} instead of in full.
+ */
+final class PlexItemDiff extends DiffUtil.ItemCallback<PlexItem> {
+
+  static final Object LISTEN_STATE = new Object();
+
+  @Override public boolean areItemsTheSame(@NonNull PlexItem oldItem, @NonNull PlexItem newItem) {
+    return identity(oldItem).equals(identity(newItem));
+  }
+
+  @Override
+  public boolean areContentsTheSame(@NonNull PlexItem oldItem, @NonNull PlexItem newItem) {
+    return oldItem.equals(newItem);
+  }
+
+  @Nullable @Override
+  public Object getChangePayload(@NonNull PlexItem oldItem, @NonNull PlexItem newItem) {
+    if (oldItem instanceof Track && newItem instanceof Track) {
+      Track oldTrack = (Track) oldItem;
+      Track newTrack = (Track) newItem;
+      if (oldTrack.toBuilder()
+          .viewOffset(newTrack.viewOffset())
+          .viewCount(newTrack.viewCount())
+          .build()
+          .equals(newTrack)) {
+        return LISTEN_STATE;
+      }
+    }
+    return null;
+  }
+
+  /** Key that stays the same for an item across reloads, unique within a list. */
+  @NonNull static String identity(@NonNull PlexItem item) {
+    if (item instanceof Track) {
+      return "track/" + ((Track) item).ratingKey();
+    } else if (item instanceof Book) {
+      return "book/" + ((Book) item).ratingKey();
+    } else if (item instanceof Author) {
+      return "author/" + ((Author) item).ratingKey();
+    } else if (item instanceof MediaType) {
+      return "mediaType/" + ((MediaType) item).libraryId() + "/" + ((MediaType) item).mediaKey();
+    } else if (item instanceof Header) {
+      return "header/" + ((Header) item).title();
+    }
+    return item.getClass().getName() + "/" + item.hashCode();
+  }
+}
@@ -20,10 +20,13 @@ import android.view.ViewGroup;
 import android.widget.ImageView;
 
 import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.AsyncListDiffer;
+import androidx.recyclerview.widget.DiffUtil;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.awsomefox.sprocket.R;
 import com.awsomefox.sprocket.data.model.Track;
+import com.awsomefox.sprocket.util.Strings;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -34,12 +37,25 @@ import static android.support.v4.media.session.PlaybackStateCompat.STATE_PLAYING
 public class QueueAdapter extends RecyclerView.Adapter<QueueViewHolder>
     implements ClickableViewHolder.ViewHolderListener {
 
+  /** Queue items are keyed by their play queue item id, a track may be queued more than once. */
+  private static final DiffUtil.ItemCallback<Track> DIFF = new DiffUtil.ItemCallback<Track>() {
+    @Override public boolean areItemsTheSame(@NonNull Track oldItem, @NonNull Track newItem) {
+      return oldItem.queueItemId() == newItem.queueItemId()
+          && oldItem.ratingKey().equals(newItem.ratingKey());
+    }
+
+    @Override public boolean areContentsTheSame(@NonNull Track oldItem, @NonNull Track newItem) {
+      return oldItem.equals(newItem);
+    }
+  };
+
   private final OnTrackClickListener listener;
-  private List<Track> items = new ArrayList<>();
-  private int position;
+  private final AsyncListDiffer<Track> differ = new AsyncListDiffer<>(this, DIFF);
+  private int position = -1;
 
   public QueueAdapter(OnTrackClickListener listener) {
     this.listener = listener;
+    setHasStableIds(true);
   }
 
   @Override @NonNull public QueueViewHolder onCreateViewHolder(ViewGroup parent, int viewType) {
@@ -51,11 +67,18 @@ public class QueueAdapter extends RecyclerView.Adapter<QueueViewHolder>
   }
 
   @Override public void onBindViewHolder(QueueViewHolder holder, int position) {
-    holder.bindModel(items.get(position));
+    holder.bindModel(differ.getCurrentList().get(position));
   }
 
   @Override public int getItemCount() {
-    return items.size();
+    return differ.getCurrentList().size();
+  }
+
+  @Override public long getItemId(int position) {
+    Track track = differ.getCurrentList().get(position);
+    // Play queue item ids are positive, tracks without one get a negative id from their key
+    return track.queueItemId() != 0
+        ? track.queueItemId() : Strings.hash64(track.key()) | Long.MIN_VALUE;
   }
 
   @Override public int getItemViewType(int position) {
@@ -63,7 +86,7 @@ public class QueueAdapter extends RecyclerView.Adapter<QueueViewHolder>
   }
 
   @Override public void onClick(int position) {
-    listener.onTrackClicked(items.get(position));
+    listener.onTrackClicked(differ.getCurrentList().get(position));
   }
 
     @Override
@@ -76,10 +99,23 @@ public class QueueAdapter extends RecyclerView.Adapter<QueueViewHolder>
 
     }
 
+  /**
+   * The queue is copied because the queue manager updates it in place. Moving to another track
+   * only rebinds the old and the new current row.
+   */
   public void setQueue(List<Track> queue, int position) {
-    this.items = queue;
-    this.position = position;
-    notifyDataSetChanged();
+    differ.submitList(new ArrayList<>(queue), () -> {
+      int previous = this.position;
+      this.position = position;
+      if (previous != position) {
+        if (previous >= 0 && previous < getItemCount()) {
+          notifyItemChanged(previous);
+        }
+        if (position >= 0 && position < getItemCount()) {
+          notifyItemChanged(position);
+        }
+      }
+    });
   }
 
   public interface OnTrackClickListener {
@@ -24,14 +24,17 @@ import androidx.annotation.NonNull;
 
 import com.awsomefox.sprocket.R;
 import com.awsomefox.sprocket.data.model.Track;
+import com.awsomefox.sprocket.util.ArtworkUrl;
 import com.awsomefox.sprocket.util.Urls;
 import com.bumptech.glide.Glide;
+import com.bumptech.glide.load.DecodeFormat;
 import com.bumptech.glide.request.RequestOptions;
 
 import butterknife.BindDimen;
 import butterknife.BindString;
 import butterknife.BindView;
 
+import static com.awsomefox.sprocket.util.Urls.PhotoFormat.WEBP;
 import static com.bumptech.glide.load.resource.drawable.DrawableTransitionOptions.withCrossFade;
 
 final class RecentViewHolder extends ClickableViewHolder<Track> {
@@ -60,6 +63,18 @@ final class RecentViewHolder extends ClickableViewHolder<Track> {
     void bindModel(@NonNull Track track) {
         subtitle.setText(String.format(chapterTitle, track.index()));
         title.setText(track.albumTitle());
+        bindListenState(track);
+        //noinspection SuspiciousNameCombination
+        Glide.with(itemView.getContext())
+                .load(ArtworkUrl.of(track.libraryId(),
+                        Urls.getPhotoUrl(track.thumb(), height, height, WEBP)))
+                .apply(RequestOptions.centerCropTransform()
+                        .format(DecodeFormat.PREFER_RGB_565))
+                .transition(withCrossFade())
+                .into(thumb);
+    }
+
+    void bindListenState(@NonNull Track track) {
         if (track.viewOffset() != 0) {
             listened.setImageResource(R.drawable.partial_listen);
             listened.setTag(PARTIAL);
@@ -76,11 +91,5 @@ final class RecentViewHolder extends ClickableViewHolder<Track> {
             listened.setTag(NONE);
             duration.setText(DateUtils.formatElapsedTime(track.duration() / 1000));
         }
-        //noinspection SuspiciousNameCombination
-        Glide.with(itemView.getContext())
-                .load(Urls.addTranscodeParams(track.thumb(), height, height))
-                .apply(RequestOptions.centerCropTransform())
-                .transition(withCrossFade())
-                .into(thumb);
     }
 }
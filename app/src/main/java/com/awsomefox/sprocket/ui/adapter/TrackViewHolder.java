@@ -50,6 +50,10 @@ final class TrackViewHolder extends ClickableViewHolder<Track> {
     void bindModel(@NonNull Track track) {
         title.setText(String.format(chapterTitle, track.index()));
         subtitle.setText(track.albumTitle());
+        bindListenState(track);
+    }
+
+    void bindListenState(@NonNull Track track) {
         if (track.viewOffset() != 0) {
             listened.setImageResource(R.drawable.partial_listen);
             listened.setTag(PARTIAL);
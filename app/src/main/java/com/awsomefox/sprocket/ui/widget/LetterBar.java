@@ -0,0 +1,101 @@
+/*
+ * Copyright (C) 2020 Simon Norberg
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.awsomefox.sprocket.ui.widget;
+
+import android.content.Context;
+import android.util.AttributeSet;
+import android.util.TypedValue;
+import android.view.Gravity;
+import android.view.MotionEvent;
+import android.widget.LinearLayout;
+import android.widget.TextView;
+
+import androidx.annotation.Nullable;
+import androidx.core.content.ContextCompat;
+
+import com.awsomefox.sprocket.R;
+
+import java.util.List;
+
+/** Vertical strip of letters that reports the letter under the finger while it is dragged. */
+public class LetterBar extends LinearLayout {
+
+  private OnLetterSelectedListener listener;
+  private int selected = -1;
+
+  public LetterBar(Context context) {
+    this(context, null);
+  }
+
+  public LetterBar(Context context, @Nullable AttributeSet attrs) {
+    super(context, attrs);
+    setOrientation(VERTICAL);
+  }
+
+  public void setOnLetterSelectedListener(@Nullable OnLetterSelectedListener listener) {
+    this.listener = listener;
+  }
+
+  public void setLetters(List<String> letters) {
+    removeAllViews();
+    for (String letter : letters) {
+      TextView view = new TextView(getContext());
+      view.setText(letter);
+      view.setGravity(Gravity.CENTER);
+      view.setTextSize(TypedValue.COMPLEX_UNIT_SP, 11);
+      view.setTextColor(ContextCompat.getColor(getContext(), R.color.subtitle));
+      addView(view, new LayoutParams(LayoutParams.MATCH_PARENT, 0, 1f));
+    }
+  }
+
+  @Override public boolean onTouchEvent(MotionEvent event) {
+    int count = getChildCount();
+    if (count == 0) {
+      return false;
+    }
+    switch (event.getActionMasked()) {
+      case MotionEvent.ACTION_DOWN:
+      case MotionEvent.ACTION_MOVE:
+        getParent().requestDisallowInterceptTouchEvent(true);
+        int letter = (int) (event.getY() / getHeight() * count);
+        letter = Math.max(0, Math.min(count - 1, letter));
+        if (letter != selected) {
+          selected = letter;
+          if (listener != null) {
+            listener.onLetterSelected(letter);
+          }
+        }
+        return true;
+      case MotionEvent.ACTION_UP:
+        performClick();
+        selected = -1;
+        return true;
+      case MotionEvent.ACTION_CANCEL:
+        selected = -1;
+        return true;
+      default:
+        return super.onTouchEvent(event);
+    }
+  }
+
+  @Override public boolean performClick() {
+    return super.performClick();
+  }
+
+  public interface OnLetterSelectedListener {
+    void onLetterSelected(int letter);
+  }
+}
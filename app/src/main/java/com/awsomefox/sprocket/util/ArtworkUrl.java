@@ -0,0 +1,46 @@
+/*
+ * Copyright (C) 2020 Simon Norberg
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.awsomefox.sprocket.util;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.bumptech.glide.load.model.GlideUrl;
+
+/**
+ * A Glide model for server artwork. Glide keys both its memory and disk cache on
+ * {@link #getCacheKey()}, which here is a {@link CacheKeys} key instead of the full url, so
+ * cached images stay valid across tokens and connections.
+ */
+public final class ArtworkUrl extends GlideUrl {
+
+  private final String cacheKey;
+
+  private ArtworkUrl(@NonNull String url, @NonNull String cacheKey) {
+    super(url);
+    this.cacheKey = cacheKey;
+  }
+
+  /** Returns {@code null} when there is no artwork, so Glide shows its fallback. */
+  @Nullable public static ArtworkUrl of(@NonNull String libraryId, @Nullable String url) {
+    String cacheKey = CacheKeys.forUrl(libraryId, url);
+    return cacheKey == null ? null : new ArtworkUrl(url, cacheKey);
+  }
+
+  @Override public String getCacheKey() {
+    return cacheKey;
+  }
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright (C) 2020 Simon Norberg
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.awsomefox.sprocket.util;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import okhttp3.HttpUrl;
+
+/**
+ * Cache keys for server resources that survive token refreshes and connection changes. A key is
+ * the library the resource belongs to followed by its path and query, without the host and
+ * without any X-Plex-* parameters.
+ */
+public final class CacheKeys {
+
+  private static final String PLEX_PARAM_PREFIX = "X-Plex-";
+
+  private CacheKeys() {
+    // no instances
+  }
+
+  @Nullable public static String forUrl(@NonNull String libraryId, @Nullable String url) {
+    if (Strings.isBlank(url)) {
+      return null;
+    }
+    HttpUrl parsedUrl = HttpUrl.parse(url);
+    return parsedUrl == null ? null : forUrl(libraryId, parsedUrl);
+  }
+
+  @NonNull public static String forUrl(@NonNull String libraryId, @NonNull HttpUrl url) {
+    StringBuilder key = new StringBuilder(libraryId).append(url.encodedPath());
+    char separator = '?';
+    for (int i = 0, size = url.querySize(); i < size; i++) {
+      String name = url.queryParameterName(i);
+      if (name.startsWith(PLEX_PARAM_PREFIX)) {
+        continue;
+      }
+      key.append(separator).append(name);
+      String value = url.queryParameterValue(i);
+      if (value != null) {
+        key.append('=').append(value);
+      }
+      separator = '&';
+    }
+    return key.toString();
+  }
+}
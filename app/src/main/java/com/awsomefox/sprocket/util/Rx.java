@@ -23,6 +23,9 @@ import dagger.Module;
 import dagger.Provides;
 import io.reactivex.Flowable;
 import io.reactivex.FlowableTransformer;
+import io.reactivex.Observable;
+import io.reactivex.ObservableSource;
+import io.reactivex.ObservableTransformer;
 import io.reactivex.Scheduler;
 import io.reactivex.Single;
 import io.reactivex.SingleSource;
@@ -47,6 +50,11 @@ public final class Rx {
       return upstream.subscribeOn(io).observeOn(ui);
     }
   };
+  private final ObservableTransformer observableSchedulers = new ObservableTransformer() {
+    @Override public ObservableSource apply(Observable upstream) {
+      return upstream.subscribeOn(io).observeOn(ui);
+    }
+  };
 
   private Rx(Scheduler io, Scheduler ui, Scheduler newThread) {
     this.io = io;
@@ -77,6 +85,11 @@ public final class Rx {
     return (FlowableTransformer<T, T>) flowableSchedulers;
   }
 
+  public <T> ObservableTransformer<T, T> observableSchedulers() {
+    //noinspection unchecked
+    return (ObservableTransformer<T, T>) observableSchedulers;
+  }
+
   public <T> SingleTransformer<T, T> singleSchedulers() {
     //noinspection unchecked
     return (SingleTransformer<T, T>) singleSchedulers;
@@ -0,0 +1,89 @@
+/*
+ * Copyright (C) 2020 Simon Norberg
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.awsomefox.sprocket.util;
+
+import android.os.Trace;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import timber.log.Timber;
+
+/**
+ * Time spent initializing each component while the app starts. Sections show up in systrace and
+ * the totals are logged once the first screen is drawn with its content. Sections may be timed
+ * on any thread.
+ */
+public final class StartupTrace {
+
+  private static final long START = System.nanoTime();
+  private static final Map<String, Long> DURATIONS = new LinkedHashMap<>();
+  private static boolean reported;
+
+  private StartupTrace() {
+  }
+
+  /** Starts timing {@code component}, close the section when it is done. */
+  public static Section begin(String component) {
+    return new Section(component);
+  }
+
+  /** Logs the time spent per component, returns false when that was done before. */
+  public static synchronized boolean report() {
+    if (reported) {
+      return false;
+    }
+    reported = true;
+    StringBuilder summary = new StringBuilder(String.format(Locale.US,
+        "Fully drawn after %d ms", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - START)));
+    for (Map.Entry<String, Long> entry : DURATIONS.entrySet()) {
+      summary.append(String.format(Locale.US, ", %s %d ms", entry.getKey(),
+          TimeUnit.NANOSECONDS.toMillis(entry.getValue())));
+    }
+    Timber.i(summary.toString());
+    return true;
+  }
+
+  public static synchronized boolean isReported() {
+    return reported;
+  }
+
+  private static synchronized void record(String component, long nanos) {
+    Long total = DURATIONS.get(component);
+    DURATIONS.put(component, total == null ? nanos : total + nanos);
+    if (reported) {
+      Timber.d("%s initialized in %d ms", component, TimeUnit.NANOSECONDS.toMillis(nanos));
+    }
+  }
+
+  public static final class Section implements AutoCloseable {
+    private final String component;
+    private final long start;
+
+    private Section(String component) {
+      this.component = component;
+      Trace.beginSection(component);
+      start = System.nanoTime();
+    }
+
+    @Override public void close() {
+      record(component, System.nanoTime() - start);
+      Trace.endSection();
+    }
+  }
+}
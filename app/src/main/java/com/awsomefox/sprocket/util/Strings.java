@@ -25,4 +25,14 @@ public final class Strings {
   public static boolean isBlank(CharSequence string) {
     return string == null || string.toString().trim().length() == 0;
   }
+
+  /** 64-bit FNV-1a hash, wide enough to serve as a stable id. */
+  public static long hash64(String string) {
+    long hash = 0xcbf29ce484222325L;
+    for (int i = 0; i < string.length(); i++) {
+      hash ^= string.charAt(i);
+      hash *= 0x100000001b3L;
+    }
+    return hash;
+  }
 }
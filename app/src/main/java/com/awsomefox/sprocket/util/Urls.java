@@ -18,10 +18,28 @@ package com.awsomefox.sprocket.util;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
+import java.util.Locale;
+
 import okhttp3.HttpUrl;
 
 public final class Urls {
 
+  private static final String PHOTO_TRANSCODE = "/photo/:/transcode";
+
+  /** Encodings the photo transcoder can produce, each with the quality it is requested at. */
+  public enum PhotoFormat {
+    /** Small lossy images for lists and grids. */
+    WEBP(70),
+    /** Large images where banding would show, and consumers that can't decode WebP. */
+    JPEG(85);
+
+    final int quality;
+
+    PhotoFormat(int quality) {
+      this.quality = quality;
+    }
+  }
+
   private Urls() {
     // no instances
   }
@@ -62,4 +80,34 @@ public final class Urls {
         .build()
         .toString();
   }
+
+  /**
+   * Asks the server to scale {@code imageUrl} to exactly {@code width} x {@code height} pixels.
+   * Library paths are routed through the photo transcoder, while urls that already point at the
+   * transcoder keep their source and only get a new size.
+   */
+  @Nullable public static String getPhotoUrl(@Nullable String imageUrl, int width, int height,
+                                             @NonNull PhotoFormat format) {
+    if (Strings.isBlank(imageUrl)) {
+      return null;
+    }
+    HttpUrl parsedUrl = HttpUrl.parse(imageUrl);
+    if (parsedUrl == null) {
+      return null;
+    }
+    HttpUrl.Builder builder = parsedUrl.newBuilder();
+    if (!parsedUrl.encodedPath().equals(PHOTO_TRANSCODE)) {
+      builder.encodedPath(PHOTO_TRANSCODE)
+          .setQueryParameter("url", parsedUrl.encodedPath());
+    }
+    return builder
+        .setQueryParameter("width", String.valueOf(width))
+        .setQueryParameter("height", String.valueOf(height))
+        .setQueryParameter("minSize", "1")
+        .setQueryParameter("upscale", "1")
+        .setQueryParameter("format", format.name().toLowerCase(Locale.US))
+        .setQueryParameter("quality", String.valueOf(format.quality))
+        .build()
+        .toString();
+  }
 }
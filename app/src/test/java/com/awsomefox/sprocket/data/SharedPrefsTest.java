@@ -24,6 +24,9 @@ import org.junit.runner.RunWith;
 import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnitRunner;
 
+import java.util.Collections;
+import java.util.HashMap;
+
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.core.Is.is;
 import static org.mockito.ArgumentMatchers.anyString;
@@ -56,4 +59,24 @@ public class SharedPrefsTest {
     String actual = prefs.getString("testKey", "defaultValue");
     assertThat(actual, is("defaultValue"));
   }
+
+  @Test public void removeAllWithPrefix() {
+    when(mockSharedPreferences.getAll()).thenAnswer(mock ->
+        new HashMap<>(testEditor.getPreferences()));
+    prefs.putString("pref_endpoint_wifi_a", "a");
+    prefs.putString("pref_endpoint_wifi_b", "b");
+    prefs.putString("pref_auth_token", "token");
+    prefs.removeAll("pref_endpoint_");
+    assertThat(prefs.getString("pref_endpoint_wifi_a", "none"), is("none"));
+    assertThat(prefs.getString("pref_endpoint_wifi_b", "none"), is("none"));
+    assertThat(prefs.getString("pref_auth_token", "none"), is("token"));
+  }
+
+  @Test public void keysWithPrefix() {
+    when(mockSharedPreferences.getAll()).thenAnswer(mock ->
+        new HashMap<>(testEditor.getPreferences()));
+    prefs.putString("pref_play_queue_a", "1");
+    prefs.putString("pref_auth_token", "token");
+    assertThat(prefs.keys("pref_play_queue_"), is(Collections.singleton("pref_play_queue_a")));
+  }
 }
@@ -23,10 +23,13 @@ import org.junit.Before;
 import org.junit.Test;
 
 import java.util.Objects;
+import java.util.concurrent.TimeUnit;
 
 import io.reactivex.Completable;
 import io.reactivex.Observable;
 import io.reactivex.Single;
+import io.reactivex.observers.TestObserver;
+import io.reactivex.subjects.PublishSubject;
 import okhttp3.HttpUrl;
 import retrofit2.http.Url;
 
@@ -40,10 +43,11 @@ public class MediaServiceTest {
 
   private TestApi api;
   private MediaService media;
+  private long now;
 
   @Before public void setup() {
     api = new TestApi();
-    media = new MediaService(api);
+    media = new MediaService(api, () -> now, 1024 * 1024);
   }
 
   @Test public void sections() {
@@ -77,9 +81,10 @@ public class MediaServiceTest {
 
     @Test
     public void recentAuthors() {
-        media.chaptersInProgress(URL, "libKey");
+        media.chaptersInProgress(URL, "libKey", 25);
       assertThat(api.actual, is("https://plex.tv/library/sections/libKey/search?viewOffset%3E=" +
-              "10&type=10&sort=updatedAt:asc&X-Plex-Token=token"));
+              "10&type=10&sort=updatedAt:desc&X-Plex-Container-Start=0" +
+              "&X-Plex-Container-Size=25&X-Plex-Token=token"));
   }
 
   @Test public void firstCharacter() {
@@ -101,12 +106,66 @@ public class MediaServiceTest {
         "&X-Plex-Token=token"));
   }
 
+  @Test public void existingPlayQueue() {
+    media.playQueue(URL, 7);
+    assertThat(api.actual, is("https://plex.tv/playQueues/7?own=1&X-Plex-Token=token"));
+  }
+
+  @Test public void coalesceIdenticalRequests() {
+    PublishSubject<MediaContainer> response = PublishSubject.create();
+    api.response = response;
+    TestObserver<MediaContainer> first = media.sections(URL).test();
+    TestObserver<MediaContainer> second = media.sections(URL).test();
+    media.albums(URL, "artistKey").test();
+
+    MediaContainer container = new MediaContainer();
+    response.onNext(container);
+    response.onComplete();
+
+    first.assertValue(container);
+    second.assertValue(container);
+    assertThat(api.subscriptions, is(2));
+    assertThat(media.requestCount(), is(2L));
+    assertThat(media.coalescedCount(), is(1L));
+  }
+
+  @Test public void doNotCoalesceFinishedRequests() {
+    media.identity(URL).test().assertComplete();
+    media.identity(URL).test().assertComplete();
+
+    assertThat(api.subscriptions, is(2));
+    assertThat(media.coalescedCount(), is(0L));
+  }
+
+  @Test public void cacheUntilExpired() {
+    media.sections(URL).test().assertComplete();
+    media.sections(URL).test().assertComplete();
+    assertThat(api.subscriptions, is(1));
+    assertThat(media.cacheHitCount(), is(1L));
+
+    now += TimeUnit.HOURS.toMillis(2);
+    media.sections(URL).test().assertComplete();
+    assertThat(api.subscriptions, is(2));
+  }
+
+  @Test public void invalidateListenStateOnScrobble() {
+    media.tracks(URL, "albumKey").test();
+    media.sections(URL).test();
+    media.scrobble(URL, "ratingKey").test().assertComplete();
+    media.tracks(URL, "albumKey").test();
+    media.sections(URL).test();
+
+    assertThat(api.subscriptions, is(3));
+  }
+
   private static class TestApi implements MediaService.Api {
     private String actual;
+    private Observable<MediaContainer> response = Observable.just(new MediaContainer());
+    private int subscriptions;
 
     @Override public Observable<MediaContainer> get(@Url HttpUrl url) {
       actual = url.toString();
-      return Observable.just(new MediaContainer());
+      return response.doOnSubscribe(disposable -> subscriptions++);
     }
 
       @Override
@@ -0,0 +1,98 @@
+/*
+ * Copyright (C) 2020 Simon Norberg
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.awsomefox.sprocket.data.api;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.Collections;
+import java.util.List;
+
+import okhttp3.Dns;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsNull.nullValue;
+import static org.junit.Assert.fail;
+
+public class PlexDnsTest {
+
+  private int lookups;
+  private long now;
+  private boolean fail;
+  private PlexDns dns;
+
+  @Before public void setUp() {
+    Dns delegate = hostname -> {
+      lookups++;
+      if (fail) {
+        throw new UnknownHostException(hostname);
+      }
+      return Collections.singletonList(InetAddress.getByAddress(hostname, new byte[]{1, 2, 3, 4}));
+    };
+    dns = new PlexDns(delegate, () -> now);
+  }
+
+  @Test public void decodeIpv4() throws Exception {
+    List<InetAddress> addresses = dns.lookup("192-168-1-5.0123abcd.plex.direct");
+
+    assertThat(addresses.get(0).getHostAddress(), is("192.168.1.5"));
+    assertThat(addresses.get(0).getHostName(), is("192-168-1-5.0123abcd.plex.direct"));
+    assertThat(lookups, is(0));
+  }
+
+  @Test public void decodeIpv6() {
+    InetAddress address = PlexDns.decodePlexDirect("2001-db8--1.0123abcd.plex.direct");
+
+    assertThat(address.getHostAddress(), is("2001:db8:0:0:0:0:0:1"));
+  }
+
+  @Test public void invalidPlexDirectIsNotDecoded() {
+    assertThat(PlexDns.decodePlexDirect("192-168-1-256.0123abcd.plex.direct"), is(nullValue()));
+    assertThat(PlexDns.decodePlexDirect("server.0123abcd.plex.direct"), is(nullValue()));
+    assertThat(PlexDns.decodePlexDirect("192-168-1-5.example.com"), is(nullValue()));
+  }
+
+  @Test public void cacheLookups() throws Exception {
+    dns.lookup("plex.tv");
+    dns.lookup("plex.tv");
+    assertThat(lookups, is(1));
+
+    now += 10 * 60 * 1000;
+    dns.lookup("plex.tv");
+    assertThat(lookups, is(2));
+  }
+
+  @Test public void cacheFailures() throws Exception {
+    fail = true;
+    for (int i = 0; i < 2; i++) {
+      try {
+        dns.lookup("plex.tv");
+        fail();
+      } catch (UnknownHostException expected) {
+        // expected
+      }
+    }
+    assertThat(lookups, is(1));
+
+    fail = false;
+    now += 60 * 1000;
+    dns.lookup("plex.tv");
+    assertThat(lookups, is(2));
+  }
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright (C) 2020 Simon Norberg
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.awsomefox.sprocket.data.api;
+
+import com.awsomefox.sprocket.data.api.model.MediaContainer;
+import com.awsomefox.sprocket.data.api.model.Song;
+import com.squareup.moshi.JsonReader;
+
+import org.junit.Test;
+
+import okio.Buffer;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsNull.nullValue;
+
+public class PlexJsonReaderTest {
+
+  @Test public void readDirectories() throws Exception {
+    MediaContainer container = read("{\"MediaContainer\":{\"size\":2,\"Directory\":["
+        + "{\"key\":\"2\",\"title\":\"Books\",\"type\":\"artist\",\"uuid\":\"abc\","
+        + "\"Location\":[{\"id\":1}]}],"
+        + "\"Metadata\":[{\"ratingKey\":\"7\",\"key\":\"/library/metadata/7/children\","
+        + "\"type\":\"album\",\"title\":\"Book\",\"parentTitle\":\"Author\",\"thumb\":null}]}}");
+
+    assertThat(container.directories.size(), is(2));
+    assertThat(container.directories.get(0).uuid, is("abc"));
+    assertThat(container.directories.get(1).ratingKey, is("7"));
+    assertThat(container.directories.get(1).thumb, is(nullValue()));
+    assertThat(container.tracks, is(nullValue()));
+  }
+
+  @Test public void readTracks() throws Exception {
+    MediaContainer container = read("{\"MediaContainer\":{\"playQueueSelectedItemID\":42,"
+        + "\"playQueueID\":7,"
+        + "\"Metadata\":[{\"type\":\"track\",\"ratingKey\":3,\"key\":\"/library/metadata/3\","
+        + "\"parentKey\":\"/library/metadata/2\",\"title\":\"Chapter 1\",\"index\":1,"
+        + "\"duration\":60000,\"viewOffset\":1000,\"playQueueItemID\":42,"
+        + "\"Media\":[{\"id\":1,\"Part\":[{\"key\":\"/library/parts/3/file.mp3\"}]}]}]}}");
+
+    Song song = container.tracks.get(0);
+    assertThat(container.playQueueSelectedItemID, is(42L));
+    assertThat(container.playQueueID, is(7L));
+    assertThat(song.ratingKey, is("3"));
+    assertThat(song.index, is(1));
+    assertThat(song.duration, is(60000L));
+    assertThat(song.viewOffset, is(1000L));
+    assertThat(song.playQueueItemID, is(42L));
+    assertThat(song.media.part.key, is("/library/parts/3/file.mp3"));
+  }
+
+  private static MediaContainer read(String json) throws Exception {
+    return PlexJsonReader.readMediaContainer(JsonReader.of(new Buffer().writeUtf8(json)));
+  }
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright (C) 2020 Simon Norberg
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.awsomefox.sprocket.data.api;
+
+import com.awsomefox.sprocket.data.api.model.MediaContainer;
+import com.awsomefox.sprocket.data.api.model.Song;
+import com.awsomefox.sprocket.data.api.model.User;
+
+import org.junit.Test;
+import org.kxml2.io.KXmlParser;
+import org.xmlpull.v1.XmlPullParser;
+
+import java.io.StringReader;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsNull.nullValue;
+
+public class PlexXmlParserTest {
+
+  @Test public void parseDirectories() throws Exception {
+    MediaContainer container = PlexXmlParser.parseMediaContainer(parser(
+        "<MediaContainer size=\"2\">"
+            + "<Directory key=\"/library/metadata/1/children\" title=\"Author\" ratingKey=\"1\""
+            + " type=\"artist\" thumb=\"/thumb/1\"><Genre tag=\"Fantasy\"/></Directory>"
+            + "<Directory key=\"/library/sections/2\" title=\"Books\" size=\"12\"/>"
+            + "</MediaContainer>"));
+
+    assertThat(container.directories.size(), is(2));
+    assertThat(container.directories.get(0).ratingKey, is("1"));
+    assertThat(container.directories.get(0).type, is("artist"));
+    assertThat(container.directories.get(1).size, is(12));
+    assertThat(container.tracks, is(nullValue()));
+    assertThat(container.playQueueSelectedItemID, is(nullValue()));
+  }
+
+  @Test public void parseTracks() throws Exception {
+    MediaContainer container = PlexXmlParser.parseMediaContainer(parser(
+        "<?xml version=\"1.0\" encoding=\"UTF-8\"?>"
+            + "<MediaContainer playQueueID=\"7\" playQueueSelectedItemID=\"42\">"
+            + "<Track key=\"/library/metadata/3\" ratingKey=\"3\" parentKey=\"/library/metadata/2\""
+            + " title=\"Chapter 1\" parentTitle=\"Book\" grandparentTitle=\"Author\" index=\"1\""
+            + " duration=\"60000\" viewOffset=\"1000\" playQueueItemID=\"42\">"
+            + "<Media><Part key=\"/library/parts/3/file.mp3\"/></Media>"
+            + "</Track></MediaContainer>"));
+
+    Song song = container.tracks.get(0);
+    assertThat(container.playQueueSelectedItemID, is(42L));
+    assertThat(container.playQueueID, is(7L));
+    assertThat(song.title, is("Chapter 1"));
+    assertThat(song.index, is(1));
+    assertThat(song.duration, is(60000L));
+    assertThat(song.viewOffset, is(1000L));
+    assertThat(song.viewCount, is(0L));
+    assertThat(song.playQueueItemID, is(42L));
+    assertThat(song.media.part.key, is("/library/parts/3/file.mp3"));
+  }
+
+  @Test public void parseDevices() throws Exception {
+    MediaContainer container = PlexXmlParser.parseMediaContainer(parser(
+        "<MediaContainer>"
+            + "<Device provides=\"server\" accessToken=\"token\">"
+            + "<Connection uri=\"https://10.0.0.2:32400\" local=\"1\"/>"
+            + "<Connection uri=\"https://1.2.3.4:32400\" local=\"0\"/>"
+            + "</Device></MediaContainer>"));
+
+    assertThat(container.devices.get(0).accessToken, is("token"));
+    assertThat(container.devices.get(0).connections.size(), is(2));
+    assertThat(container.devices.get(0).connections.get(1).local, is(0));
+  }
+
+  @Test public void parseUser() throws Exception {
+    User user = PlexXmlParser.parseUser(parser(
+        "<user email=\"a@b.c\"><subscription active=\"1\"/>"
+            + "<authentication-token>token</authentication-token></user>"));
+
+    assertThat(user.authenticationToken, is("token"));
+  }
+
+  private static XmlPullParser parser(String xml) throws Exception {
+    XmlPullParser parser = new KXmlParser();
+    parser.setInput(new StringReader(xml));
+    return parser;
+  }
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright (C) 2020 Simon Norberg
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.awsomefox.sprocket.data.download;
+
+import com.awsomefox.sprocket.util.Urls;
+
+import org.junit.Test;
+
+import okhttp3.HttpUrl;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsNull.nullValue;
+
+public class DownloadJobTest {
+
+  private static final HttpUrl CONNECTION = HttpUrl.get("https://old:32400/?X-Plex-Token=old");
+  private static final String PART_KEY = "/library/parts/1/1234/file name.mp3";
+
+  @Test public void partKeyOfSource() {
+    String source = Urls.addPathToUrl(CONNECTION, PART_KEY).toString();
+    assertThat(DownloadJob.partKey(CONNECTION, source), is(PART_KEY));
+  }
+
+  @Test public void partKeySkipsConnectionPath() {
+    HttpUrl connection = HttpUrl.get("https://proxy/plex/?X-Plex-Token=token");
+    String source = Urls.addPathToUrl(connection, PART_KEY).toString();
+    assertThat(DownloadJob.partKey(connection, source), is(PART_KEY));
+  }
+
+  @Test public void urlUsesCurrentConnection() {
+    String source = Urls.addPathToUrl(CONNECTION, PART_KEY).toString();
+    DownloadJob job = new DownloadJob("key", "book", "library",
+        DownloadJob.partKey(CONNECTION, source), "file", 0, -1, false, false);
+    HttpUrl current = HttpUrl.get("https://new:32400/?X-Plex-Token=new");
+    assertThat(job.url(current), is(Urls.addPathToUrl(current, PART_KEY)));
+  }
+
+  @Test public void invalidSource() {
+    assertThat(DownloadJob.partKey(CONNECTION, "not a url"), is(nullValue()));
+  }
+}
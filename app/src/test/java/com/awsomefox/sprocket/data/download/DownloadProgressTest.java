@@ -0,0 +1,55 @@
+/*
+ * Copyright (C) 2020 Simon Norberg
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.awsomefox.sprocket.data.download;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+
+public class DownloadProgressTest {
+
+  @Test public void nothingQueued() {
+    DownloadProgress progress = DownloadProgress.of(Collections.emptyList());
+    assertThat(progress.parts, is(0));
+    assertThat(progress.isComplete(), is(false));
+  }
+
+  @Test public void countsPartialParts() {
+    DownloadProgress progress = DownloadProgress.of(Arrays.asList(
+        job(true, 100, 100, false), job(false, 50, 100, false), job(false, 0, -1, true)));
+    assertThat(progress.parts, is(3));
+    assertThat(progress.pinned, is(2));
+    assertThat(progress.downloaded, is(1));
+    assertThat(progress.fraction, is(0.5f));
+    assertThat(progress.isComplete(), is(false));
+  }
+
+  @Test public void completeOnceEveryPartIsDone() {
+    DownloadProgress progress = DownloadProgress.of(Arrays.asList(
+        job(true, 100, 100, true), job(true, 200, 200, true)));
+    assertThat(progress.isComplete(), is(true));
+    assertThat(progress.fraction, is(1f));
+  }
+
+  private static DownloadJob job(boolean done, long downloaded, long total, boolean auto) {
+    return new DownloadJob("key", "book", "library", "/part", "file", downloaded, total, done,
+        auto);
+  }
+}
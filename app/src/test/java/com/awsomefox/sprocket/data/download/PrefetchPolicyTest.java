@@ -0,0 +1,77 @@
+/*
+ * Copyright (C) 2020 Simon Norberg
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.awsomefox.sprocket.data.download;
+
+import com.awsomefox.sprocket.data.model.Track;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import okhttp3.HttpUrl;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.collection.IsEmptyCollection.empty;
+import static org.hamcrest.collection.IsIterableContainingInOrder.contains;
+
+public class PrefetchPolicyTest {
+
+  private static final long MINUTE = 60 * 1000;
+
+  private final Track finished = track(1, 10 * MINUTE, 0, 1);
+  private final Track partial = track(2, 10 * MINUTE, 4 * MINUTE, 0);
+  private final Track next = track(3, 10 * MINUTE, 0, 0);
+  private final Track last = track(4, 10 * MINUTE, 0, 0);
+  private final List<Track> book = Arrays.asList(finished, partial, next, last);
+
+  @Test public void startsAtChapterInProgress() {
+    List<Track> selected = new PrefetchPolicy(2, 0).select(book);
+    assertThat(selected, contains(partial, next));
+  }
+
+  @Test public void limitsByRemainingListeningTime() {
+    // 6 minutes left of the partial chapter, so one more chapter is needed to cover 15 minutes
+    List<Track> selected = new PrefetchPolicy(1, 15 * MINUTE).select(book);
+    assertThat(selected, contains(partial, next));
+  }
+
+  @Test public void nothingForFinishedBook() {
+    List<Track> selected = new PrefetchPolicy(3, 0).select(Arrays.asList(finished));
+    assertThat(selected, empty());
+  }
+
+  private static Track track(int index, long duration, long viewOffset, long viewCount) {
+    return Track.builder()
+        .queueItemId(index)
+        .libraryId("libraryId")
+        .key("key" + index)
+        .ratingKey("ratingKey" + index)
+        .parentKey("parentKey")
+        .title("title")
+        .albumTitle("albumTitle")
+        .artistTitle("artistTitle")
+        .index(index)
+        .duration(duration)
+        .viewOffset(viewOffset)
+        .viewCount(viewCount)
+        .thumb("thumb")
+        .source("https://plex.tv/library/parts/" + index + "/file.mp3")
+        .uri(HttpUrl.parse("https://plex.tv"))
+        .recent(false)
+        .build();
+  }
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright (C) 2020 Simon Norberg
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.awsomefox.sprocket.data.download;
+
+import org.junit.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+
+public class ThrottleTest {
+
+  private long now;
+
+  @Test public void unlimitedNeverWaits() {
+    Throttle throttle = new Throttle(() -> now, 0);
+    assertThat(throttle.reserve(Integer.MAX_VALUE), is(0L));
+  }
+
+  @Test public void burstUpToOneSecond() {
+    Throttle throttle = new Throttle(() -> now, 1000);
+    assertThat(throttle.reserve(1000), is(0L));
+    assertThat(throttle.reserve(500), is(500L));
+  }
+
+  @Test public void refillsOverTime() {
+    Throttle throttle = new Throttle(() -> now, 1000);
+    throttle.reserve(1000);
+    now += 250;
+    assertThat(throttle.reserve(250), is(0L));
+    assertThat(throttle.reserve(100), is(100L));
+  }
+
+  @Test public void debtIsSharedBetweenCallers() {
+    Throttle throttle = new Throttle(() -> now, 1000);
+    throttle.reserve(1000);
+    assertThat(throttle.reserve(1000), is(1000L));
+    assertThat(throttle.reserve(1000), is(2000L));
+  }
+}
@@ -0,0 +1,221 @@
+/*
+ * Copyright (C) 2020 Simon Norberg
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.awsomefox.sprocket.data.outbox;
+
+import android.net.ConnectivityManager;
+import android.net.NetworkInfo;
+
+import androidx.annotation.NonNull;
+
+import com.awsomefox.sprocket.data.ServerManager;
+import com.awsomefox.sprocket.data.api.MediaService;
+import com.awsomefox.sprocket.data.model.Track;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+import io.reactivex.Completable;
+import io.reactivex.observers.TestObserver;
+import okhttp3.HttpUrl;
+import okhttp3.ResponseBody;
+import retrofit2.HttpException;
+import retrofit2.Response;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class OutboxTest {
+
+  private static final String LIBRARY = "library-uuid";
+  private static final String OTHER_LIBRARY = "other-library-uuid";
+  private static final HttpUrl URL = HttpUrl.get("http://plex:32400/?X-Plex-Token=token");
+  private static final HttpUrl OTHER_URL = HttpUrl.get("http://other:32400/?X-Plex-Token=token");
+
+  @Mock MediaService mockMedia;
+  @Mock ServerManager mockServerManager;
+  @Mock ConnectivityManager mockConnectivityManager;
+  @Mock NetworkInfo mockNetworkInfo;
+  @Mock Track mockTrack;
+  private final FakeStore store = new FakeStore();
+  private Outbox outbox;
+
+  @Before public void setUp() {
+    outbox = new Outbox(store, mockMedia, mockServerManager, mockConnectivityManager);
+  }
+
+  @Test public void timelineSupersedesTimelineOfSameChapter() {
+    OutboxEntry older = OutboxEntry.timeline(LIBRARY, "1", 1, "/key/1", "playing", 1000, 10);
+    OutboxEntry newer = OutboxEntry.timeline(LIBRARY, "1", 1, "/key/1", "paused", 1000, 20);
+    assertThat(newer.supersedes(older), is(true));
+  }
+
+  @Test public void timelineKeepsOtherChapters() {
+    OutboxEntry older = OutboxEntry.timeline(LIBRARY, "1", 1, "/key/1", "playing", 1000, 10);
+    OutboxEntry newer = OutboxEntry.timeline(LIBRARY, "2", 2, "/key/2", "playing", 1000, 20);
+    assertThat(newer.supersedes(older), is(false));
+  }
+
+  @Test public void timelineKeepsPendingMark() {
+    OutboxEntry older = OutboxEntry.scrobble(LIBRARY, "1", true);
+    OutboxEntry newer = OutboxEntry.timeline(LIBRARY, "1", 1, "/key/1", "playing", 1000, 20);
+    assertThat(newer.supersedes(older), is(false));
+  }
+
+  @Test public void markSupersedesTimelineAndMark() {
+    OutboxEntry timeline = OutboxEntry.timeline(LIBRARY, "1", 1, "/key/1", "playing", 1000, 10);
+    OutboxEntry scrobble = OutboxEntry.scrobble(LIBRARY, "1", true);
+    OutboxEntry unscrobble = OutboxEntry.scrobble(LIBRARY, "1", false);
+    assertThat(scrobble.supersedes(timeline), is(true));
+    assertThat(unscrobble.supersedes(scrobble), is(true));
+  }
+
+  @Test public void clientErrorsAreRejected() {
+    assertThat(Outbox.isRejected(httpError(404)), is(true));
+    assertThat(Outbox.isRejected(httpError(429)), is(false));
+    assertThat(Outbox.isRejected(httpError(503)), is(false));
+    assertThat(Outbox.isRejected(new IOException()), is(false));
+  }
+
+  @Test public void backoffDoublesUpToMax() {
+    assertThat(Outbox.backoff(1), is(Outbox.MIN_BACKOFF_MS));
+    assertThat(Outbox.backoff(2), is(2 * Outbox.MIN_BACKOFF_MS));
+    assertThat(Outbox.backoff(100), is(Outbox.MAX_BACKOFF_MS));
+  }
+
+  @Test public void failingServerHoldsBackOnlyItsOwnEntries() {
+    long now = System.currentTimeMillis();
+    store.entries.add(scrobble(1, LIBRARY, "1", now));
+    store.entries.add(scrobble(2, LIBRARY, "2", now));
+    store.entries.add(scrobble(3, OTHER_LIBRARY, "3", now));
+    when(mockServerManager.uri(LIBRARY)).thenReturn(URL);
+    when(mockServerManager.uri(OTHER_LIBRARY)).thenReturn(OTHER_URL);
+    when(mockMedia.scrobble(URL, "1")).thenReturn(Completable.error(new IOException()));
+    when(mockMedia.scrobble(OTHER_URL, "3")).thenReturn(Completable.complete());
+
+    connect();
+    outbox.flush();
+
+    assertThat(store.ids(), is(Arrays.asList(1L, 2L)));
+    verify(mockMedia, never()).scrobble(URL, "2");
+  }
+
+  @Test public void expiredEntryIsGivenUpOn() {
+    long queuedAt = System.currentTimeMillis() - Outbox.MAX_AGE_MS - 1;
+    store.entries.add(scrobble(1, LIBRARY, "1", queuedAt));
+    when(mockServerManager.uri(LIBRARY)).thenReturn(URL);
+    when(mockMedia.scrobble(URL, "1")).thenReturn(Completable.error(new IOException()));
+
+    connect();
+    outbox.flush();
+
+    assertThat(store.ids(), is(Collections.<Long>emptyList()));
+  }
+
+  @Test public void unknownServerKeepsEntry() {
+    store.entries.add(scrobble(1, LIBRARY, "1", System.currentTimeMillis()));
+    when(mockServerManager.uri(LIBRARY)).thenReturn(null);
+
+    connect();
+    outbox.flush();
+
+    assertThat(store.ids(), is(Collections.singletonList(1L)));
+    verify(mockMedia, never()).scrobble(any(HttpUrl.class), anyString());
+  }
+
+  @Test public void scrobbleDeliveredCompletesOnceDelivered() {
+    store.entries.add(scrobble(1, LIBRARY, "1", System.currentTimeMillis()));
+    when(mockServerManager.uri(LIBRARY)).thenReturn(URL);
+    when(mockMedia.scrobble(URL, "1")).thenReturn(Completable.complete());
+    when(mockTrack.ratingKey()).thenReturn("1");
+    when(mockTrack.libraryId()).thenReturn(LIBRARY);
+    TestObserver<Void> delivered = outbox.scrobbleDelivered(mockTrack).test();
+
+    delivered.assertNotComplete();
+    connect();
+    outbox.flush();
+
+    delivered.assertComplete();
+  }
+
+  private void connect() {
+    when(mockConnectivityManager.getActiveNetworkInfo()).thenReturn(mockNetworkInfo);
+    when(mockNetworkInfo.isConnected()).thenReturn(true);
+  }
+
+  private static OutboxEntry scrobble(long id, String libraryId, String ratingKey,
+                                      long queuedAt) {
+    return new OutboxEntry(id, OutboxEntry.Kind.SCROBBLE, libraryId, ratingKey, 0, null, null, 0,
+        0, queuedAt);
+  }
+
+  private static HttpException httpError(int code) {
+    return new HttpException(Response.error(code, ResponseBody.create(null, "")));
+  }
+
+  private static class FakeStore implements OutboxStore {
+    final List<OutboxEntry> entries = new ArrayList<>();
+
+    @NonNull @Override public List<OutboxEntry> pending(long afterId, int limit) {
+      List<OutboxEntry> pending = new ArrayList<>();
+      for (OutboxEntry entry : entries) {
+        if (entry.id > afterId && pending.size() < limit) {
+          pending.add(entry);
+        }
+      }
+      return pending;
+    }
+
+    @Override public void add(@NonNull OutboxEntry entry) {
+      entries.add(entry);
+    }
+
+    @Override public void remove(long id) {
+      for (Iterator<OutboxEntry> it = entries.iterator(); it.hasNext(); ) {
+        if (it.next().id == id) {
+          it.remove();
+        }
+      }
+    }
+
+    @Override public void clear() {
+      entries.clear();
+    }
+
+    List<Long> ids() {
+      List<Long> ids = new ArrayList<>();
+      for (OutboxEntry entry : entries) {
+        ids.add(entry.id);
+      }
+      return ids;
+    }
+  }
+}
@@ -0,0 +1,54 @@
+/*
+ * Copyright (C) 2020 Simon Norberg
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.awsomefox.sprocket.data.repository;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+
+public class LetterIndexTest {
+
+  // A: 0-1, C: 2-4, positions: A(0) 0(1) 1(2) C(3) 2(4) 3(5) 4(6)
+  private final LetterIndex index =
+      new LetterIndex(Arrays.asList("A", "B", "C"), new int[]{2, 0, 3});
+
+  @Test public void emptyLettersAreDropped() {
+    assertThat(index.letters(), is(Arrays.asList("A", "C")));
+    assertThat(index.itemCount(), is(5));
+    assertThat(index.size(), is(7));
+  }
+
+  @Test public void headers() {
+    assertThat(index.headerPosition(0), is(0));
+    assertThat(index.headerPosition(1), is(3));
+    assertThat(index.isHeader(3), is(true));
+    assertThat(index.isHeader(4), is(false));
+    assertThat(index.letterAt(2), is(0));
+    assertThat(index.letterAt(6), is(1));
+  }
+
+  @Test public void itemsAndPositions() {
+    assertThat(index.itemAt(1), is(0));
+    assertThat(index.itemAt(4), is(2));
+    assertThat(index.itemAt(6), is(4));
+    for (int item = 0; item < index.itemCount(); item++) {
+      assertThat(index.itemAt(index.positionOf(item)), is(item));
+    }
+  }
+}
@@ -0,0 +1,209 @@
+/*
+ * Copyright (C) 2020 Simon Norberg
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.awsomefox.sprocket.data.repository;
+
+import com.awsomefox.sprocket.data.Prefs;
+import com.awsomefox.sprocket.data.api.MediaService;
+import com.awsomefox.sprocket.data.api.model.MediaContainer;
+import com.awsomefox.sprocket.data.api.model.Song;
+import com.awsomefox.sprocket.data.model.Track;
+import com.awsomefox.sprocket.data.outbox.Outbox;
+import com.awsomefox.sprocket.data.store.MetadataStore;
+import com.awsomefox.sprocket.util.Pair;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import io.reactivex.Observable;
+import io.reactivex.Single;
+import okhttp3.HttpUrl;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsNull.nullValue;
+import static org.hamcrest.core.StringStartsWith.startsWith;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class MusicRepositoryImplTest {
+
+  private static final HttpUrl URL = HttpUrl.get("https://plex.tv?X-Plex-Token=token");
+  private static final String PREF_KEY = "pref_play_queue_library/book";
+  private static final long EXPIRED = System.currentTimeMillis() - TimeUnit.DAYS.toMillis(8);
+
+  @Mock MediaService mockMedia;
+  @Mock MetadataStore mockStore;
+  @Mock Outbox mockOutbox;
+  private final TestPrefs prefs = new TestPrefs();
+  private MusicRepositoryImpl repository;
+
+  @Before public void setup() {
+    repository = new MusicRepositoryImpl(mockMedia, mockStore, prefs, mockOutbox);
+  }
+
+  @Test public void storedPlayQueueIsReused() {
+    prefs.putString(PREF_KEY, "7:" + System.currentTimeMillis());
+    when(mockMedia.playQueue(URL, 7)).thenReturn(Single.just(container(7L, null)));
+
+    Pair<List<Track>, Long> queue = repository.createPlayQueue(track()).blockingGet();
+
+    assertThat(queue.second, is(72L));
+    assertThat(queue.first.size(), is(2));
+    verify(mockMedia, never()).playQueue(eq(URL), anyString(), anyString(), anyString());
+  }
+
+  @Test public void goneQueueFallsBackToCreatingOne() {
+    prefs.putString(PREF_KEY, "7:" + System.currentTimeMillis());
+    when(mockMedia.playQueue(URL, 7)).thenReturn(Single.error(new IOException()));
+    when(mockMedia.playQueue(URL, "/key/2", "book", "library"))
+        .thenReturn(Single.just(container(8L, 82L)));
+
+    Pair<List<Track>, Long> queue = repository.createPlayQueue(track()).blockingGet();
+
+    assertThat(queue.second, is(82L));
+    assertThat(prefs.getString(PREF_KEY, null), startsWith("8:"));
+  }
+
+  @Test public void expiredQueueIsNotReused() {
+    prefs.putString(PREF_KEY, "7:" + EXPIRED);
+    when(mockMedia.playQueue(URL, "/key/2", "book", "library"))
+        .thenReturn(Single.just(container(8L, 82L)));
+
+    assertThat(repository.createPlayQueue(track()).blockingGet().second, is(82L));
+    verify(mockMedia, never()).playQueue(eq(URL), anyLong());
+    assertThat(prefs.getString(PREF_KEY, null), startsWith("8:"));
+  }
+
+  @Test public void expiredQueuesOfOtherBooksArePruned() {
+    String other = "pref_play_queue_library/other";
+    String recent = "pref_play_queue_library/recent";
+    prefs.putString(other, "5:" + EXPIRED);
+    prefs.putString(recent, "6:" + System.currentTimeMillis());
+    when(mockMedia.playQueue(URL, "/key/2", "book", "library"))
+        .thenReturn(Single.just(container(8L, 82L)));
+
+    repository.createPlayQueue(track()).blockingGet();
+
+    assertThat(prefs.getString(other, null), is(nullValue()));
+    assertThat(prefs.getString(recent, null), startsWith("6:"));
+  }
+
+  private static Track track() {
+    return Track.builder()
+        .queueItemId(0)
+        .libraryId("library")
+        .key("/key/2")
+        .ratingKey("2")
+        .parentKey("book")
+        .title("title")
+        .albumTitle("albumTitle")
+        .artistTitle("artistTitle")
+        .index(2)
+        .duration(30000)
+        .thumb(null)
+        .source("source")
+        .uri(URL)
+        .recent(false)
+        .viewCount(0)
+        .viewOffset(0)
+        .build();
+  }
+
+  private static MediaContainer container(Long playQueueId, Long selectedItemId) {
+    MediaContainer container = new MediaContainer();
+    container.playQueueID = playQueueId;
+    container.playQueueSelectedItemID = selectedItemId;
+    container.tracks = Arrays.asList(song(1), song(2));
+    return container;
+  }
+
+  private static Song song(int index) {
+    Song song = new Song();
+    song.key = "/key/" + index;
+    song.ratingKey = String.valueOf(index);
+    song.parentKey = "book";
+    song.title = "title";
+    song.parentTitle = "albumTitle";
+    song.grandparentTitle = "artistTitle";
+    song.playQueueItemID = 70L + index;
+    song.index = index;
+    song.media = new Song.Media();
+    song.media.part = new Song.Part();
+    song.media.part.key = "/part/" + index;
+    return song;
+  }
+
+  private static class TestPrefs implements Prefs {
+    private final Map<String, String> values = new HashMap<>();
+
+    @Override public void remove(String key) {
+      values.remove(key);
+    }
+
+    @Override public void removeAll(String prefix) {
+      values.keySet().removeAll(keys(prefix));
+    }
+
+    @Override public Set<String> keys(String prefix) {
+      Set<String> keys = new HashSet<>();
+      for (String key : values.keySet()) {
+        if (key.startsWith(prefix)) {
+          keys.add(key);
+        }
+      }
+      return keys;
+    }
+
+    @Override public String getString(String key, String defaultValue) {
+      String value = values.get(key);
+      return value != null ? value : defaultValue;
+    }
+
+    @Override public void putString(String key, String value) {
+      values.put(key, value);
+    }
+
+    @Override public boolean getBoolean(String key, boolean defaultValue) {
+      String value = values.get(key);
+      return value != null ? Boolean.parseBoolean(value) : defaultValue;
+    }
+
+    @Override public void putBoolean(String key, boolean value) {
+      values.put(key, String.valueOf(value));
+    }
+
+    @Override public Observable<String> changes() {
+      return Observable.never();
+    }
+  }
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright (C) 2020 Simon Norberg
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.awsomefox.sprocket.data.storage;
+
+import androidx.annotation.NonNull;
+
+import com.awsomefox.sprocket.data.storage.StorageEntry.Tier;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.collection.IsEmptyCollection.empty;
+import static org.hamcrest.collection.IsIterableContainingInOrder.contains;
+import static org.hamcrest.core.Is.is;
+
+public class StorageBudgetTest {
+
+  private static final long MB = 1024 * 1024;
+  private static final long NOW = TimeUnit.DAYS.toMillis(30);
+
+  private final Evictable owner = new Evictable() {
+    @NonNull @Override public List<StorageEntry> entries(@NonNull Set<String> currentKeys) {
+      return Collections.emptyList();
+    }
+
+    @Override public void evict(@NonNull StorageEntry entry) {
+    }
+  };
+
+  private final StorageEntry pinned = entry(Tier.PINNED, 500, 100);
+  private final StorageEntry current = entry(Tier.CURRENT_AUDIO, 100, 1);
+  private final StorageEntry staleAudio = entry(Tier.AUDIO, 100, 48);
+  private final StorageEntry freshAudio = entry(Tier.AUDIO, 100, 2);
+  private final StorageEntry metadata = entry(Tier.METADATA, 10, 4);
+  private final List<StorageEntry> entries =
+      Arrays.asList(pinned, current, freshAudio, staleAudio, metadata);
+
+  @Test public void nothingEvictedWithinLimit() {
+    assertThat(StorageBudget.plan(entries, 810 * MB, NOW), empty());
+  }
+
+  @Test public void evictsByAgeWeighedAgainstCost() {
+    assertThat(StorageBudget.plan(entries, 605 * MB, NOW),
+        contains(staleAudio, metadata, freshAudio));
+  }
+
+  @Test public void cheaperTierGoesFirstAtSameAge() {
+    StorageEntry audio = entry(Tier.AUDIO, 100, 0);
+    StorageEntry metadata = entry(Tier.METADATA, 10, 0);
+    assertThat(StorageBudget.plan(Arrays.asList(audio, metadata), 0, NOW),
+        contains(metadata, audio));
+  }
+
+  @Test public void neverEvictsPinned() {
+    assertThat(StorageBudget.plan(entries, 0, NOW),
+        contains(staleAudio, metadata, freshAudio, current));
+  }
+
+  @Test public void limitKeepsFreeSpace() {
+    long limit = StorageBudget.limit(2048 * MB, 100 * MB, 600 * MB, false);
+    assertThat(limit, is(100 * MB + 600 * MB - StorageBudget.MIN_FREE_BYTES));
+  }
+
+  @Test public void limitHalvedOnLowStorage() {
+    assertThat(StorageBudget.limit(2048 * MB, 1000 * MB, 4096 * MB, true), is(500 * MB));
+  }
+
+  private StorageEntry entry(Tier tier, long megabytes, long hoursAgo) {
+    return new StorageEntry(tier, tier + "-" + hoursAgo, megabytes * MB,
+        NOW - TimeUnit.HOURS.toMillis(hoursAgo), owner);
+  }
+}
@@ -0,0 +1,44 @@
+/*
+ * Copyright (C) 2020 Simon Norberg
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.awsomefox.sprocket.data.store;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+
+public class FreshnessTest {
+
+  private static final long NOW = TimeUnit.DAYS.toMillis(1000);
+
+  @Test public void catalogIsFreshWithinMaxAge() {
+    assertThat(Freshness.CATALOG.isFresh(NOW - TimeUnit.HOURS.toMillis(1), NOW), is(true));
+  }
+
+  @Test public void catalogIsStaleAfterMaxAge() {
+    assertThat(Freshness.CATALOG.isFresh(NOW - TimeUnit.DAYS.toMillis(1), NOW), is(false));
+  }
+
+  @Test public void inProgressIsNeverFresh() {
+    assertThat(Freshness.IN_PROGRESS.isFresh(NOW, NOW), is(false));
+  }
+
+  @Test public void fetchedInTheFutureIsStale() {
+    assertThat(Freshness.DETAIL.isFresh(NOW + 1, NOW), is(false));
+  }
+}
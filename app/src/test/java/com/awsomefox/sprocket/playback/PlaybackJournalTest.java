@@ -0,0 +1,90 @@
+/*
+ * Copyright (C) 2020 Simon Norberg
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.awsomefox.sprocket.playback;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsNull.nullValue;
+
+public class PlaybackJournalTest {
+
+  @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+  private File file;
+
+  @Before public void setup() {
+    file = new File(folder.getRoot(), "playback.journal");
+  }
+
+  @Test public void emptyJournal() {
+    assertThat(new PlaybackJournal(file).read(), is(nullValue()));
+  }
+
+  @Test public void latestEntryIsReadBack() {
+    PlaybackJournal journal = new PlaybackJournal(file);
+    journal.write(entry("/key/1", 1000));
+    journal.write(entry("/key/2", 2000));
+    journal.write(entry("/key/2", 3000));
+
+    PlaybackJournal.Entry entry = new PlaybackJournal(file).read();
+    assertThat(entry.key, is("/key/2"));
+    assertThat(entry.position, is(3000L));
+    assertThat(entry.parentKey, is("/book"));
+  }
+
+  @Test public void tornWriteFallsBackToPreviousEntry() throws IOException {
+    PlaybackJournal journal = new PlaybackJournal(file);
+    journal.write(entry("/key/1", 1000));
+    journal.write(entry("/key/1", 2000));
+
+    // Second write went to the second slot, damage its payload
+    try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+      raf.seek(PlaybackJournal.SLOT_SIZE + 30);
+      raf.write(0xff);
+    }
+
+    PlaybackJournal reopened = new PlaybackJournal(file);
+    assertThat(reopened.read().position, is(1000L));
+
+    // The intact entry is not the one overwritten next
+    reopened.write(entry("/key/1", 4000));
+    assertThat(new PlaybackJournal(file).read().position, is(4000L));
+  }
+
+  @Test public void clearedJournalIsEmpty() {
+    PlaybackJournal journal = new PlaybackJournal(file);
+    journal.write(entry("/key/1", 1000));
+    journal.write(entry("/key/1", 2000));
+    journal.clear();
+    assertThat(new PlaybackJournal(file).read(), is(nullValue()));
+
+    journal.write(entry("/key/2", 3000));
+    assertThat(new PlaybackJournal(file).read().key, is("/key/2"));
+  }
+
+  private static PlaybackJournal.Entry entry(String key, long position) {
+    return new PlaybackJournal.Entry("library", "/book", key, 10, position);
+  }
+}
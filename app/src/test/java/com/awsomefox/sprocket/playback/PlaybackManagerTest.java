@@ -145,6 +145,18 @@ public class PlaybackManagerTest {
     verify(mockQueueManager, never()).next();
   }
 
+  @Test
+  public void onTransitionShouldCompleteAndAdvanceQueue() {
+    Track completed = createTrack();
+    Track next = completed.toBuilder().queueItemId(101).build();
+
+    playbackManager.onTransition(completed, next);
+
+    verify(mockServiceCallback, times(1)).onCompletion(completed);
+    verify(mockQueueManager, times(1)).setQueuePosition(101);
+    verify(mockQueueManager, never()).next();
+  }
+
   @Test
   public void setCurrentTrack() {
     Track currentTrack = createTrack();
@@ -0,0 +1,136 @@
+/*
+ * Copyright (C) 2020 Simon Norberg
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.awsomefox.sprocket.playback;
+
+import android.net.ConnectivityManager;
+
+import com.awsomefox.sprocket.data.download.Downloader;
+import com.awsomefox.sprocket.data.model.Track;
+import com.awsomefox.sprocket.util.Rx;
+import com.google.android.exoplayer2.C;
+import com.google.android.exoplayer2.upstream.DataSource;
+import com.google.android.exoplayer2.upstream.DataSpec;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+import okhttp3.HttpUrl;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class PlaybackWarmerTest {
+
+  private static final long LENGTH = 10_000_000;
+  private static final long DURATION = 100_000;
+
+  @Mock ConnectivityManager mockConnectivityManager;
+  @Mock Downloader mockDownloader;
+  @Mock DataSource.Factory mockDataSourceFactory;
+  @Mock DataSource mockDataSource;
+  private PlaybackWarmer warmer;
+
+  @Before public void setUp() {
+    warmer = new PlaybackWarmer(mockConnectivityManager, mockDownloader, mockDataSourceFactory,
+        Rx.test());
+  }
+
+  @Test public void readsHeadAndResumeWindow() throws IOException {
+    Track track = track(50_000);
+    when(mockConnectivityManager.isActiveNetworkMetered()).thenReturn(false);
+    when(mockDataSourceFactory.createDataSource()).thenReturn(mockDataSource);
+    when(mockDataSource.open(any(DataSpec.class))).thenReturn(LENGTH);
+    when(mockDataSource.read(any(byte[].class), anyInt(), anyInt()))
+        .thenReturn(C.RESULT_END_OF_INPUT);
+
+    warmer.warm(track);
+
+    ArgumentCaptor<DataSpec> specs = ArgumentCaptor.forClass(DataSpec.class);
+    verify(mockDataSource, times(2)).open(specs.capture());
+    List<DataSpec> opened = specs.getAllValues();
+    assertThat(opened.get(0).position, is(0L));
+    // 100 bytes per ms, starting 2 seconds before the offset and reading 10 seconds
+    assertThat(opened.get(1).position, is(4_800_000L));
+    assertThat(opened.get(1).length, is(1_000_000L));
+  }
+
+  @Test public void unplayedChapterOnlyReadsHead() throws IOException {
+    when(mockConnectivityManager.isActiveNetworkMetered()).thenReturn(false);
+    when(mockDataSourceFactory.createDataSource()).thenReturn(mockDataSource);
+    when(mockDataSource.open(any(DataSpec.class))).thenReturn(LENGTH);
+    when(mockDataSource.read(any(byte[].class), anyInt(), anyInt()))
+        .thenReturn(C.RESULT_END_OF_INPUT);
+
+    warmer.warm(track(0));
+
+    verify(mockDataSource, times(1)).open(any(DataSpec.class));
+  }
+
+  @Test public void meteredNetworkReadsNothing() {
+    when(mockConnectivityManager.isActiveNetworkMetered()).thenReturn(true);
+
+    warmer.warm(track(50_000));
+
+    verify(mockDataSourceFactory, never()).createDataSource();
+  }
+
+  @Test public void meteredIsCheckedOnEveryWarmUp() {
+    when(mockConnectivityManager.isActiveNetworkMetered()).thenReturn(true, false);
+    when(mockDownloader.localFile(any(Track.class))).thenReturn(new File("downloaded"));
+
+    warmer.warm(track(50_000));
+    warmer.warm(track(50_000));
+
+    verify(mockConnectivityManager, times(2)).isActiveNetworkMetered();
+    verify(mockDataSourceFactory, never()).createDataSource();
+  }
+
+  private static Track track(long viewOffset) {
+    return Track.builder()
+        .queueItemId(1)
+        .libraryId("library")
+        .key("/library/metadata/1")
+        .ratingKey("1")
+        .parentKey("/library/metadata/book")
+        .title("title")
+        .albumTitle("albumTitle")
+        .artistTitle("artistTitle")
+        .index(1)
+        .duration(DURATION)
+        .thumb(null)
+        .source("https://plex/library/parts/1/file.mp3?X-Plex-Token=token")
+        .uri(HttpUrl.get("https://plex/?X-Plex-Token=token"))
+        .recent(false)
+        .viewCount(0)
+        .viewOffset(viewOffset)
+        .build();
+  }
+}
@@ -24,6 +24,7 @@ import org.junit.Test;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
 import io.reactivex.subscribers.TestSubscriber;
@@ -93,6 +94,31 @@ public class QueueManagerTest {
     assertThat(queueManager.currentTrack(), is(expectedTrack));
   }
 
+  @Test
+  public void mergeServerQueue() {
+    Track started = createTrack(3).toBuilder().queueItemId(0).key("key3").viewOffset(500L).build();
+    queueManager.setQueue(Collections.singletonList(started), 0, 0L);
+
+    List<Track> serverQueue = Arrays.asList(
+            createTrack(2).toBuilder().key("key2").build(),
+            createTrack(3).toBuilder().key("key3").build(),
+            createTrack(4).toBuilder().key("key4").build());
+    assertThat(queueManager.mergeQueue(serverQueue), is(true));
+
+    assertThat(queueManager.getQueue().size(), is(3));
+    assertThat(queueManager.currentTrack().queueItemId(), is(30L));
+    assertThat(queueManager.currentTrack().viewOffset(), is(500L));
+    assertThat(queueManager.hasNext(), is(true));
+  }
+
+  @Test
+  public void mergeServerQueueWithoutCurrentTrack() {
+    List<Track> serverQueue = Collections.singletonList(
+            createTrack(2).toBuilder().key("other").build());
+    assertThat(queueManager.mergeQueue(serverQueue), is(false));
+    assertThat(queueManager.currentTrack(), is(queue.get(0)));
+  }
+
   private Track createTrack(int index) {
     return Track.builder()
             .queueItemId(index * 10)
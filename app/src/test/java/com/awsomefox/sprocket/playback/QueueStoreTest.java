@@ -0,0 +1,109 @@
+/*
+ * Copyright (C) 2020 Simon Norberg
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.awsomefox.sprocket.playback;
+
+import com.awsomefox.sprocket.data.HttpUrlJsonAdapter;
+import com.awsomefox.sprocket.data.model.Track;
+import com.awsomefox.sprocket.util.Pair;
+import com.squareup.moshi.Moshi;
+
+import org.hamcrest.collection.IsIterableContainingInOrder;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import okhttp3.HttpUrl;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsNull.nullValue;
+
+public class QueueStoreTest {
+
+  @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+  private File file;
+  private QueueStore store;
+
+  @Before public void setup() {
+    file = new File(folder.getRoot(), "playback.queue");
+    store = new QueueStore(file,
+        Track.jsonAdapter(new Moshi.Builder().add(new HttpUrlJsonAdapter()).build()));
+  }
+
+  @Test public void nothingSaved() {
+    assertThat(store.load(), is(nullValue()));
+  }
+
+  @Test public void savedQueueIsLoaded() {
+    List<Track> queue = Arrays.asList(createTrack(1), createTrack(2), createTrack(3));
+    store.save(queue, 1);
+
+    Pair<List<Track>, Integer> loaded = store.load();
+    assertThat(loaded.first, IsIterableContainingInOrder.contains(
+        queue.get(0), queue.get(1), queue.get(2)));
+    assertThat(loaded.second, is(1));
+  }
+
+  @Test public void unreadableQueueIsIgnored() throws IOException {
+    try (Writer writer = new FileWriter(file)) {
+      writer.write("{\"position\": 0, \"tracks\": [{\"key\"");
+    }
+    assertThat(store.load(), is(nullValue()));
+  }
+
+  @Test public void uriSurvivesRestore() throws IOException {
+    store.save(Collections.singletonList(createTrack(1)), 0);
+
+    // Stored as a plain string, not the fields of HttpUrl
+    String saved = new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+    assertThat(saved.contains("\"uri\":\"https://plex.tv/library?X-Plex-Token=token\""), is(true));
+    Track restored = store.load().first.get(0);
+    assertThat(restored.uri(), is(HttpUrl.get("https://plex.tv/library?X-Plex-Token=token")));
+  }
+
+  private static Track createTrack(int index) {
+    return Track.builder()
+        .queueItemId(index * 10)
+        .libraryId("libraryId")
+        .key("key" + index)
+        .ratingKey("ratingKey")
+        .parentKey("parentKey")
+        .title("title")
+        .albumTitle("albumTitle")
+        .artistTitle("artistTitle")
+        .index(index)
+        .duration(30000)
+        .thumb(null)
+        .source("source")
+        .uri(HttpUrl.get("https://plex.tv/library?X-Plex-Token=token"))
+        .recent(true)
+        .viewCount(0)
+        .viewOffset(100L)
+        .build();
+  }
+}
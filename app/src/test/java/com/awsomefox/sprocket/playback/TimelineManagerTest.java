@@ -0,0 +1,88 @@
+/*
+ * Copyright (C) 2020 Simon Norberg
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.awsomefox.sprocket.playback;
+
+import com.awsomefox.sprocket.data.model.Track;
+import com.awsomefox.sprocket.playback.TimelineManager.Decision;
+import com.awsomefox.sprocket.playback.TimelineManager.Timeline;
+
+import org.junit.Test;
+
+import okhttp3.HttpUrl;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+
+public class TimelineManagerTest {
+
+  private static final long INTERVAL = 10000;
+
+  @Test public void firstUpdateIsReported() {
+    assertThat(TimelineManager.decide(null, playing("1", 0), INTERVAL), is(Decision.REPORT));
+  }
+
+  @Test public void progressWithinIntervalIsCoalesced() {
+    assertThat(TimelineManager.decide(playing("1", 0), playing("1", 5000), INTERVAL),
+        is(Decision.COALESCE));
+    assertThat(TimelineManager.decide(playing("1", 0), playing("1", 10000), INTERVAL),
+        is(Decision.REPORT));
+  }
+
+  @Test public void identicalUpdateIsDropped() {
+    assertThat(TimelineManager.decide(playing("1", 5000), playing("1", 5000), INTERVAL),
+        is(Decision.DROP));
+  }
+
+  @Test public void pauseTrackChangeAndRewindAreReportedRightAway() {
+    Timeline last = playing("1", 5000);
+    assertThat(TimelineManager.decide(last, new Timeline("paused", 6000, track("1")), INTERVAL),
+        is(Decision.REPORT));
+    assertThat(TimelineManager.decide(last, playing("2", 6000), INTERVAL), is(Decision.REPORT));
+    assertThat(TimelineManager.decide(last, playing("1", 1000), INTERVAL), is(Decision.REPORT));
+  }
+
+  @Test public void intervalFollowsSpeedScreenAndNetwork() {
+    assertThat(TimelineManager.reportInterval(1f, true, false), is(10000L));
+    assertThat(TimelineManager.reportInterval(2f, true, false), is(20000L));
+    assertThat(TimelineManager.reportInterval(1f, false, false), is(30000L));
+    assertThat(TimelineManager.reportInterval(1f, false, true), is(120000L));
+  }
+
+  private static Timeline playing(String key, long time) {
+    return new Timeline("playing", time, track(key));
+  }
+
+  private static Track track(String key) {
+    return Track.builder()
+        .queueItemId(1)
+        .libraryId("libraryId")
+        .key(key)
+        .ratingKey("ratingKey")
+        .parentKey("parentKey")
+        .title("title")
+        .albumTitle("albumTitle")
+        .artistTitle("artistTitle")
+        .index(1)
+        .duration(30000)
+        .thumb("thumb")
+        .source("source")
+        .uri(HttpUrl.parse("https://plex.tv"))
+        .recent(true)
+        .viewCount(0)
+        .viewOffset(0L)
+        .build();
+  }
+}
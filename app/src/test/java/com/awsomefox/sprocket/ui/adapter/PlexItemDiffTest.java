@@ -0,0 +1,78 @@
+/*
+ * Copyright (C) 2020 Simon Norberg
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.awsomefox.sprocket.ui.adapter;
+
+import com.awsomefox.sprocket.data.model.Book;
+import com.awsomefox.sprocket.data.model.Track;
+
+import org.junit.Test;
+
+import okhttp3.HttpUrl;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsNull.nullValue;
+
+public class PlexItemDiffTest {
+
+  private final PlexItemDiff diff = new PlexItemDiff();
+
+  @Test public void sameRatingKeyIsSameItem() {
+    Track track = createTrack("1", 0);
+    assertThat(diff.areItemsTheSame(track, createTrack("1", 1000)), is(true));
+    assertThat(diff.areItemsTheSame(track, createTrack("2", 0)), is(false));
+  }
+
+  @Test public void tracksAndBooksAreNeverTheSame() {
+    Book book = Book.builder()
+        .title("title")
+        .ratingKey("1")
+        .artistTitle("artistTitle")
+        .libraryId("libraryId")
+        .uri(HttpUrl.get("https://plex.tv"))
+        .build();
+    assertThat(diff.areItemsTheSame(createTrack("1", 0), book), is(false));
+  }
+
+  @Test public void listenStateOnlyChangeHasPayload() {
+    Track track = createTrack("1", 0);
+    assertThat(diff.areContentsTheSame(track, createTrack("1", 1000)), is(false));
+    assertThat(diff.getChangePayload(track, createTrack("1", 1000)),
+        is(PlexItemDiff.LISTEN_STATE));
+    assertThat(diff.getChangePayload(track, track.toBuilder().title("other").build()),
+        is(nullValue()));
+  }
+
+  private static Track createTrack(String ratingKey, long viewOffset) {
+    return Track.builder()
+        .queueItemId(100)
+        .libraryId("libraryId")
+        .key("key")
+        .ratingKey(ratingKey)
+        .parentKey("parentKey")
+        .title("title")
+        .albumTitle("albumTitle")
+        .artistTitle("artistTitle")
+        .index(1)
+        .duration(300)
+        .recent(false)
+        .viewCount(0)
+        .viewOffset(viewOffset)
+        .source("source")
+        .uri(HttpUrl.get("https://plex.tv"))
+        .build();
+  }
+}
@@ -0,0 +1,51 @@
+/*
+ * Copyright (C) 2020 Simon Norberg
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.awsomefox.sprocket.util;
+
+import org.junit.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsNot.not;
+import static org.hamcrest.core.IsNull.nullValue;
+
+public class CacheKeysTest {
+
+  @Test public void keyIgnoresHostAndToken() {
+    String local = CacheKeys.forUrl("uuid",
+        "http://192.168.1.2:32400/library/parts/1/2/file.mp3?X-Plex-Token=a");
+    String remote = CacheKeys.forUrl("uuid",
+        "https://1-2-3-4.hash.plex.direct:32400/library/parts/1/2/file.mp3?X-Plex-Token=b");
+    assertThat(local, is("uuid/library/parts/1/2/file.mp3"));
+    assertThat(remote, is(local));
+  }
+
+  @Test public void keyKeepsContentParameters() {
+    String key = CacheKeys.forUrl("uuid", "https://plex.tv/photo/:/transcode?X-Plex-Token=a"
+        + "&url=%2Flibrary%2Fmetadata%2F1%2Fthumb%2F2&width=8&X-Plex-Client-Identifier=c");
+    assertThat(key, is("uuid/photo/:/transcode?url=/library/metadata/1/thumb/2&width=8"));
+  }
+
+  @Test public void keyDependsOnLibrary() {
+    String url = "https://plex.tv/library/metadata/1/thumb/2";
+    assertThat(CacheKeys.forUrl("first", url), not(CacheKeys.forUrl("second", url)));
+  }
+
+  @Test public void noKeyWithoutUrl() {
+    assertThat(CacheKeys.forUrl("uuid", (String) null), nullValue());
+    assertThat(CacheKeys.forUrl("uuid", "not a url"), nullValue());
+  }
+}
@@ -37,4 +37,11 @@ public class StringsTest {
   @Test public void stringIsNotBlank() {
     assertThat(Strings.isBlank("not blank "), is(false));
   }
+
+  @Test public void hash64() {
+    assertThat(Strings.hash64(""), is(0xcbf29ce484222325L));
+    assertThat(Strings.hash64("a"), is(0xaf63dc4c8601ec8cL));
+    assertThat(Strings.hash64("/library/metadata/1") == Strings.hash64("/library/metadata/2"),
+        is(false));
+  }
 }
@@ -43,4 +43,21 @@ public class UrlsTest {
     String actual = Urls.addTranscodeParams("https://plex.tv/photo/:/transcode?url=imageKey", 8, 4);
     assertThat(actual, is(expected));
   }
+
+  @Test public void routeLibraryPathThroughPhotoTranscoder() {
+    String expected = "https://plex.tv/photo/:/transcode?X-Plex-Token=token"
+        + "&url=%2Flibrary%2Fmetadata%2F1%2Fthumb%2F2&width=8&height=4&minSize=1&upscale=1"
+        + "&format=webp&quality=70";
+    String thumb = "https://plex.tv/library/metadata/1/thumb/2?X-Plex-Token=token";
+    String actual = Urls.getPhotoUrl(thumb, 8, 4, Urls.PhotoFormat.WEBP);
+    assertThat(actual, is(expected));
+  }
+
+  @Test public void resizeExistingPhotoTranscodeUrl() {
+    String expected = "https://plex.tv/photo/:/transcode?url=imageKey&width=8&height=4"
+        + "&minSize=1&upscale=1&format=jpeg&quality=85";
+    String actual = Urls.getPhotoUrl("https://plex.tv/photo/:/transcode?url=imageKey&width=2",
+        8, 4, Urls.PhotoFormat.JPEG);
+    assertThat(actual, is(expected));
+  }
 }